@@ -0,0 +1,826 @@
+/*
+ *  File Name:    AbstractPooledAvlTree.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+/**
+ * This is the base for the Balanced Binary Search Trees that hold their Nodes
+ * in pools of arrays, instead of as separate objects.
+ * <p>
+ * Each Node is just an id: an index into the {@code left}, {@code right} and
+ * {@code height} pools held here, and into the pool of keys held by the subclass.
+ * Keeping the keys in the subclass lets it store them in whatever form suits
+ * them, such as an {@code int[]}, without boxing. The ids of deleted Nodes are
+ * kept on a free list, for reuse by later adds.
+ * <p>
+ * Id {@link #PROBE} is never part of the tree. The subclass puts the key it is
+ * looking for there, so that all of the comparisons are between ids.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public abstract class AbstractPooledAvlTree
+{
+
+    /**
+     * The id of the absent Node.
+     */
+    protected static final int NIL = -1;
+
+    /**
+     * The id of the slot holding the key being looked for.
+     */
+    protected static final int PROBE = 0;
+
+    /**
+     * String to display when there is a ConcurrentModificationException.
+     */
+    private static final String CONCURRENT_MODIFICATION_EXCEPTION_STRING
+                                = "Another thread has modified the data structure";
+
+    /**
+     * The number of elements in this tree.
+     */
+    private int count;
+
+    /**
+     * The head of the list of free Node ids, linked through {@code left}.
+     */
+    private int freeHead = NIL;
+
+    /**
+     * The height of each Node, or {@code 0} if the id is free.
+     * <p>
+     * An AVL tree of 2<sup>31</sup> Nodes is less than 45 high, so a byte is plenty.
+     */
+    private byte[] height;
+
+    /**
+     * The Left child of each Node.
+     */
+    private int[] left;
+
+    /**
+     * The next Node id never yet used.
+     */
+    private int next = PROBE + 1;
+
+    /**
+     * The Nodes passed through on the way down the tree, by add and delete.
+     */
+    private int[] path = new int[64];
+
+    /**
+     * For each Node in {@code path}, {@code true} if the path went to its
+     * Left child.
+     */
+    private boolean[] pathLeft = new boolean[64];
+
+    /**
+     * The Right child of each Node.
+     */
+    private int[] right;
+
+    /**
+     * The root Node.
+     */
+    private int root = NIL;
+
+    /**
+     * The version of the data.
+     */
+    private int version;
+
+    /**
+     * Initializes a new instance of the {@linkplain AbstractPooledAvlTree} class, with
+     * room for {@code initialCapacity} elements before the pools have to grow.
+     * <p>
+     * This calls {@link #allocateKeys(int) allocateKeys()}, so the subclass must
+     * not give its pool of keys an initial value.
+     *
+     * @param initialCapacity the initial capacity
+     */
+    protected AbstractPooledAvlTree(int initialCapacity)
+    {
+        if (initialCapacity < 0)
+        {
+            throw new IllegalArgumentException("initialCapacity: must not be negative");
+        }
+
+        allocatePools(initialCapacity + 1);
+    }
+
+    /**
+     * Removes all of the elements from this tree.
+     */
+    public void clear()
+    {
+        allocatePools(16);
+        root = NIL;
+        freeHead = NIL;
+        next = PROBE + 1;
+        count = 0;
+        version++;
+    }
+
+    /**
+     * Returns {@code true} if this tree contains no elements.
+     *
+     * @return {@code true} if this tree contains no elements
+     */
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    /**
+     * Returns the number of elements in this tree.
+     *
+     * @return the number of elements in this tree
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * Shrink the pools to fit the elements currently held.
+     * <p>
+     * The ids in use are left as they are, so the pools can only shrink down
+     * to the highest id in use.
+     */
+    public void trimToSize()
+    {
+        int length = next;
+
+        while (length > PROBE + 1 && height[length - 1] == 0)
+        {
+            length--;
+        }
+
+        if (length < next)
+        {
+            // Drop the free ids above the new end from the free list.
+            int previous = NIL;
+
+            for (int id = freeHead; id != NIL; id = left[id])
+            {
+                if (id >= length)
+                {
+                    if (previous == NIL)
+                    {
+                        freeHead = left[id];
+                    } else
+                    {
+                        left[previous] = left[id];
+                    }
+                } else
+                {
+                    previous = id;
+                }
+            }
+
+            next = length;
+        }
+
+        resizePools(length);
+    }
+
+    /**
+     * Allocate a Node, from the free list if possible.
+     *
+     * @return the Node id
+     */
+    private int allocate()
+    {
+        int rtn;
+
+        if (freeHead != NIL)
+        {
+            rtn = freeHead;
+            freeHead = left[rtn];
+        } else
+        {
+            if (next == left.length)
+            {
+                resizePools(next + (next >> 1) + 1);
+            }
+
+            rtn = next++;
+        }
+
+        left[rtn] = NIL;
+        right[rtn] = NIL;
+        height[rtn] = 1;
+        return rtn;
+    }
+
+    /**
+     * Allocate new, empty, pools.
+     *
+     * @param capacity the number of Nodes to allocate room for, including {@link #PROBE}
+     */
+    private void allocatePools(int capacity)
+    {
+        height = new byte[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        allocateKeys(capacity);
+    }
+
+    /**
+     * Calculate the balance factor of the {@code current} Node.
+     *
+     * @param current the current Node
+     *
+     * @return the balance factor
+     */
+    private int balanceFactor(int current)
+    {
+        return getHeight(left[current]) - getHeight(right[current]);
+    }
+
+    /**
+     * Re-balance the sub-tree rooted at the {@code current} Node, if required.
+     *
+     * @param current the current Node
+     *
+     * @return the new root of the sub-tree
+     */
+    private int balanceTree(int current)
+    {
+        int bf = balanceFactor(current);
+        int rtn = current;
+
+        if (bf > 1)
+        {
+            if (balanceFactor(left[current]) < 0)
+            {
+                left[current] = rotateLeft(left[current]);
+            }
+
+            rtn = rotateRight(current);
+        } else if (bf < -1)
+        {
+            if (balanceFactor(right[current]) > 0)
+            {
+                right[current] = rotateRight(right[current]);
+            }
+
+            rtn = rotateLeft(current);
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Return the {@code id} to the free list.
+     *
+     * @param id the Node id
+     */
+    private void free(int id)
+    {
+        releaseKey(id);
+        height[id] = 0;
+        left[id] = freeHead;
+        freeHead = id;
+    }
+
+    /**
+     * Get the height of the {@code current} Node.
+     *
+     * @param current the current Node
+     *
+     * @return the height, or {@code 0} if {@code NIL}
+     */
+    private int getHeight(int current)
+    {
+        return current == NIL ? 0 : height[current];
+    }
+
+    /**
+     * Relink the Nodes in {@code path}, from the bottom up, after an add or
+     * delete, re-balancing each sub-tree as required.
+     *
+     * @param depth the number of Nodes in {@code path}
+     * @param child the replacement for the child of the last Node in {@code path}
+     *
+     * @return the replacement root Node
+     */
+    private int rebuildPath(int depth, int child)
+    {
+        for (int i = depth - 1; i >= 0; i--)
+        {
+            int current = path[i];
+
+            if (pathLeft[i])
+            {
+                left[current] = child;
+            } else
+            {
+                right[current] = child;
+            }
+
+            updateHeight(current);
+            child = balanceTree(current);
+        }
+
+        return child;
+    }
+
+    /**
+     * Record a step taken on the way down the tree.
+     *
+     * @param depth   the depth of the {@code current} Node
+     * @param current the current Node
+     * @param isLeft  {@code true} if going to the Left child
+     */
+    private void recordStep(int depth, int current, boolean isLeft)
+    {
+        if (depth == path.length)
+        {
+            path = Arrays.copyOf(path, depth * 2);
+            pathLeft = Arrays.copyOf(pathLeft, depth * 2);
+        }
+
+        path[depth] = current;
+        pathLeft[depth] = isLeft;
+    }
+
+    /**
+     * Resize the pools, keeping their contents.
+     *
+     * @param capacity the new capacity, including {@link #PROBE}
+     */
+    private void resizePools(int capacity)
+    {
+        height = Arrays.copyOf(height, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        resizeKeys(capacity);
+    }
+
+    /**
+     * Rotate the sub-tree rooted at the {@code current} Node to the Left.
+     *
+     * @param current the current Node
+     *
+     * @return the new root of the sub-tree
+     */
+    private int rotateLeft(int current)
+    {
+        int pivot = right[current];
+        right[current] = left[pivot];
+        left[pivot] = current;
+        updateHeight(current);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Rotate the sub-tree rooted at the {@code current} Node to the Right.
+     *
+     * @param current the current Node
+     *
+     * @return the new root of the sub-tree
+     */
+    private int rotateRight(int current)
+    {
+        int pivot = left[current];
+        left[current] = right[pivot];
+        right[pivot] = current;
+        updateHeight(current);
+        updateHeight(pivot);
+        return pivot;
+    }
+
+    /**
+     * Update the cached height of the {@code current} Node, from its children.
+     *
+     * @param current the current Node
+     */
+    private void updateHeight(int current)
+    {
+        height[current] = (byte) (Math.max(getHeight(left[current]), getHeight(right[current])) + 1);
+    }
+
+    /**
+     * Allocate a new, empty, pool of keys.
+     * <p>
+     * Called from the constructor.
+     *
+     * @param capacity the number of keys to allocate room for
+     */
+    protected abstract void allocateKeys(int capacity);
+
+    /**
+     * Compare the keys of two Nodes.
+     *
+     * @param idA the first Node id
+     * @param idB the second Node id
+     *
+     * @return a negative number, zero, or a positive number as the key of {@code idA}
+     *         is less than, equal to, or greater than the key of {@code idB}
+     */
+    protected abstract int compare(int idA, int idB);
+
+    /**
+     * Copy the key of one Node to another.
+     *
+     * @param from the Node id to copy from
+     * @param to   the Node id to copy to
+     */
+    protected abstract void copyKey(int from, int to);
+
+    /**
+     * Delete the key in {@link #PROBE} from the tree.
+     *
+     * @return {@code true} if found and deleted
+     */
+    protected boolean deleteProbe()
+    {
+        int current = root;
+        int depth = 0;
+
+        while (current != NIL)
+        {
+            int cmp = compare(PROBE, current);
+
+            if (cmp == 0)
+            {
+                break;
+            }
+
+            recordStep(depth++, current, cmp < 0);
+            current = cmp < 0 ? left[current] : right[current];
+        }
+
+        if (current == NIL)
+        {
+            return false;
+        }
+
+        int child;
+
+        if (right[current] != NIL)
+        {
+            // Move the in-order successor's key into the target Node,
+            // and free the successor's Node instead.
+            recordStep(depth++, current, false);
+            int successor = right[current];
+
+            while (left[successor] != NIL)
+            {
+                recordStep(depth++, successor, true);
+                successor = left[successor];
+            }
+
+            copyKey(successor, current);
+            child = right[successor];
+            current = successor;
+        } else
+        {
+            child = left[current];
+        }
+
+        free(current);
+        root = rebuildPath(depth, child);
+        count--;
+        version++;
+        return true;
+    }
+
+    /**
+     * Finds the key in {@link #PROBE}.
+     *
+     * @return the Node id if found, or {@link #NIL} otherwise
+     */
+    protected int findProbe()
+    {
+        int current = root;
+
+        while (current != NIL)
+        {
+            int cmp = compare(PROBE, current);
+
+            if (cmp == 0)
+            {
+                break;
+            }
+
+            current = cmp < 0 ? left[current] : right[current];
+        }
+
+        return current;
+    }
+
+    /**
+     * Get the Node with the lowest key.
+     *
+     * @return the Node id
+     *
+     * @throws NoSuchElementException if the tree is empty
+     */
+    protected int firstId()
+    {
+        int current = root;
+
+        if (current == NIL)
+        {
+            throw new NoSuchElementException();
+        }
+
+        while (left[current] != NIL)
+        {
+            current = left[current];
+        }
+
+        return current;
+    }
+
+    /**
+     * Get the height of the tree.
+     *
+     * @return the height, or {@code 0} if empty
+     */
+    protected int getHeight()
+    {
+        return getHeight(root);
+    }
+
+    /**
+     * Add the key in {@link #PROBE} to the tree.
+     *
+     * @return {@code true} if added, {@code false} if already present
+     */
+    protected boolean insertProbe()
+    {
+        int current = root;
+        int depth = 0;
+
+        while (current != NIL)
+        {
+            int cmp = compare(PROBE, current);
+
+            if (cmp == 0)
+            {
+                return false;
+            }
+
+            recordStep(depth++, current, cmp < 0);
+            current = cmp < 0 ? left[current] : right[current];
+        }
+
+        int id = allocate();
+        copyKey(PROBE, id);
+        root = rebuildPath(depth, id);
+        count++;
+        version++;
+        return true;
+    }
+
+    /**
+     * Get the Node with the highest key.
+     *
+     * @return the Node id
+     *
+     * @throws NoSuchElementException if the tree is empty
+     */
+    protected int lastId()
+    {
+        int current = root;
+
+        if (current == NIL)
+        {
+            throw new NoSuchElementException();
+        }
+
+        while (right[current] != NIL)
+        {
+            current = right[current];
+        }
+
+        return current;
+    }
+
+    /**
+     * Release the key of a Node that has been freed.
+     * <p>
+     * Only needed where the keys are references, so that they can be garbage collected.
+     *
+     * @param id the Node id
+     */
+    protected void releaseKey(int id)
+    {
+    }
+
+    /**
+     * Resize the pool of keys, keeping its contents.
+     *
+     * @param capacity the new capacity
+     */
+    protected abstract void resizeKeys(int capacity);
+
+    /**
+     * This is an in-order iterator, over the Node ids.
+     * <p>
+     * The subclass supplies the {@code next()} method, using {@link #nextId()},
+     * and the key type it returns.
+     */
+    protected abstract class PooledItor
+    {
+
+        /**
+         * {@code true} if there is a last Node returned, that has not been removed.
+         */
+        private boolean canRemove;
+
+        /**
+         * The expected version number.
+         */
+        private int expectedVersion;
+
+        /**
+         * The last Node returned.
+         */
+        private int lastReturnedId = NIL;
+
+        /**
+         * The Nodes yet to be returned, with the next one on top.
+         */
+        private int[] stack;
+
+        /**
+         * The number of Nodes on the stack.
+         */
+        private int top;
+
+        /**
+         * Instantiates a new PooledItor object.
+         *
+         * @param fromProbe {@code true} to start from the key in {@link #PROBE},
+         *                  instead of the first Node
+         * @param inclusive {@code true} if the key in {@link #PROBE} is to be included
+         */
+        protected PooledItor(boolean fromProbe, boolean inclusive)
+        {
+            expectedVersion = version;
+            stack = new int[Math.max(getHeight(root), 1)];
+
+            if (fromProbe)
+            {
+                seek(inclusive);
+            } else
+            {
+                pushPath(root);
+            }
+        }
+
+        /**
+         * Returns {@code true} if the iteration has more elements.
+         *
+         * @return {@code true} if the iteration has more elements
+         */
+        public boolean hasNext()
+        {
+            return expectedVersion == version && top > 0 && !isPastFence(stack[top - 1]);
+        }
+
+        /**
+         * Removes from the tree the last element returned by this iterator.
+         */
+        public void remove()
+        {
+            checkVersion();
+
+            if (!canRemove)
+            {
+                throw new IllegalStateException();
+            }
+
+            copyKey(lastReturnedId, PROBE);
+            deleteProbe();
+
+            // The rebalancing may have moved any of the Nodes on the stack,
+            // so rebuild it from the key just removed.
+            seek(false);
+            releaseKey(PROBE);
+            canRemove = false;
+            expectedVersion = version;
+        }
+
+        /**
+         * Check that the tree has not been modified.
+         *
+         * @throws ConcurrentModificationException if it has
+         */
+        private void checkVersion()
+        {
+            if (expectedVersion != version)
+            {
+                throw new ConcurrentModificationException(CONCURRENT_MODIFICATION_EXCEPTION_STRING);
+            }
+        }
+
+        /**
+         * Push the {@code current} Node, and the path down to the first Node
+         * of its sub-tree, onto the stack.
+         *
+         * @param current the current Node
+         */
+        private void pushPath(int current)
+        {
+            while (current != NIL)
+            {
+                stack[top++] = current;
+                current = left[current];
+            }
+        }
+
+        /**
+         * Rebuild the stack, so that the next Node returned will be the first
+         * one at, or if not {@code inclusive} past, the key in {@link #PROBE}.
+         *
+         * @param inclusive {@code true} if the key itself may be returned next
+         */
+        private void seek(boolean inclusive)
+        {
+            int current = root;
+            top = 0;
+
+            if (stack.length < getHeight(root))
+            {
+                stack = new int[getHeight(root)];
+            }
+
+            while (current != NIL)
+            {
+                int cmp = compare(PROBE, current);
+
+                if (cmp < 0 || (cmp == 0 && inclusive))
+                {
+                    stack[top++] = current;
+                    current = left[current];
+                } else
+                {
+                    current = right[current];
+                }
+            }
+        }
+
+        /**
+         * Is the key of the {@code id} Node beyond the end of the iteration?
+         *
+         * @param id the Node id
+         *
+         * @return result
+         */
+        protected boolean isPastFence(int id)
+        {
+            return false;
+        }
+
+        /**
+         * Get the next Node, and step past it.
+         *
+         * @return the next Node id
+         */
+        protected int nextId()
+        {
+            checkVersion();
+
+            if (top == 0 || isPastFence(stack[top - 1]))
+            {
+                throw new NoSuchElementException();
+            }
+
+            int current = stack[--top];
+            pushPath(right[current]);
+            lastReturnedId = current;
+            canRemove = true;
+            return current;
+        }
+    }
+}
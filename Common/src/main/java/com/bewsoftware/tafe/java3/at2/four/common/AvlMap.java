@@ -0,0 +1,480 @@
+/*
+ *  File Name:    AvlMap.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+import java.util.function.Function;
+
+import static com.bewsoftware.tafe.java3.at2.four.common.AvlTree.NO_NULLS;
+
+/**
+ * This is a Map, sorted by key, backed by an {@linkplain AvlTree} of its entries.
+ * <p>
+ * Keys are looked up directly, in a single walk down the tree, without having to
+ * build an entry to search for.
+ * <p>
+ * This class does not support storage of {@code null} keys or values. The entries
+ * are immutable, so {@link Map.Entry#setValue(Object) setValue()} is not supported.
+ * If the map is created as concurrent, it is backed by a {@linkplain ConcurrentAvlTree},
+ * and can be shared between threads, with lock-free reads.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ * @param <K> type of the keys
+ * @param <V> type of the values
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public class AvlMap<K extends Comparable<K>, V> extends AbstractMap<K, V>
+{
+
+    /**
+     * The set of entries.
+     * <p>
+     * Created on demand.
+     */
+    private EntrySet entrySet;
+
+    /**
+     * The entries, in key order.
+     */
+    private final AvlTree<Entry<K, V>> tree;
+
+    /**
+     * Initializes a new instance of the {@linkplain AvlMap}{@literal <K, V>} class.
+     */
+    public AvlMap()
+    {
+        this(false);
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain AvlMap}{@literal <K, V>} class, that
+     * will/will not be thread-safe based on the value of the parameter: {@code concurrent}.
+     *
+     * @param concurrent if {@code true} the map will be thread-safe
+     */
+    public AvlMap(boolean concurrent)
+    {
+        tree = concurrent ? new ConcurrentAvlTree<>() : new AvlTree<>();
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain AvlMap}{@literal <K, V>} class,
+     * backed by the {@code tree}.
+     *
+     * @param tree the entries, in key order
+     */
+    private AvlMap(AvlTree<Entry<K, V>> tree)
+    {
+        this.tree = tree;
+    }
+
+    /**
+     * Compare the {@code key} with the key of the {@code entry}.
+     *
+     * @param <K>   type of the keys
+     * @param <V>   type of the values
+     * @param key   the key
+     * @param entry the entry
+     *
+     * @return result of the comparison
+     */
+    private static <K extends Comparable<K>, V> int compareKey(K key, Entry<K, V> entry)
+    {
+        return key.compareTo(entry.key);
+    }
+
+    @Override
+    public void clear()
+    {
+        tree.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If the map is concurrent, the {@code mappingFunction} may be called even though
+     * another thread adds a mapping for the {@code key} first. In that case, the value
+     * from the other thread is kept, and returned.
+     */
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction)
+    {
+        Objects.requireNonNull(mappingFunction);
+        V rtn = get(key);
+
+        if (rtn == null)
+        {
+            V value = mappingFunction.apply(key);
+
+            if (value != null)
+            {
+                V existing = putIfAbsent(key, value);
+                rtn = existing != null ? existing : value;
+            }
+        }
+
+        return rtn;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return get(key) != null;
+    }
+
+    /**
+     * Start caching the entries found by {@link #get(Object) get()}, for skewed loads
+     * where the same keys are looked up again and again.
+     *
+     * @param size the number of cache slots, rounded up to a power of two
+     *
+     * @see AvlTree#enableLookupCache(int)
+     */
+    public void enableLookupCache(int size)
+    {
+        tree.enableLookupCache(size);
+    }
+
+    /**
+     * Start counting the work done by the tree holding this map.
+     *
+     * @return the statistics, ready to be registered as a JMX MXBean
+     *
+     * @see AvlTree#enableStatistics()
+     */
+    public AvlTreeStats enableStatistics()
+    {
+        return tree.enableStatistics();
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet()
+    {
+        if (entrySet == null)
+        {
+            entrySet = new EntrySet();
+        }
+
+        return entrySet;
+    }
+
+    @Override
+    public V get(Object key)
+    {
+        @SuppressWarnings("unchecked")
+        Entry<K, V> entry = tree.search((K) key, AvlMap::compareKey);
+        return entry != null ? entry.value : null;
+    }
+
+    @Override
+    public V put(K key, V value)
+    {
+        Entry<K, V> entry = tree.replace(new Entry<>(key, value));
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this map is empty, and the {@code m} is sorted by key, the tree is built in O(n).
+     */
+    @Override
+    public void putAll(Map<? extends K, ? extends V> m)
+    {
+        if (tree.isEmpty())
+        {
+            List<Entry<K, V>> list = new ArrayList<>(m.size());
+
+            m.forEach((key, value) -> list.add(new Entry<>(key, value)));
+            tree.addAll(list);
+        } else
+        {
+            super.putAll(m);
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value)
+    {
+        Entry<K, V> entry = new Entry<>(key, value);
+        V rtn = null;
+        boolean added = false;
+
+        // Retry, if a concurrent remove gets in between the add and the get.
+        while (!added && rtn == null)
+        {
+            added = tree.add(entry);
+
+            if (!added)
+            {
+                rtn = get(key);
+            }
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Replace the contents of this map with the entries read from the {@code in}
+     * stream, as written by {@link #write(DataOutput, ElementCodec, ElementCodec) write()}.
+     * <p>
+     * As the entries are already in key order, the tree is built in O(n).
+     *
+     * @param in         the stream to read from
+     * @param keyCodec   reads each key
+     * @param valueCodec reads each value
+     *
+     * @throws IOException if any, or if the data fails its integrity checks
+     */
+    public void read(DataInput in, ElementCodec<? extends K> keyCodec, ElementCodec<? extends V> valueCodec)
+            throws IOException
+    {
+        tree.read(in, new ElementCodec<Entry<K, V>>()
+        {
+            @Override
+            public Entry<K, V> read(DataInput in) throws IOException
+            {
+                return new Entry<>(keyCodec.read(in), valueCodec.read(in));
+            }
+
+            @Override
+            public void write(DataOutput out, Entry<K, V> element)
+            {
+                throw new UnsupportedOperationException();
+            }
+        });
+    }
+
+    @Override
+    public V remove(Object key)
+    {
+        @SuppressWarnings("unchecked")
+        Entry<K, V> entry = tree.extract((K) key, AvlMap::compareKey);
+        return entry != null ? entry.value : null;
+    }
+
+    /**
+     * Sets whether iterating over this map works on a snapshot of it, so that
+     * the map can be changed while a long scan is in progress.
+     *
+     * @param snapshotIteration {@code true} for snapshot iteration, {@code false} for fail-fast
+     *
+     * @see AvlTree#setSnapshotIteration(boolean)
+     */
+    public void setSnapshotIteration(boolean snapshotIteration)
+    {
+        tree.setSnapshotIteration(snapshotIteration);
+    }
+
+    @Override
+    public int size()
+    {
+        return tree.size();
+    }
+
+    /**
+     * Take a snapshot of this map, in O(1).
+     * <p>
+     * The snapshot is an independent map, that is not thread-safe, holding the
+     * same entries. Neither it, nor this map, will see any later changes made to
+     * the other.
+     *
+     * @return the snapshot
+     *
+     * @see AvlTree#snapshot()
+     */
+    public AvlMap<K, V> snapshot()
+    {
+        return new AvlMap<>(tree.snapshot());
+    }
+
+    /**
+     * Write the entries of this map, in key order, to the {@code out} stream.
+     *
+     * @param out        the stream to write to
+     * @param keyCodec   writes each key
+     * @param valueCodec writes each value
+     *
+     * @throws IOException if any
+     *
+     * @see AvlTree#write(DataOutput, ElementCodec)
+     */
+    public void write(DataOutput out, ElementCodec<? super K> keyCodec, ElementCodec<? super V> valueCodec)
+            throws IOException
+    {
+        tree.write(out, new ElementCodec<Entry<K, V>>()
+        {
+            @Override
+            public Entry<K, V> read(DataInput in)
+            {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void write(DataOutput out, Entry<K, V> element) throws IOException
+            {
+                keyCodec.write(out, element.key);
+                valueCodec.write(out, element.value);
+            }
+        });
+    }
+
+    /**
+     * An immutable key-value pair, ordered by key.
+     *
+     * @param <K> type of the key
+     * @param <V> type of the value
+     */
+    private static final class Entry<K extends Comparable<K>, V> implements Map.Entry<K, V>, Comparable<Entry<K, V>>
+    {
+
+        /**
+         * The key.
+         */
+        private final K key;
+
+        /**
+         * The value.
+         */
+        private final V value;
+
+        /**
+         * Instantiates a new Entry object.
+         *
+         * @param key   the key
+         * @param value the value
+         */
+        public Entry(K key, V value)
+        {
+            this.key = Objects.requireNonNull(key, NO_NULLS);
+            this.value = Objects.requireNonNull(value, NO_NULLS);
+        }
+
+        @Override
+        public int compareTo(Entry<K, V> o)
+        {
+            return key.compareTo(o.key);
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+
+            if (!(obj instanceof Map.Entry))
+            {
+                return false;
+            }
+
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return key.equals(other.getKey()) && value.equals(other.getValue());
+        }
+
+        @Override
+        public K getKey()
+        {
+            return key;
+        }
+
+        @Override
+        public V getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public V setValue(V value)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String toString()
+        {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * The set of entries, backed by the map.
+     */
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>>
+    {
+
+        @Override
+        public void clear()
+        {
+            tree.clear();
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            if (!(o instanceof Map.Entry))
+            {
+                return false;
+            }
+
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            V value = get(entry.getKey());
+            return value != null && value.equals(entry.getValue());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Iterator<Map.Entry<K, V>> iterator()
+        {
+            return (Iterator<Map.Entry<K, V>>) (Iterator<?>) tree.iterator();
+        }
+
+        @Override
+        public boolean remove(Object o)
+        {
+            return contains(o) && AvlMap.this.remove(((Map.Entry<?, ?>) o).getKey()) != null;
+        }
+
+        @Override
+        public int size()
+        {
+            return tree.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Spliterator<Map.Entry<K, V>> spliterator()
+        {
+            return (Spliterator<Map.Entry<K, V>>) (Spliterator<?>) tree.spliterator();
+        }
+    }
+}
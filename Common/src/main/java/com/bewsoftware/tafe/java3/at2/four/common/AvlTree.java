@@ -19,12 +19,33 @@
  */
 package com.bewsoftware.tafe.java3.at2.four.common;
 
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ToIntBiFunction;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
 
 /**
  * This is a Binary Search Tree with the default capability of being a Balanced Binary Search Tree.
  * <p>
  * This class does not support storage of either {@code null}s or duplicates.
+ * <p>
+ * The range views returned by {@link #subSet(Comparable, boolean, Comparable, boolean) subSet},
+ * {@link #headSet(Comparable, boolean) headSet} and {@link #tailSet(Comparable, boolean) tailSet}
+ * are backed by this tree, so changes in one are reflected in the other.
+ * <p>
+ * {@link #snapshot()} returns an independent copy of this tree in O(1), by sharing
+ * all of its Nodes. Each tree only changes, in place, the Nodes that it created itself.
+ * Any shared Node on the path of an add or delete is copied first, so after a snapshot,
+ * each mutation copies at most O(log n) Nodes, and neither tree ever sees the other's
+ * changes.
+ * <p>
+ * {@link #write(DataOutput, ElementCodec) write()} saves the elements, in order, to a
+ * compact binary stream, and {@link #read(DataInput, ElementCodec) read()} rebuilds the
+ * tree from one in O(n).
  *
  * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
  * @param <E> type of item stored in this tree.
@@ -32,18 +53,42 @@ import java.util.*;
  * @since 1.0.9
  * @version 1.0.9
  */
-public class AvlTree<E extends Comparable<E>> implements Set<E>
+public class AvlTree<E extends Comparable<E>> implements Externalizable, NavigableSet<E>
 {
 
+    /**
+     * Data integrity failed string.
+     */
+    private static final String DATA_INTEGRITY_FAILED = "data integrity failed.";
+
+    private static final long serialVersionUID = 7340598421276412396L;
+
     /**
      * No nulls allowed string.
      */
-    private static final String NO_NULLS = "This class does not support storage of 'null's";
+    protected static final String NO_NULLS = "This class does not support storage of 'null's";
+
+    /**
+     * The ordering of the elements, or {@code null} for their
+     * {@linkplain Comparable natural ordering}.
+     */
+    private Comparator<? super E> comparator;
+
+    /**
+     * {@link #compare(Comparable, Comparable) compare()}, as a function for
+     * {@link #internalDelete(Object, ToIntBiFunction) internalDelete()}.
+     * <p>
+     * Held here, because a new method reference would be created by every delete.
+     */
+    private final ToIntBiFunction<E, E> comparison = this::compare;
 
     /**
-     * A value indicating whether this {@linkplain  AvlTree}{@literal <T>}is balanced.
+     * Identifies this tree in the lookup cache, which is shared with its snapshots.
+     * <p>
+     * Each tree has its own, so a cache entry does not have to hold the root
+     * of the tree it was found in.
      */
-    private boolean balanced;
+    private final Object cacheToken = new Object();
 
     /**
      * The number of elements in this tree.
@@ -51,15 +96,67 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
     private int count;
 
     /**
-     * The version of data last indexed.
+     * A direct-mapped cache, from the hash of a key to the last Node found for it,
+     * or {@code null} if not enabled.
+     * <p>
+     * Each slot holds a {@linkplain Finger}, or {@code null} until it is first used.
+     * It is shared with the tree's snapshots.
+     */
+    private Finger<E>[] fingers;
+
+    /**
+     * Marks the Nodes that this tree may change in place.
+     * <p>
+     * Replaced by {@link #snapshot()}, so that all of the existing Nodes become shared.
+     */
+    private Object owner = new Object();
+
+    /**
+     * The Nodes passed through on the way down the tree, by add and delete.
+     * <p>
+     * This is kept between calls, so that it only has to be grown, not
+     * re-allocated, each time.
+     */
+    private Node<E>[] path;
+
+    /**
+     * For each Node in {@code path}, {@code true} if the path went to its
+     * Left child.
+     */
+    private boolean[] pathLeft;
+
+    /**
+     * How closely this tree keeps itself balanced.
+     */
+    private BalancePolicy policy;
+
+    /**
+     * The number of elements replaced by {@link #replace(Comparable) replace()}.
+     * <p>
+     * Replacing an element does not change the {@code version}, but may copy its Node.
      */
-    private int lastIndexVersion;
+    private int replacements;
 
     /**
      * The root node.
      */
     private Node<E> root;
 
+    /**
+     * The number of rotations made, for measuring the {@code policy}.
+     */
+    private long rotations;
+
+    /**
+     * {@code true} if iterators work on a snapshot of the tree.
+     */
+    private boolean snapshotIteration;
+
+    /**
+     * The statistics, or {@code null} if they are not enabled.
+     */
+    private AvlTreeStats stats;
+
     /**
      * The version of the data.
      */
@@ -71,7 +168,7 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
      */
     public AvlTree()
     {
-        balanced = true;
+        policy = BalancePolicy.AVL;
     }
 
     /**
@@ -83,12 +180,38 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
      */
     public AvlTree(boolean balanced)
     {
-        this.balanced = balanced;
+        this(balanced ? BalancePolicy.AVL : BalancePolicy.NONE);
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain  AvlTree}{@literal <E>} class as a
+     * Binary Search Tree, kept balanced according to the {@code policy}.
+     *
+     * @param policy how closely the tree is to be kept balanced
+     */
+    public AvlTree(BalancePolicy policy)
+    {
+        this.policy = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain  AvlTree}{@literal <E>} class as a
+     * Balanced Binary Search Tree, ordered by the {@code comparator}.
+     *
+     * @param comparator the ordering of the elements, or {@code null} for their
+     *                   {@linkplain Comparable natural ordering}
+     */
+    public AvlTree(Comparator<? super E> comparator)
+    {
+        this(true);
+        this.comparator = comparator;
     }
 
     /**
      * Initializes a new instance of the {@linkplain  AvlTree}{@literal <E>} class with the contents
      * of the {@code list} as a Balanced Binary Search Tree.
+     * <p>
+     * If the {@code list} is already sorted, the tree is built in O(n).
      *
      * @param list the list containing the items to add to this tree
      */
@@ -112,18 +235,14 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
             throw new IllegalArgumentException("list: must not be 'null'");
         }
 
-        if (!list.isEmpty())
-        {
-            list.forEach(this::internalAdd);
-        }
-
-        this.balanced = balanced;
+        policy = balanced ? BalancePolicy.AVL : BalancePolicy.NONE;
+        internalAddAll(list);
     }
 
     @Override
     public boolean add(E e)
     {
-        return internalAdd(e);
+        return internalAdd(e, false) == null;
     }
 
 //    /**
@@ -134,15 +253,26 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
 //    {
 //        throw new UnsupportedOperationException(NOT_SUPPORTED); //To change body of generated methods, choose Tools | Templates.
 //    }
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this tree, and {@code c}, are both {@linkplain AvlTree}s under the AVL policy, the two trees are
+     * joined in O(m log(n/m + 1)), where m is the size of the smaller one.
+     * Otherwise, if the elements of {@code c} are already in ascending order, and
+     * there are enough of them, they are merged with the contents of this tree,
+     * which is then rebuilt in O(n + m).
+     */
     @Override
     public boolean addAll(Collection<? extends E> c)
     {
-        boolean rtn = false;
+        boolean rtn;
 
-        if (!Objects.requireNonNull(c).isEmpty())
+        if (isJoinable(c))
+        {
+            rtn = replaceRoot(unionOf(root, rootOf(c), newNodeArray(2)));
+        } else
         {
-            c.forEach(this::internalAdd);
-            rtn = true;
+            rtn = internalAddAll(c);
         }
 
         return rtn;
@@ -156,12 +286,25 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
 //    {
 //        throw new UnsupportedOperationException(NOT_SUPPORTED); //To change body of generated methods, choose Tools | Templates.
 //    }
+    @Override
+    public E ceiling(E e)
+    {
+        return valueOf(findCeiling(e, true));
+    }
+
     @Override
     public void clear()
     {
         root = null;
         count = 0;
         version++;
+        forgetAll();
+    }
+
+    @Override
+    public Comparator<? super E> comparator()
+    {
+        return comparator;
     }
 
     @Override
@@ -176,11 +319,11 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
     @SuppressWarnings("element-type-mismatch")
     public boolean containsAll(Collection<?> c)
     {
-        boolean rtn = false;
+        boolean rtn = true;
 
-        for (Object object : Objects.requireNonNull(c))
+        for (Iterator<?> it = Objects.requireNonNull(c).iterator(); rtn && it.hasNext();)
         {
-            rtn = contains(object);
+            rtn = contains(it.next());
         }
 
         return rtn;
@@ -195,20 +338,7 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
      */
     public boolean delete(E target)
     {
-        Ref<Boolean> rtn = new Ref<>(false);
-
-        if (target != null)
-        {
-            root = deleteNode(root, target, rtn, balanced);
-
-            if (rtn.val)
-            {
-                count--;
-                version++;
-            }
-        }
-
-        return rtn.val;
+        return target != null && internalDelete(target, comparison) != null;
     }
 
     /**
@@ -217,10 +347,34 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
      *
      * @return an iterator over the elements in this set, in descending order
      */
+    @Override
     public Iterator<E> descendingIterator()
     {
-        reIndex();
-        return new ATDescItor<>();
+        return newIterator(true, null, false, null, false);
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet()
+    {
+        return new BoundedSet<>(new Range(), null, false, null, false, true);
+    }
+
+    /**
+     * Returns a new tree, holding the elements of this tree that are not in
+     * the {@code other} tree.
+     * <p>
+     * Neither tree is changed. If both trees are under the AVL policy, this runs in
+     * O(m log(n/m + 1)), where m is the size of the smaller one.
+     *
+     * @param other the elements to leave out
+     *
+     * @return the new tree
+     */
+    public AvlTree<E> difference(AvlTree<E> other)
+    {
+        AvlTree<E> rtn = snapshot();
+        rtn.removeAll(other);
+        return rtn;
     }
 
     /**
@@ -234,7 +388,63 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
             return;
         }
 
-        System.out.println(displayInOrder(root));
+        System.out.println(displayInOrder());
+    }
+
+    /**
+     * Start caching the Nodes found by lookups, for this tree and its later snapshots.
+     * <p>
+     * The cache is direct-mapped, on the hash code of the key, so it suits skewed loads,
+     * where the same keys are looked up again and again. A hit costs one comparison,
+     * instead of one per level of the tree. Any change to the tree invalidates the
+     * whole cache, and deleting an element empties its slot, so that the cache does
+     * not keep deleted elements alive.
+     * <p>
+     * If {@linkplain #enableStatistics() statistics} are enabled, they count the hits
+     * and misses. Calling this again replaces the cache with an empty one.
+     *
+     * @param size the number of slots, rounded up to a power of two
+     *
+     * @throws IllegalArgumentException if {@code size} is less than {@code 1}, or more than 2<sup>30</sup>
+     */
+    public void enableLookupCache(int size)
+    {
+        if (size < 1 || size > 1 << 30)
+        {
+            throw new IllegalArgumentException("size: " + size);
+        }
+
+        fingers = newFingerArray(size == 1 ? 1 : Integer.highestOneBit(size - 1) << 1);
+    }
+
+    /**
+     * Start counting the work done by this tree, and its later snapshots.
+     * <p>
+     * Until this is called, no counts are kept, and the only cost is a
+     * {@code null} check.
+     *
+     * @return the statistics, ready to be registered as a JMX MXBean
+     */
+    public AvlTreeStats enableStatistics()
+    {
+        if (stats == null)
+        {
+            stats = new AvlTreeStats(this);
+        }
+
+        return stats;
+    }
+
+    @Override
+    public E first()
+    {
+        return key(findFirst());
+    }
+
+    @Override
+    public E floor(E e)
+    {
+        return valueOf(findFloor(e, true));
     }
 
     /**
@@ -254,6 +464,34 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
         return rtn != null ? rtn.Value : null;
     }
 
+    /**
+     * Get the policy by which this tree is kept balanced.
+     *
+     * @return the policy
+     */
+    public BalancePolicy getBalancePolicy()
+    {
+        return policy;
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement)
+    {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive)
+    {
+        return new BoundedSet<>(new Range(), null, false, Objects.requireNonNull(toElement, NO_NULLS), inclusive, false);
+    }
+
+    @Override
+    public E higher(E e)
+    {
+        return valueOf(findCeiling(e, false));
+    }
+
     /**
      * Returns the index of the specified element in this list, or -1 if this list does
      * not contain the element.
@@ -271,20 +509,57 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
     public int indexOf(Object o)
     {
         @SuppressWarnings("unchecked")
-        E item = (E) o;
-        reIndex();
-        Node<E> node = find(item);
-        return node != null ? node.Index : -1;
+        E item = (E) Objects.requireNonNull(o, NO_NULLS);
+        Node<E> current = root;
+        int rtn = 0;
+
+        while (current != null)
+        {
+            int cmp = compare(item, current.Value);
+
+            if (cmp < 0)
+            {
+                current = current.Left;
+            } else if (cmp > 0)
+            {
+                rtn += getSize(current.Left) + 1;
+                current = current.Right;
+            } else
+            {
+                return rtn + getSize(current.Left);
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Returns a new tree, holding the elements that are in both this tree and
+     * the {@code other} tree.
+     * <p>
+     * Neither tree is changed. If both trees are under the AVL policy, this runs in
+     * O(m log(n/m + 1)), where m is the size of the smaller one.
+     *
+     * @param other the elements to keep
+     *
+     * @return the new tree
+     */
+    public AvlTree<E> intersection(AvlTree<E> other)
+    {
+        AvlTree<E> rtn = snapshot();
+        rtn.retainAll(other);
+        return rtn;
     }
 
     /**
      * Gets a value indicating whether this {@linkplain  AvlTree}{@literal <T>} is balanced.
      *
-     * @return {@code true } if balanced, {@code false } otherwise
+     * @return {@code true } if balanced, under any {@linkplain BalancePolicy} other than
+     *         {@code NONE}, {@code false } otherwise
      */
     public boolean isBalanced()
     {
-        return balanced;
+        return policy != BalancePolicy.NONE;
     }
 
     @Override
@@ -293,12 +568,36 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
         return count == 0;
     }
 
+    /**
+     * Gets a value indicating whether the iterators of this tree work on a snapshot of it.
+     *
+     * @return {@code true} if they do, {@code false} if they are fail-fast
+     *
+     * @see #setSnapshotIteration(boolean)
+     */
+    public boolean isSnapshotIteration()
+    {
+        return snapshotIteration;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Unless {@linkplain #setSnapshotIteration(boolean) snapshot iteration} is set,
+     * the iterator is fail-fast.
+     *
+     * @return an iterator over the elements in this set, in ascending order
+     */
     @Override
-    @SuppressWarnings("unchecked")
     public Iterator<E> iterator()
     {
-        reIndex();
-        return new ATItor<>();
+        return newIterator(false, null, false, null, false);
+    }
+
+    @Override
+    public E last()
+    {
+        return key(findLast());
     }
 
 //    @Override
@@ -323,6 +622,101 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
 //    {
 //        throw new UnsupportedOperationException(NOT_SUPPORTED); //To change body of generated methods, choose Tools | Templates.
 //    }
+    @Override
+    public E lower(E e)
+    {
+        return valueOf(findFloor(e, false));
+    }
+
+    @Override
+    public E pollFirst()
+    {
+        E rtn = valueOf(findFirst());
+
+        if (rtn != null)
+        {
+            delete(rtn);
+        }
+
+        return rtn;
+    }
+
+    @Override
+    public E pollLast()
+    {
+        E rtn = valueOf(findLast());
+
+        if (rtn != null)
+        {
+            delete(rtn);
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Replace the contents of this tree with the elements read from the {@code in}
+     * stream, as written by {@link #write(DataOutput, ElementCodec) write()}.
+     * <p>
+     * As the elements are already in order, the tree is built in O(n). If the data
+     * fails its checks, this tree is left unchanged.
+     *
+     * @param in    the stream to read from
+     * @param codec reads each element
+     *
+     * @throws IOException if any, or if the data fails its integrity checks
+     */
+    public void read(DataInput in, ElementCodec<? extends E> codec) throws IOException
+    {
+        CheckedDataInput checked = new CheckedDataInput(in);
+        Node<E>[] nodes = readNodes(checked, codec);
+
+        if (in.readInt() != checked.getChecksum())
+        {
+            throw new IOException(DATA_INTEGRITY_FAILED);
+        }
+
+        rebuild(nodes);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The elements are read with {@link ObjectInput#readObject()}, from the
+     * block written by {@link #writeExternal(ObjectOutput) writeExternal()},
+     * once its checksum has been checked.
+     *
+     * @see #read(DataInput, ElementCodec)
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        policy = (BalancePolicy) in.readObject();
+        comparator = (Comparator<? super E>) in.readObject();
+        int length = in.readInt();
+
+        if (length < 0)
+        {
+            throw new IOException(DATA_INTEGRITY_FAILED);
+        }
+
+        byte[] block = new byte[length];
+        in.readFully(block);
+        CRC32 crc = new CRC32();
+        crc.update(block);
+
+        if (in.readInt() != (int) crc.getValue())
+        {
+            throw new IOException(DATA_INTEGRITY_FAILED);
+        }
+
+        try (ObjectInputStream elements = new ObjectInputStream(new ByteArrayInputStream(block)))
+        {
+            rebuild(readNodes(elements, new ObjectCodec<>()));
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public boolean remove(Object o)
@@ -335,25 +729,22 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
         return delete((E) o);
     }
 
-//    @Override
-//    public E remove(int index)
-//    {
-//        E rtn = null;
-//        Node<E> node = getNodeAt(index);
-//        Ref<Boolean> found = new Ref<>(false);
-//
-//        if (node != null)
-//        {
-//            deleteNode(node, node.Value, found, balanced);
-//            rtn = found.val ? node.Value : null;
-//        }
-//
-//        return rtn;
-//    }
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this tree, and {@code c}, are both {@linkplain AvlTree}s under the AVL policy, this is done by splitting
+     * and joining the two trees, in O(m log(n/m + 1)), where m is the size of the
+     * smaller one.
+     */
     @Override
     @SuppressWarnings("element-type-mismatch")
     public boolean removeAll(Collection<?> c)
     {
+        if (isJoinable(c))
+        {
+            return replaceRoot(differenceOf(root, rootOf(c), newNodeArray(2)));
+        }
+
         //
         // Original code copied from: java.util.AbstractCollection
         //
@@ -378,10 +769,81 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
         return modified;
     }
 
-    @Override
-    public boolean retainAll(Collection<?> c)
+    /**
+     * Removes the element at the specified position in this set.
+     * <p>
+     * The element is found by its rank, using the cached sub-tree sizes, so
+     * this runs in O(log n).
+     *
+     * @param index the index of the element to remove
+     *
+     * @return the element removed
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   (index {@literal < 0 || index >= } size())
+     */
+    public E removeAt(int index)
     {
-        //
+        return internalDelete(getNodeAt(index).Value, comparison);
+    }
+
+    /**
+     * Removes the elements from {@code fromIndex}, inclusive, to {@code toIndex},
+     * exclusive.
+     * <p>
+     * Under the {@link BalancePolicy#AVL AVL} policy, the tree is split at both ranks, and the outer parts
+     * joined back together, in O(log n), no matter how many elements are removed.
+     *
+     * @param fromIndex the index of the first element to remove
+     * @param toIndex   the index after the last element to remove
+     *
+     * @throws IndexOutOfBoundsException if {@code fromIndex < 0}, {@code toIndex > size()},
+     *                                   or {@code fromIndex > toIndex}
+     */
+    public void removeRange(int fromIndex, int toIndex)
+    {
+        if (fromIndex < 0 || toIndex > count || fromIndex > toIndex)
+        {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + ", toIndex: " + toIndex);
+        }
+
+        if (fromIndex == toIndex)
+        {
+            return;
+        }
+
+        if (policy == BalancePolicy.AVL)
+        {
+            Node<E>[] parts = newNodeArray(2);
+            splitAt(root, toIndex, parts);
+            Node<E> right = parts[1];
+            splitAt(parts[0], fromIndex, parts);
+            replaceRoot(join2(parts[0], right, parts));
+        } else
+        {
+            for (int i = fromIndex; i < toIndex; i++)
+            {
+                internalDelete(getNodeAt(fromIndex).Value, comparison);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * If this tree, and {@code c}, are both {@linkplain AvlTree}s under the AVL policy, this is done by splitting
+     * and joining the two trees, in O(m log(n/m + 1)), where m is the size of the
+     * smaller one.
+     */
+    @Override
+    public boolean retainAll(Collection<?> c)
+    {
+        if (isJoinable(c))
+        {
+            return replaceRoot(intersectionOf(root, rootOf(c), newNodeArray(2)));
+        }
+
+        //
         // Code copied from: java.util.AbstractCollection
         //
         Objects.requireNonNull(c);
@@ -408,6 +870,28 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
 //    {
 //        throw new UnsupportedOperationException(NOT_SUPPORTED); //To change body of generated methods, choose Tools | Templates.
 //    }
+    /**
+     * Sets whether the iterators, and spliterators, of this tree, and of its views,
+     * work on a snapshot of it.
+     * <p>
+     * By default they are fail-fast: any change made to the tree, other than through
+     * the iterator itself, makes the iterator throw a {@link ConcurrentModificationException}.
+     * <p>
+     * With snapshot iteration, each iterator takes an O(1) {@linkplain #snapshot() snapshot}
+     * when it is created, and returns the elements as they were then. The tree can be
+     * changed while the iterator is in use, and {@link Iterator#remove()} removes from
+     * the tree, not the snapshot. The cost falls on the writes: the first change to each
+     * Node after a snapshot copies it, so a long scan never holds up a writer.
+     * <p>
+     * Only iterators created after this is called are affected.
+     *
+     * @param snapshotIteration {@code true} for snapshot iteration, {@code false} for fail-fast
+     */
+    public void setSnapshotIteration(boolean snapshotIteration)
+    {
+        this.snapshotIteration = snapshotIteration;
+    }
+
     @Override
     public int size()
     {
@@ -422,13 +906,80 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
 //    {
 //        throw new UnsupportedOperationException(NOT_SUPPORTED); //To change body of generated methods, choose Tools | Templates.
 //    }
+    /**
+     * Take a snapshot of this tree, in O(1).
+     * <p>
+     * The snapshot is an independent tree, holding the same elements. Neither it,
+     * nor this tree, will see any later changes made to the other. So, for example,
+     * it can be iterated over without ever getting a {@link ConcurrentModificationException}
+     * from changes made to this tree.
+     *
+     * @return the snapshot
+     */
+    public AvlTree<E> snapshot()
+    {
+        AvlTree<E> rtn = new AvlTree<>(policy);
+        rtn.comparator = comparator;
+        rtn.stats = stats;
+        rtn.fingers = fingers;
+        rtn.snapshotIteration = snapshotIteration;
+        rtn.root = root;
+        rtn.count = count;
+
+        // From now on, all of the existing Nodes are shared.
+        owner = new Object();
+        return rtn;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The spliterator splits by position, in halves, so parallel streams over this
+     * tree are evenly balanced. Each half finds its first element in O(log n).
+     *
+     * @return a {@code Spliterator} over the elements in this tree
+     */
+    @Override
+    public Spliterator<E> spliterator()
+    {
+        return (snapshotIteration ? snapshot() : this).new ATSpliterator(0, count);
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement)
+    {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive)
+    {
+        if (compare(Objects.requireNonNull(fromElement, NO_NULLS), Objects.requireNonNull(toElement, NO_NULLS)) > 0)
+        {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+
+        return new BoundedSet<>(new Range(), fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement)
+    {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive)
+    {
+        return new BoundedSet<>(new Range(), Objects.requireNonNull(fromElement, NO_NULLS), inclusive, null, false, false);
+    }
+
     @Override
     public Object[] toArray()
     {
         Object[] rtn = new Object[count];
-        Ref<Integer> index = new Ref<>(0);
 
-        fillArray(root, rtn, index);
+        fillArray(rtn);
 
         return rtn;
     }
@@ -444,8 +995,7 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
                     a.getClass().getComponentType(), count);
         }
 
-        Ref<Integer> index = new Ref<>(0);
-        fillArray(root, a, index);
+        fillArray(a);
 
         if (a.length > count)
         {
@@ -459,43 +1009,104 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
     public String toString()
     {
         return "AvlTree{\n"
-               + "  balanced = " + balanced + ",\n"
+               + "  policy = " + policy + ",\n"
                + "  count = " + count + ",\n"
-               + "  lastIndexVersion = " + lastIndexVersion + ",\n"
                + "  version = " + version + "\n"
                + "\n"
-               + displayInOrder(root)
+               + displayInOrder()
                + "\n}";
     }
 
     /**
-     * Recursively search for the correct node to add the new node to.
+     * Returns a new tree, holding the elements that are in either this tree or
+     * the {@code other} tree.
+     * <p>
+     * Neither tree is changed. Where both trees hold equal elements, the one
+     * from this tree is kept. If both trees are under the AVL policy, this runs in
+     * O(m log(n/m + 1)), where m is the size of the smaller one.
      *
-     * @param current the current Node
-     * @param node    the node to add
-     * @param added   {@code true } if successful, {@code false } if already exists
+     * @param other the elements to add
      *
-     * @return replacement parent node
+     * @return the new tree
      */
-    private Node<E> addRecursive(Node<E> current, Node<E> node, Ref<Boolean> added)
+    public AvlTree<E> union(AvlTree<E> other)
     {
-        if (current == null)
-        {
-            current = node;
-            added.val = true;
+        AvlTree<E> rtn = snapshot();
+        rtn.addAll(other);
+        return rtn;
+    }
 
-        } else if (node.Value.compareTo(current.Value) < 0)
-        {
-            current.Left = addRecursive(current.Left, node, added);
+    /**
+     * Write the elements of this tree, in order, to the {@code out} stream.
+     * <p>
+     * The stream holds the number of elements, each element as written by the
+     * {@code codec}, and then a CRC-32 of all of those bytes. The checksum
+     * depends only on the encoded bytes, never on {@link Object#hashCode()},
+     * so it holds across JVMs.
+     *
+     * @param out   the stream to write to
+     * @param codec writes each element
+     *
+     * @throws IOException if any
+     */
+    public void write(DataOutput out, ElementCodec<? super E> codec) throws IOException
+    {
+        CheckedDataOutput checked = new CheckedDataOutput(out);
+        writeElements(checked, codec);
+        out.writeInt(checked.getChecksum());
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The elements, and the comparator, if any, are written with
+     * {@link ObjectOutput#writeObject(Object)}. So a comparator must be
+     * {@linkplain Serializable} for the tree to be.
+     * <p>
+     * The elements are serialized into a block of bytes, held in memory,
+     * which is written with its length and a CRC-32.
+     *
+     * @see #write(DataOutput, ElementCodec)
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        out.writeObject(policy);
+        out.writeObject(comparator);
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
 
-        } else if (node.Value.compareTo(current.Value) > 0)
+        try (ObjectOutputStream elements = new ObjectOutputStream(new CheckedOutputStream(block, crc)))
         {
-            current.Right = addRecursive(current.Right, node, added);
+            writeElements(elements, new ObjectCodec<>());
         }
 
-        if (balanced && added.val)
+        out.writeInt(block.size());
+        out.write(block.toByteArray());
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Link the {@code nodes}, from {@code lo} to {@code hi} inclusive, into a
+     * perfectly balanced sub-tree.
+     *
+     * @param nodes the Nodes, in ascending order
+     * @param lo    the index of the first Node
+     * @param hi    the index of the last Node
+     *
+     * @return the root Node of the sub-tree
+     */
+    private Node<E> buildBalanced(Node<E>[] nodes, int lo, int hi)
+    {
+        Node<E> current = null;
+
+        if (lo <= hi)
         {
-            current = balanceTree(current);
+            int mid = (lo + hi) >>> 1;
+            current = mutable(nodes[mid]);
+            current.Left = buildBalanced(nodes, lo, mid - 1);
+            current.Right = buildBalanced(nodes, mid + 1, hi);
+            updateNode(current);
         }
 
         return current;
@@ -526,142 +1137,141 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
     private Node<E> balanceTree(Node<E> current)
     {
         int bFactor = balanceFactor(current);
+        int tolerance = policy.getTolerance();
 
-        if (bFactor > 1)
+        if (bFactor > tolerance)
         {
-            current = balanceFactor(current.Left) > 0 ? rotateLeftLeft(current) : rotateLeftRight(current);
-        } else if (bFactor < -1)
+            boolean single = balanceFactor(current.Left) >= 0;
+            current = single ? rotateLeftLeft(current) : rotateLeftRight(current);
+
+            if (stats != null)
+            {
+                stats.recordRotation(true, single);
+            }
+        } else if (bFactor < -tolerance)
         {
-            current = balanceFactor(current.Right) > 0 ? rotateRightLeft(current) : rotateRightRight(current);
+            boolean single = balanceFactor(current.Right) <= 0;
+            current = single ? rotateRightRight(current) : rotateRightLeft(current);
+
+            if (stats != null)
+            {
+                stats.recordRotation(false, single);
+            }
         }
 
         return current;
     }
 
     /**
-     * Delete the Node containing the {@code target}.
+     * Compare two elements, by the {@code comparator} if there is one, or else
+     * by their natural ordering.
+     * <p>
+     * This is the only comparison made at each Node on the way down the tree.
      *
-     * @param current  the current Node
-     * @param target   the element to be deleted
-     * @param found    {@code true} if found
-     * @param balanced {@code true} if tree is to be kept balanced
+     * @param a the first element
+     * @param b the second element
      *
-     * @return replacement parent Node
+     * @return a negative number, zero, or a positive number, as {@code a} is less than,
+     *         equal to, or greater than {@code b}
      */
-    private Node<E> deleteNode(Node<E> current, E target, Ref<Boolean> found, boolean balanced)
+    private int compare(E a, E b)
     {
-        Node<E> parent;
+        return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+    }
 
-        if (current != null)
+    /**
+     * Remove the elements of the {@code other} sub-tree from the {@code current} sub-tree.
+     *
+     * @param current the sub-tree of this tree
+     * @param other   the sub-tree to remove
+     * @param parts   a scratch array for {@link #split(Node, Comparable, Node[]) split()}
+     *
+     * @return the root Node of the result
+     */
+    private Node<E> differenceOf(Node<E> current, Node<E> other, Node<E>[] parts)
+    {
+        if (current == null || other == null)
         {
-            //left subtree
-            if (target.compareTo(current.Value) < 0)
-            {
-                current.Left = deleteNode(current.Left, target, found, balanced);
-
-                if (balanced && balanceFactor(current) == -2)//here
-                {
-                    current = balanceFactor(current.Right) <= 0 ? rotateRightRight(current) : rotateRightLeft(current);
-                }
-            } //right subtree
-            else if (target.compareTo(current.Value) > 0)
-            {
-                current.Right = deleteNode(current.Right, target, found, balanced);
-
-                if (balanced && balanceFactor(current) == 2)
-                {
-                    current = balanceFactor(current.Left) >= 0 ? rotateLeftLeft(current) : rotateLeftRight(current);
-                }
-            } //if target is found
-            else
-            {
-                if (current.Right != null)
-                {
-                    //delete its in-order successor
-                    parent = current.Right;
-
-                    while (parent.Left != null)
-                    {
-                        parent = parent.Left;
-                    }
-
-                    current.Value = parent.Value;
-                    current.Right = deleteNode(current.Right, parent.Value, found, balanced);
-
-                    if (balanced && balanceFactor(current) == 2)//re-balancing
-                    {
-                        current = balanceFactor(current.Left) >= 0 ? rotateLeftLeft(current) : rotateLeftRight(current);
-                    }
-                } else
-                {   //if current.left != null
-                    current = current.Left;
-                }
-
-                found.val = true;
-            }
+            return current;
         }
 
-        return current;
+        boolean found = split(other, current.Value, parts) != null;
+        Node<E> otherLeft = parts[0];
+        Node<E> otherRight = parts[1];
+        Node<E> left = differenceOf(current.Left, otherLeft, parts);
+        Node<E> right = differenceOf(current.Right, otherRight, parts);
+
+        return found ? join2(left, right, parts) : join(left, current, right);
     }
 
     /**
      * Prepare string output of all items held, in order of sequencing.
      *
-     * @param current current Node to work down from
-     *
      * @return built string
      */
-    private String displayInOrder(Node<E> current)
+    private String displayInOrder()
     {
         StringBuilder rtn = new StringBuilder();
 
-        if (current != null)
+        for (Iterator<E> it = new ATItor(); it.hasNext();)
         {
-            rtn.append(displayInOrder(current.Left));
-            rtn.append(current.Value).append(", ");
-            rtn.append(displayInOrder(current.Right));
+            rtn.append(it.next()).append(", ");
         }
 
-        return rtn.length() > 0 ? rtn.toString() : "";
+        return rtn.toString();
     }
 
     /**
      * Fill the array in proper sequence.
      *
-     * @param current the current Node
-     * @param array   the array to file
-     * @param index   the current index into the array
+     * @param array the array to fill
      */
-    private void fillArray(Node<E> current, Object[] array, Ref<Integer> index)
+    private void fillArray(Object[] array)
     {
-        if (current != null)
+        NodeStack stack = new NodeStack();
+        Node<E> current = root;
+        int index = 0;
+
+        while (current != null || !stack.isEmpty())
         {
-            fillArray(current.Left, array, index);
-            array[index.val++] = current.Value;
-            fillArray(current.Right, array, index);
+            while (current != null)
+            {
+                stack.push(current);
+                current = current.Left;
+            }
+
+            current = stack.pop();
+            array[index++] = current.Value;
+            current = current.Right;
         }
     }
 
     /**
-     * Recursively search for the Node at the {@code index}.
+     * Find the Node holding the least element greater than, or equal to if
+     * {@code inclusive}, the {@code key}.
      *
-     * @param index   the index we are searching for
-     * @param current the current Node to check
+     * @param key       the key to search for
+     * @param inclusive {@code true} if a Node equal to the {@code key} will do
      *
      * @return the Node if found, otherwise {@code null}
      */
-    private Node<E> findIndexRecursive(int index, Node<E> current)
+    private Node<E> findCeiling(E key, boolean inclusive)
     {
+        Objects.requireNonNull(key, NO_NULLS);
+        Node<E> current = root;
         Node<E> rtn = null;
 
-        if (current != null)
+        while (current != null)
         {
-            if (index == current.Index)
+            int cmp = compare(key, current.Value);
+
+            if (cmp < 0 || (cmp == 0 && inclusive))
             {
                 rtn = current;
+                current = current.Left;
             } else
             {
-                rtn = findIndexRecursive(index, index < current.Index ? current.Left : current.Right);
+                current = current.Right;
             }
         }
 
@@ -669,26 +1279,51 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
     }
 
     /**
-     * Recursively find the {@code target} within the
-     * current Node's sub-tree.
+     * Find the Node holding the least element.
      *
-     * @param target  the target object being sought
-     * @param current the current Node
+     * @return the Node if found, otherwise {@code null}
+     */
+    private Node<E> findFirst()
+    {
+        Node<E> current = root;
+
+        if (current != null)
+        {
+            while (current.Left != null)
+            {
+                current = current.Left;
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Find the Node holding the greatest element less than, or equal to if
+     * {@code inclusive}, the {@code key}.
+     *
+     * @param key       the key to search for
+     * @param inclusive {@code true} if a Node equal to the {@code key} will do
      *
      * @return the Node if found, otherwise {@code null}
      */
-    private Node<E> findRecursive(E target, Node<E> current)
+    private Node<E> findFloor(E key, boolean inclusive)
     {
+        Objects.requireNonNull(key, NO_NULLS);
+        Node<E> current = root;
         Node<E> rtn = null;
 
-        if (current != null)
+        while (current != null)
         {
-            if (target.equals(current.Value))
+            int cmp = compare(key, current.Value);
+
+            if (cmp > 0 || (cmp == 0 && inclusive))
             {
                 rtn = current;
+                current = current.Right;
             } else
             {
-                rtn = findRecursive(target, target.compareTo(current.Value) < 0 ? current.Left : current.Right);
+                current = current.Left;
             }
         }
 
@@ -696,30 +1331,86 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
     }
 
     /**
-     * Get the height of the current Node.
-     *
-     * @param current the current Node
+     * Find the Node holding the greatest element.
      *
-     * @return the height
+     * @return the Node if found, otherwise {@code null}
      */
-    private int getHeight(Node<E> current)
+    private Node<E> findLast()
     {
-        // (BW) Changed to 'var'
-        int height = 0;
+        Node<E> current = root;
 
         if (current != null)
         {
-            int leftHeight = getHeight(current.Left);
-            int rightHeight = getHeight(current.Right);
-            int maxHeight = Math.max(leftHeight, rightHeight);
-            height = maxHeight + 1;
+            while (current.Right != null)
+            {
+                current = current.Right;
+            }
+        }
+
+        return current;
+    }
+
+    /**
+     * Empty the lookup cache slot for the {@code key}, so that it no longer
+     * keeps the Node just deleted alive.
+     *
+     * @param <K> the type of the key
+     * @param key the key deleted
+     */
+    private <K> void forget(K key)
+    {
+        Finger<E>[] cache = fingers;
+
+        if (cache != null)
+        {
+            Finger<E> finger = cache[slotOf(key, cache)];
+
+            if (finger != null)
+            {
+                finger.clear();
+            }
+        }
+    }
+
+    /**
+     * Empty every lookup cache slot.
+     * <p>
+     * Used when many elements may have been removed at once.
+     */
+    private void forgetAll()
+    {
+        Finger<E>[] cache = fingers;
+
+        if (cache != null)
+        {
+            for (Finger<E> finger : cache)
+            {
+                if (finger != null)
+                {
+                    finger.clear();
+                }
+            }
         }
+    }
 
-        return height;
+    /**
+     * Get the height of the current Node.
+     * <p>
+     * The height is cached in the Node, so this is an O(1) operation.
+     *
+     * @param current the current Node
+     *
+     * @return the height
+     */
+    private int getHeight(Node<E> current)
+    {
+        return current != null ? current.Height : 0;
     }
 
     /**
      * Gets the Node at {@code index}.
+     * <p>
+     * Uses the cached sub-tree sizes to select the Node in O(log n).
      *
      * @param index the index to search for
      *
@@ -732,366 +1423,2489 @@ public class AvlTree<E extends Comparable<E>> implements Set<E>
             throw new IndexOutOfBoundsException("index: " + index);
         }
 
-        reIndex();
-        return findIndexRecursive(index, root);
+        Node<E> current = root;
+
+        while (current != null)
+        {
+            int leftSize = getSize(current.Left);
+
+            if (index < leftSize)
+            {
+                current = current.Left;
+            } else if (index > leftSize)
+            {
+                index -= leftSize + 1;
+                current = current.Right;
+            } else
+            {
+                break;
+            }
+        }
+
+        return current;
     }
 
     /**
-     * Recursively index the nodes.
+     * Get the number of Nodes in the sub-tree rooted at the current Node.
      *
      * @param current the current Node
-     * @param index   the current index value
+     *
+     * @return the size
      */
-    private void indexRecursively(Node<E> current, Ref<Integer> index)
+    private int getSize(Node<E> current)
     {
-        if (current != null)
-        {
-            indexRecursively(current.Left, index);
-            current.Index = ++index.val;
-            indexRecursively(current.Right, index);
-        }
+        return current != null ? current.Size : 0;
     }
 
     /**
-     * This is used to add an {@code item } to the tree.
+     * This is used to add all of the items in {@code c} to the tree.
      * <p>
-     * The reason it has been pulled out of the public method, is to allow constructor access
-     * to it, as the public method is a virtual one.
-     * </p>
+     * Like {@link #internalAdd(Comparable, boolean) internalAdd()}, this is kept private
+     * to allow constructor access to it.
      *
-     * @param item the item to add
+     * @param c the items to add
      *
-     * @return {@code true } if successful, {@code false } otherwise
+     * @return {@code true } if any were added, {@code false } otherwise
      */
-    private boolean internalAdd(E item)
+    @SuppressWarnings("unchecked")
+    private boolean internalAddAll(Collection<? extends E> c)
     {
-        Ref<Boolean> rtn = new Ref<>(false);
-
-        Node<E> newItem = new Node<>(Objects.requireNonNull(item, NO_NULLS));
+        Object[] items = Objects.requireNonNull(c).toArray();
+        boolean rtn = false;
 
-        if (root == null)
+        if (isStrictlyAscending(items) && isWorthRebuilding(items.length))
         {
-            root = newItem;
-            rtn.val = true;
+            rtn = mergeSorted(items);
         } else
         {
-            root = addRecursive(root, newItem, rtn);
+            for (Object item : items)
+            {
+                rtn |= internalAdd((E) item, false) == null;
+            }
         }
 
-        if (rtn.val)
+        return rtn;
+    }
+
+    /**
+     * Are the {@code items} all in ascending order, with no duplicates?
+     *
+     * @param items the items to check
+     *
+     * @return result
+     */
+    @SuppressWarnings("unchecked")
+    private boolean isStrictlyAscending(Object[] items)
+    {
+        for (int i = 1; i < items.length; i++)
         {
-            count++;
-            version++;
+            E item = (E) Objects.requireNonNull(items[i], NO_NULLS);
+
+            if (compare(item, (E) Objects.requireNonNull(items[i - 1], NO_NULLS)) <= 0)
+            {
+                return false;
+            }
         }
 
-        return rtn.val;
+        return items.length > 0;
     }
 
     /**
-     * Rotate sub-tree Left-Left
+     * Would rebuilding the tree be cheaper than adding {@code added} items
+     * to it, one at a time?
      *
-     * @param parent the parent Node.
+     * @param added the number of items to be added
      *
-     * @return the pivot Node.
+     * @return result
      */
-    private Node<E> rotateLeftLeft(Node<E> parent)
+    private boolean isWorthRebuilding(int added)
     {
-        Node<E> pivot = parent.Left;
-        parent.Left = pivot.Right;
-        pivot.Right = parent;
-
-        return pivot;
+        int depth = Integer.SIZE - Integer.numberOfLeadingZeros(count);
+        return (long) added * depth >= count;
     }
 
     /**
-     * Rotate sub-tree Left-Right
+     * This is used to add an {@code item } to the tree.
+     * <p>
+     * The reason it has been pulled out of the public method, is to allow constructor access
+     * to it, as the public method is a virtual one.
+     * </p>
      *
-     * @param parent the parent Node.
+     * @param item    the item to add
+     * @param replace if {@code true}, an equal item already in the tree is replaced
      *
-     * @return the pivot Node.
+     * @return the equal item already in the tree, or {@code null} if {@code item} was added
      */
-    private Node<E> rotateLeftRight(Node<E> parent)
+    private E internalAdd(E item, boolean replace)
     {
-        Node<E> pivot = parent.Left;
-        parent.Left = rotateRightRight(pivot);
+        Objects.requireNonNull(item, NO_NULLS);
+        Node<E> current = root;
+        int depth = 0;
 
-        return rotateLeftLeft(parent);
+        while (current != null)
+        {
+            int cmp = compare(item, current.Value);
+
+            if (cmp == 0)
+            {
+                E rtn = current.Value;
+
+                if (replace)
+                {
+                    // Not a structural change, but the path is rebuilt anyway,
+                    // so that a Node shared with a snapshot is copied, not changed.
+                    recordStep(depth, current, true);
+                    root = rebuildPath(depth + 1, current.Left, depth, item);
+                    replacements++;
+                }
+
+                return rtn;
+            }
+
+            recordStep(depth++, current, cmp < 0);
+            current = cmp < 0 ? current.Left : current.Right;
+        }
+
+        root = rebuildPath(depth, new Node<>(item, owner), -1, null);
+        count++;
+        version++;
+        return null;
     }
 
     /**
-     * Rotate sub-tree Right-Left
+     * Delete the element matching the {@code key} from the tree.
      *
-     * @param parent the parent Node.
+     * @param <K>        the type of the key
+     * @param key        the key to search for
+     * @param comparator compares the {@code key} with an element
      *
-     * @return the pivot Node.
+     * @return the deleted element, or {@code null} if not found
      */
-    private Node<E> rotateRightLeft(Node<E> parent)
+    private <K> E internalDelete(K key, ToIntBiFunction<? super K, ? super E> comparator)
     {
-        Node<E> pivot = parent.Right;
-        parent.Right = rotateLeftLeft(pivot);
+        Node<E> current = root;
+        int depth = 0;
 
-        return rotateRightRight(parent);
+        while (current != null)
+        {
+            int cmp = comparator.applyAsInt(key, current.Value);
+
+            if (cmp == 0)
+            {
+                break;
+            }
+
+            recordStep(depth++, current, cmp < 0);
+            current = cmp < 0 ? current.Left : current.Right;
+        }
+
+        if (current == null)
+        {
+            return null;
+        }
+
+        Node<E> child;
+        int targetDepth = -1;
+        E replacement = null;
+
+        if (current.Right != null)
+        {
+            // Replace the target with its in-order successor,
+            // and remove the successor's Node instead.
+            targetDepth = depth;
+            recordStep(depth++, current, false);
+            Node<E> successor = current.Right;
+
+            while (successor.Left != null)
+            {
+                recordStep(depth++, successor, true);
+                successor = successor.Left;
+            }
+
+            replacement = successor.Value;
+            child = successor.Right;
+        } else
+        {
+            child = current.Left;
+        }
+
+        E rtn = current.Value;
+        root = rebuildPath(depth, child, targetDepth, replacement);
+        count--;
+        version++;
+        forget(key);
+        return rtn;
     }
 
     /**
-     * Rotate sub-tree Right-Right
+     * Keep only the elements of the {@code current} sub-tree that are also in the
+     * {@code other} sub-tree.
      *
-     * @param parent the parent Node.
+     * @param current the sub-tree of this tree
+     * @param other   the sub-tree to match
+     * @param parts   a scratch array for {@link #split(Node, Comparable, Node[]) split()}
      *
-     * @return the pivot Node.
+     * @return the root Node of the result
      */
-    private Node<E> rotateRightRight(Node<E> parent)
+    private Node<E> intersectionOf(Node<E> current, Node<E> other, Node<E>[] parts)
     {
-        Node<E> pivot = parent.Right;
-        parent.Right = pivot.Left;
-        pivot.Left = parent;
+        if (current == null || other == null)
+        {
+            return null;
+        }
 
-        return pivot;
+        boolean found = split(other, current.Value, parts) != null;
+        Node<E> otherLeft = parts[0];
+        Node<E> otherRight = parts[1];
+        Node<E> left = intersectionOf(current.Left, otherLeft, parts);
+        Node<E> right = intersectionOf(current.Right, otherRight, parts);
+
+        return found ? join(left, current, right) : join2(left, right, parts);
     }
 
     /**
-     * Finds the specified key.
+     * Can the set algebra with {@code c} be done by splitting and joining trees?
      *
-     * @param key the key to search for
+     * @param c the other collection
      *
-     * @return the {@linkplain Node}{@literal <T>} if found, or {@code null} otherwise
+     * @return {@code true} if both this tree, and {@code c}, are {@linkplain AvlTree}s,
+     *         under the {@link BalancePolicy#AVL AVL} policy, with the same ordering
      */
-    protected Node<E> find(E key)
+    private boolean isJoinable(Collection<?> c)
     {
-        Node<E> rtn = null;
+        return policy == BalancePolicy.AVL && Objects.requireNonNull(c) instanceof AvlTree
+               && ((AvlTree<?>) c).policy == BalancePolicy.AVL
+               && Objects.equals(comparator, ((AvlTree<?>) c).comparator);
+    }
+
+    /**
+     * Join the {@code left} sub-tree, the {@code middle} Node, and the {@code right}
+     * sub-tree, into a balanced sub-tree.
+     * <p>
+     * Every element of {@code left} must be less than the {@code middle} Node's,
+     * and every element of {@code right} greater. The {@code middle} Node's
+     * children are replaced. This runs in O(|h(left) - h(right)| + 1).
+     *
+     * @param left   the left sub-tree
+     * @param middle the middle Node
+     * @param right  the right sub-tree
+     *
+     * @return the root Node of the joined sub-tree
+     */
+    private Node<E> join(Node<E> left, Node<E> middle, Node<E> right)
+    {
+        Node<E> rtn;
 
-        if (key != null)
+        if (getHeight(left) > getHeight(right) + 1)
         {
-            var node = findRecursive(key, root);
-            rtn = node != null && node.Value.equals(key) ? node : null;
+            rtn = joinRight(left, middle, right);
+        } else if (getHeight(right) > getHeight(left) + 1)
+        {
+            rtn = joinLeft(left, middle, right);
         } else
         {
-            throw new NullPointerException(NO_NULLS);
+            rtn = mutable(middle);
+            rtn.Left = left;
+            rtn.Right = right;
+            updateNode(rtn);
         }
 
         return rtn;
     }
 
     /**
-     * Get the root Node.
+     * Join the {@code left} and {@code right} sub-trees, without a middle Node.
      *
-     * @return the root Node
+     * @param left  the left sub-tree
+     * @param right the right sub-tree
+     * @param parts a scratch array, to hold the last Node of {@code left}
+     *
+     * @return the root Node of the joined sub-tree
      */
-    protected Node<E> getRoot()
+    private Node<E> join2(Node<E> left, Node<E> right, Node<E>[] parts)
     {
-        return root;
+        Node<E> rtn = right;
+
+        if (left != null)
+        {
+            Node<E> rest = removeLast(left, parts);
+            rtn = join(rest, parts[0], right);
+        }
+
+        return rtn;
     }
 
     /**
-     * Set the root Node.
+     * Join down the Left spine of the taller {@code right} sub-tree.
      *
-     * @param root the replacement Node
+     * @param left   the left sub-tree
+     * @param middle the middle Node
+     * @param right  the right sub-tree
+     *
+     * @return the root Node of the joined sub-tree
      */
-    protected void setRoot(Node<E> root)
+    private Node<E> joinLeft(Node<E> left, Node<E> middle, Node<E> right)
     {
-        this.root = root;
+        Node<E> current = mutable(right);
+
+        if (getHeight(current.Left) <= getHeight(left) + 1)
+        {
+            Node<E> mid = mutable(middle);
+            mid.Left = left;
+            mid.Right = current.Left;
+            updateNode(mid);
+            current.Left = mid;
+        } else
+        {
+            current.Left = joinLeft(left, middle, current.Left);
+        }
+
+        updateNode(current);
+        return balanceTree(current);
     }
 
     /**
-     * Gets a value indicating whether [index is dirty].
+     * Join down the Right spine of the taller {@code left} sub-tree.
+     *
+     * @param left   the left sub-tree
+     * @param middle the middle Node
+     * @param right  the right sub-tree
      *
-     * @return {@code true} if the internal index is dirty.
+     * @return the root Node of the joined sub-tree
      */
-    protected boolean indexIsDirty()
+    private Node<E> joinRight(Node<E> left, Node<E> middle, Node<E> right)
     {
-        return lastIndexVersion != version;
+        Node<E> current = mutable(left);
+
+        if (getHeight(current.Right) <= getHeight(right) + 1)
+        {
+            Node<E> mid = mutable(middle);
+            mid.Left = current.Right;
+            mid.Right = right;
+            updateNode(mid);
+            current.Right = mid;
+        } else
+        {
+            current.Right = joinRight(current.Right, middle, right);
+        }
+
+        updateNode(current);
+        return balanceTree(current);
     }
 
     /**
-     * Re-index the tree.
+     * Get the value of the {@code node}.
+     *
+     * @param node the Node
+     *
+     * @return the value
+     *
+     * @throws NoSuchElementException if {@code node} is {@code null}
      */
-    protected void reIndex()
+    private E key(Node<E> node)
     {
-        Ref<Integer> index = new Ref<>(-1);
-
-        if (count > 0 && indexIsDirty())
+        if (node == null)
         {
-            indexRecursively(root, index);
-            lastIndexVersion = version;
-
-            if (index.val != count - 1)
-            {
-                throw new ReindexFailedException("Re-indexing has failed: count(" + count + "), index(" + index + ")");
-            }
+            throw new NoSuchElementException();
         }
+
+        return node.Value;
     }
 
     /**
-     * This is a descending iterator.
+     * Merge the {@code items} with the contents of this tree, and rebuild it
+     * perfectly balanced.
+     * <p>
+     * The existing Nodes are re-used.
      *
-     * @param <T> type of the elements
+     * @param items the items to add, in strictly ascending order
+     *
+     * @return {@code true } if any were added, {@code false } otherwise
      */
-    private class ATDescItor<T> extends ATItor<T>
+    @SuppressWarnings("unchecked")
+    private boolean mergeSorted(Object[] items)
     {
+        Node<E>[] existing = toNodeArray();
+        Node<E>[] merged = newNodeArray(count + items.length);
+        int i = 0;
+        int j = 0;
+        int k = 0;
 
-        /**
-         * Instantiates a new ATDescItor object.
-         */
-        public ATDescItor()
+        while (i < existing.length && j < items.length)
         {
-            super();
-            position = size();
+            int cmp = compare(existing[i].Value, (E) items[j]);
+
+            if (cmp < 0)
+            {
+                merged[k++] = existing[i++];
+            } else if (cmp > 0)
+            {
+                merged[k++] = new Node<>((E) items[j++], owner);
+            } else
+            {
+                merged[k++] = existing[i++];
+                j++;
+            }
         }
 
-        @Override
-        public boolean hasNext()
+        while (i < existing.length)
         {
-            return isExpectedVersion() && position > 0;
+            merged[k++] = existing[i++];
         }
 
-        @Override
-        @SuppressWarnings("unchecked")
-        public T next()
+        while (j < items.length)
         {
-            if (!isExpectedVersion())
-            {
-                throw new ConcurrentModificationException(CONCURRENT_MODIFICATION_EXCEPTION_STRING);
-            }
-
-            if (--position < 0)
-            {
-                throw new NoSuchElementException();
-            }
+            merged[k++] = new Node<>((E) items[j++], owner);
+        }
 
-            lastReturned = (T) get(position);
-            return lastReturned;
+        if (k == count)
+        {
+            return false;
         }
+
+        root = buildBalanced(merged, 0, k - 1);
+        count = k;
+        version++;
+        recordRebuild();
+        return true;
     }
 
     /**
-     * This is an ascending iterator.
+     * Get a version of the {@code node} that this tree may change in place.
+     *
+     * @param node the Node
      *
-     * @param <T> type of the elements
+     * @return the {@code node} itself if this tree owns it, otherwise a copy of it
      */
-    private class ATItor<T> implements Iterator<T>
+    private Node<E> mutable(Node<E> node)
     {
+        return node.Owner == owner ? node : new Node<>(node, owner);
+    }
 
-        /**
-         * String to display when there is a ConcurrentModificationException.
-         */
-        protected static final String CONCURRENT_MODIFICATION_EXCEPTION_STRING
-                                      = "Another thread has modified the data structure";
-
-        /**
-         * The expected version number.
-         */
-        protected int expectedVersion;
+    /**
+     * Locate the Node matching the {@code key}.
+     * <p>
+     * Tries the lookup cache, if enabled, before walking down from the root.
+     *
+     * @param <K>        the type of the key
+     * @param key        the key to search for
+     * @param comparator compares the {@code key} with an element
+     *
+     * @return the Node if found, or {@code null} otherwise
+     */
+    private <K> Node<E> locate(K key, ToIntBiFunction<? super K, ? super E> comparator)
+    {
+        Finger<E>[] cache = fingers;
+        int slot = 0;
 
-        /**
-         * The current position within the list.
-         */
-        protected int position;
+        if (cache != null)
+        {
+            slot = slotOf(key, cache);
+            Finger<E> finger = cache[slot];
+            Node<E> node = finger != null ? finger.read(cacheToken, version, replacements) : null;
 
-        /**
-         * The last entry returned.
-         */
-        protected T lastReturned;
+            if (node != null && comparator.applyAsInt(key, node.Value) == 0)
+            {
+                if (stats != null)
+                {
+                    stats.recordLookup(1);
+                    stats.recordCacheHit();
+                }
 
-        /**
-         * Instantiates a new ATItor object.
-         */
-        public ATItor()
-        {
-            position = -1;
-            expectedVersion = version;
-            lastReturned = null;
+                return node;
+            }
         }
 
-        @Override
-        public boolean hasNext()
-        {
-            return isExpectedVersion() && position < count - 1;
-        }
+        Node<E> current = root;
+        int comparisons = 0;
 
-        @Override
-        @SuppressWarnings("unchecked")
-        public T next()
+        while (current != null)
         {
-            if (!isExpectedVersion())
-            {
-                throw new ConcurrentModificationException(CONCURRENT_MODIFICATION_EXCEPTION_STRING);
-            }
+            int cmp = comparator.applyAsInt(key, current.Value);
+            comparisons++;
 
-            if (++position == count)
+            if (cmp == 0)
             {
-                throw new NoSuchElementException();
+                break;
             }
 
-            lastReturned = (T) get(position);
-            return lastReturned;
+            current = cmp < 0 ? current.Left : current.Right;
         }
 
-        @Override
-        @SuppressWarnings("unchecked")
-        public void remove()
+        if (cache != null && current != null)
         {
-            if (!isExpectedVersion())
-            {
-                throw new ConcurrentModificationException(CONCURRENT_MODIFICATION_EXCEPTION_STRING);
-            }
+            Finger<E> finger = cache[slot];
 
-            if (lastReturned == null)
+            if (finger == null)
             {
-                throw new IllegalStateException();
+                finger = new Finger<>();
+                cache[slot] = finger;
             }
 
-            delete((E) lastReturned);
-            lastReturned = null;
-            expectedVersion = version;
+            finger.write(cacheToken, version, replacements, current);
         }
 
-        /**
-         * Is the current version what we expect?
-         *
-         * @return result
-         */
-        protected boolean isExpectedVersion()
+        if (stats != null)
         {
-            return expectedVersion == version;
+            stats.recordLookup(comparisons);
+
+            if (cache != null)
+            {
+                stats.recordCacheMiss();
+            }
         }
+
+        return current;
     }
 
     /**
-     * Stores a value/item in the BST.
+     * Get a new, empty, array of lookup cache slots.
      *
-     * @param <T> element type
+     * @param length the length of the array
+     *
+     * @return the array
      */
-    protected final class Node<T>
+    @SuppressWarnings("unchecked")
+    private Finger<E>[] newFingerArray(int length)
     {
+        return (Finger<E>[]) new Finger<?>[length];
+    }
 
-        /**
-         * List index position of this Node.
-         */
-        public int Index;
-
-        /**
-         * The attached Left child Node.
-         */
-        public Node<T> Left;
+    /**
+     * Get a new, empty, array of Nodes.
+     *
+     * @param length the length of the array
+     *
+     * @return the array
+     */
+    @SuppressWarnings("unchecked")
+    private Node<E>[] newNodeArray(int length)
+    {
+        return (Node<E>[]) new Node<?>[length];
+    }
 
-        /**
-         * The attached Right child Node.
-         */
-        public Node<T> Right;
+    /**
+     * Get a new iterator, over the elements from {@code from}, up to {@code fence},
+     * on a snapshot of this tree if {@code snapshotIteration} is set.
+     *
+     * @param descending     {@code true} for a descending iterator
+     * @param from           the element to start from, or {@code null} for the first element
+     * @param fromInclusive  {@code true} if {@code from} is to be included
+     * @param fence          the element to stop at, or {@code null} for the last element
+     * @param fenceInclusive {@code true} if {@code fence} is to be included
+     *
+     * @return the iterator
+     */
+    private Iterator<E> newIterator(boolean descending, E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+    {
+        AvlTree<E> tree = snapshotIteration ? snapshot() : this;
+        Iterator<E> rtn = descending
+                          ? tree.new ATDescItor(from, fromInclusive, fence, fenceInclusive)
+                          : tree.new ATItor(from, fromInclusive, fence, fenceInclusive);
 
-        /**
-         * The value/item being stored in this Node.
-         */
-        public T Value;
+        return snapshotIteration ? new SnapshotItor(rtn) : rtn;
+    }
 
-        /**
-         * Initialize a new instance of the {@link Node Node&lt;E&gt;} class.
+    /**
+     * Count the elements less than, or equal to if {@code inclusive}, the {@code key}.
+     *
+     * @param key       the key to count up to
+     * @param inclusive {@code true} if an element equal to the {@code key} is to be counted
+     *
+     * @return the number of elements
+     */
+    private int rankOf(E key, boolean inclusive)
+    {
+        Node<E> current = root;
+        int rtn = 0;
+
+        while (current != null)
+        {
+            int cmp = compare(key, current.Value);
+
+            if (cmp < 0 || (cmp == 0 && !inclusive))
+            {
+                current = current.Left;
+            } else
+            {
+                rtn += getSize(current.Left) + 1;
+                current = current.Right;
+            }
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Read the number of elements, and then each element, from the {@code in}
+     * stream, into new Nodes.
+     *
+     * @param in    the stream to read from
+     * @param codec reads each element
+     *
+     * @return the Nodes, in ascending order
+     *
+     * @throws IOException if any, or if the elements are missing or out of order
+     */
+    private Node<E>[] readNodes(DataInput in, ElementCodec<? extends E> codec) throws IOException
+    {
+        int length = in.readInt();
+
+        if (length < 0)
+        {
+            throw new IOException(DATA_INTEGRITY_FAILED);
+        }
+
+        // Don't trust the length to size the array, until the data is checked.
+        Node<E>[] rtn = newNodeArray(Math.min(length, 1 << 16));
+        E previous = null;
+
+        for (int i = 0; i < length; i++)
+        {
+            E item = codec.read(in);
+
+            if (item == null || (previous != null && compare(previous, item) >= 0))
+            {
+                throw new IOException(DATA_INTEGRITY_FAILED);
+            }
+
+            if (i == rtn.length)
+            {
+                rtn = Arrays.copyOf(rtn, (int) Math.min((long) i * 2, length));
+            }
+
+            rtn[i] = new Node<>(item, owner);
+            previous = item;
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Replace the contents of this tree with the {@code nodes}.
+     *
+     * @param nodes the Nodes, in ascending order
+     */
+    private void rebuild(Node<E>[] nodes)
+    {
+        root = buildBalanced(nodes, 0, nodes.length - 1);
+        count = nodes.length;
+        version++;
+        recordRebuild();
+    }
+
+    /**
+     * Relink the Nodes in {@code path}, from the bottom up, after an add or
+     * delete.
+     * <p>
+     * The cached height and size of each Node is updated, and if this tree
+     * is balanced, each sub-tree is re-balanced as its policy requires. Any shared Node
+     * in {@code path} is copied.
+     *
+     * @param depth       the number of Nodes in {@code path}
+     * @param child       the replacement for the child of the last Node in {@code path}
+     * @param valueDepth  the index in {@code path} of the Node to get a new value, or {@code -1}
+     * @param value       the new value
+     *
+     * @return the replacement root Node
+     */
+    private Node<E> rebuildPath(int depth, Node<E> child, int valueDepth, E value)
+    {
+        for (int i = depth - 1; i >= 0; i--)
+        {
+            Node<E> current = mutable(path[i]);
+            path[i] = null;
+
+            if (i == valueDepth)
+            {
+                current.Value = value;
+            }
+
+            if (pathLeft[i])
+            {
+                current.Left = child;
+            } else
+            {
+                current.Right = child;
+            }
+
+            updateNode(current);
+            child = policy == BalancePolicy.NONE ? current : balanceTree(current);
+        }
+
+        return child;
+    }
+
+    /**
+     * Record a rebuild of the whole tree, if statistics are enabled.
+     */
+    private void recordRebuild()
+    {
+        if (stats != null)
+        {
+            stats.recordRebuild();
+        }
+    }
+
+    /**
+     * Record a step taken on the way down the tree.
+     *
+     * @param depth   the depth of the {@code current} Node
+     * @param current the current Node
+     * @param left    {@code true} if going to the Left child
+     */
+    private void recordStep(int depth, Node<E> current, boolean left)
+    {
+        if (path == null)
+        {
+            path = newNodeArray(32);
+            pathLeft = new boolean[32];
+        } else if (depth == path.length)
+        {
+            path = Arrays.copyOf(path, depth * 2);
+            pathLeft = Arrays.copyOf(pathLeft, depth * 2);
+        }
+
+        path[depth] = current;
+        pathLeft[depth] = left;
+    }
+
+    /**
+     * Remove the last Node from the {@code current} sub-tree.
+     *
+     * @param current the sub-tree
+     * @param parts   a scratch array, to hold the Node removed
+     *
+     * @return the root Node of the rest of the sub-tree
+     */
+    private Node<E> removeLast(Node<E> current, Node<E>[] parts)
+    {
+        if (current.Right == null)
+        {
+            parts[0] = current;
+            return current.Left;
+        }
+
+        Node<E> right = removeLast(current.Right, parts);
+        return join(current.Left, current, right);
+    }
+
+    /**
+     * Replace the whole tree, with the result of some set algebra.
+     *
+     * @param replacement the new root Node
+     *
+     * @return {@code true} if the number of elements changed
+     */
+    private boolean replaceRoot(Node<E> replacement)
+    {
+        int oldCount = count;
+        root = replacement;
+        count = getSize(replacement);
+
+        // Even if no element was added or removed, Nodes may have moved.
+        version++;
+
+        if (count < oldCount)
+        {
+            forgetAll();
+        }
+        return count != oldCount;
+    }
+
+    /**
+     * Get the root Node of a snapshot of the {@code c}.
+     * <p>
+     * The snapshot keeps this tree from changing any Node it shares with the
+     * {@code c}, even if the {@code c} is this tree.
+     *
+     * @param c a balanced {@linkplain AvlTree}
+     *
+     * @return the root Node
+     */
+    @SuppressWarnings("unchecked")
+    private Node<E> rootOf(Collection<?> c)
+    {
+        return ((AvlTree<E>) c).snapshot().root;
+    }
+
+    /**
+     * Rotate sub-tree Left-Left
+     * <p>
+     * The rotations expect the {@code parent} to be owned by this tree.
+     *
+     * @param parent the parent Node.
+     *
+     * @return the pivot Node.
+     */
+    private Node<E> rotateLeftLeft(Node<E> parent)
+    {
+        Node<E> pivot = mutable(parent.Left);
+        parent.Left = pivot.Right;
+        pivot.Right = parent;
+        rotations++;
+
+        updateNode(parent);
+        updateNode(pivot);
+
+        return pivot;
+    }
+
+    /**
+     * Rotate sub-tree Left-Right
+     *
+     * @param parent the parent Node.
+     *
+     * @return the pivot Node.
+     */
+    private Node<E> rotateLeftRight(Node<E> parent)
+    {
+        Node<E> pivot = mutable(parent.Left);
+        parent.Left = rotateRightRight(pivot);
+
+        return rotateLeftLeft(parent);
+    }
+
+    /**
+     * Rotate sub-tree Right-Left
+     *
+     * @param parent the parent Node.
+     *
+     * @return the pivot Node.
+     */
+    private Node<E> rotateRightLeft(Node<E> parent)
+    {
+        Node<E> pivot = mutable(parent.Right);
+        parent.Right = rotateLeftLeft(pivot);
+
+        return rotateRightRight(parent);
+    }
+
+    /**
+     * Rotate sub-tree Right-Right
+     *
+     * @param parent the parent Node.
+     *
+     * @return the pivot Node.
+     */
+    private Node<E> rotateRightRight(Node<E> parent)
+    {
+        Node<E> pivot = mutable(parent.Right);
+        parent.Right = pivot.Left;
+        pivot.Left = parent;
+        rotations++;
+
+        updateNode(parent);
+        updateNode(pivot);
+
+        return pivot;
+    }
+
+    /**
+     * Get the lookup cache slot for the {@code key}.
+     *
+     * @param <K>   the type of the key
+     * @param key   the key
+     * @param cache the lookup cache
+     *
+     * @return the index of the slot
+     */
+    private <K> int slotOf(K key, Finger<E>[] cache)
+    {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (cache.length - 1);
+    }
+
+    /**
+     * Split the {@code current} sub-tree, into the Nodes less than the {@code key},
+     * in {@code parts[0]}, and those greater than it, in {@code parts[1]}.
+     *
+     * @param current the sub-tree to split
+     * @param key     the key to split at
+     * @param parts   receives the two sub-trees
+     *
+     * @return the element equal to the {@code key}, or {@code null} if there isn't one
+     */
+    private E split(Node<E> current, E key, Node<E>[] parts)
+    {
+        E rtn = null;
+
+        if (current == null)
+        {
+            parts[0] = null;
+            parts[1] = null;
+        } else
+        {
+            int cmp = compare(key, current.Value);
+
+            if (cmp == 0)
+            {
+                parts[0] = current.Left;
+                parts[1] = current.Right;
+                rtn = current.Value;
+            } else if (cmp < 0)
+            {
+                rtn = split(current.Left, key, parts);
+                parts[1] = join(parts[1], current, current.Right);
+            } else
+            {
+                rtn = split(current.Right, key, parts);
+                parts[0] = join(current.Left, current, parts[0]);
+            }
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Split the {@code current} sub-tree by rank, into its first {@code index}
+     * Nodes, in {@code parts[0]}, and the rest, in {@code parts[1]}.
+     *
+     * @param current the sub-tree to split
+     * @param index   the number of Nodes to put in {@code parts[0]}
+     * @param parts   receives the two sub-trees
+     */
+    private void splitAt(Node<E> current, int index, Node<E>[] parts)
+    {
+        if (current == null)
+        {
+            parts[0] = null;
+            parts[1] = null;
+        } else
+        {
+            int leftSize = getSize(current.Left);
+
+            if (index <= leftSize)
+            {
+                splitAt(current.Left, index, parts);
+                parts[1] = join(parts[1], current, current.Right);
+            } else
+            {
+                splitAt(current.Right, index - leftSize - 1, parts);
+                parts[0] = join(current.Left, current, parts[0]);
+            }
+        }
+    }
+
+    /**
+     * Get a new array holding the Nodes of this tree in ascending order.
+     *
+     * @return the array
+     */
+    private Node<E>[] toNodeArray()
+    {
+        Node<E>[] rtn = newNodeArray(count);
+        NodeStack stack = new NodeStack();
+        Node<E> current = root;
+        int index = 0;
+
+        while (current != null || !stack.isEmpty())
+        {
+            while (current != null)
+            {
+                stack.push(current);
+                current = current.Left;
+            }
+
+            current = stack.pop();
+            rtn[index++] = current;
+            current = current.Right;
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Add the elements of the {@code other} sub-tree to the {@code current} sub-tree.
+     *
+     * @param current the sub-tree of this tree
+     * @param other   the sub-tree to add
+     * @param parts   a scratch array for {@link #split(Node, Comparable, Node[]) split()}
+     *
+     * @return the root Node of the result
+     */
+    private Node<E> unionOf(Node<E> current, Node<E> other, Node<E>[] parts)
+    {
+        if (current == null)
+        {
+            return other;
+        }
+
+        if (other == null)
+        {
+            return current;
+        }
+
+        split(other, current.Value, parts);
+        Node<E> otherLeft = parts[0];
+        Node<E> otherRight = parts[1];
+        Node<E> left = unionOf(current.Left, otherLeft, parts);
+        Node<E> right = unionOf(current.Right, otherRight, parts);
+
+        return join(left, current, right);
+    }
+
+    /**
+     * Recalculate the cached height and size of the {@code current} Node from
+     * those of its children.
+     *
+     * @param current the Node to update
+     */
+    private void updateNode(Node<E> current)
+    {
+        current.Height = Math.max(getHeight(current.Left), getHeight(current.Right)) + 1;
+        current.Size = getSize(current.Left) + getSize(current.Right) + 1;
+    }
+
+    /**
+     * Get the value of the {@code node}.
+     *
+     * @param node the Node
+     *
+     * @return the value, or {@code null} if {@code node} is {@code null}
+     */
+    private E valueOf(Node<E> node)
+    {
+        return node != null ? node.Value : null;
+    }
+
+    /**
+     * Write the number of elements, and then each element in order, to the
+     * {@code out} stream.
+     *
+     * @param out   the stream to write to
+     * @param codec writes each element
+     *
+     * @throws IOException if any
+     */
+    private void writeElements(DataOutput out, ElementCodec<? super E> codec) throws IOException
+    {
+        out.writeInt(count);
+
+        for (Iterator<E> it = new ATItor(); it.hasNext();)
+        {
+            codec.write(out, it.next());
+        }
+    }
+
+    /**
+     * Delete the element matching the {@code key} from the tree.
+     * <p>
+     * This allows an element to be found by just part of it, such as the key of a map
+     * entry, without having to build a whole element to search for.
+     *
+     * @param <K>        the type of the key
+     * @param key        the key to search for
+     * @param comparator compares the {@code key} with an element, consistent with
+     *                   the natural ordering of the elements
+     *
+     * @return the deleted element, or {@code null} if not found
+     */
+    protected <K> E extract(K key, ToIntBiFunction<? super K, ? super E> comparator)
+    {
+        return internalDelete(Objects.requireNonNull(key, NO_NULLS), comparator);
+    }
+
+    /**
+     * Finds the specified key.
+     *
+     * @param key the key to search for
+     *
+     * @return the {@linkplain Node}{@literal <T>} if found, or {@code null} otherwise
+     */
+    protected Node<E> find(E key)
+    {
+        return locate(Objects.requireNonNull(key, NO_NULLS), comparison);
+    }
+
+    /**
+     * Get the number of Nodes at each depth of the tree.
+     *
+     * @return the number of Nodes, indexed by depth, with the root at depth {@code 0}
+     */
+    protected long[] getDepthHistogram()
+    {
+        long[] rtn = new long[getHeight(root)];
+        // The stack holds the path from the root, so its size gives the depth.
+        NodeStack stack = new NodeStack();
+        Node<E> previous = null;
+
+        if (root != null)
+        {
+            stack.push(root);
+        }
+
+        while (!stack.isEmpty())
+        {
+            Node<E> current = stack.peek();
+
+            if (previous == null || previous.Left == current || previous.Right == current)
+            {
+                // Down to a new Node.
+                rtn[stack.size() - 1]++;
+
+                if (current.Left != null)
+                {
+                    stack.push(current.Left);
+                } else if (current.Right != null)
+                {
+                    stack.push(current.Right);
+                } else
+                {
+                    stack.pop();
+                }
+            } else if (previous == current.Left && current.Right != null)
+            {
+                stack.push(current.Right);
+            } else
+            {
+                stack.pop();
+            }
+
+            previous = current;
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Get the height of the tree.
+     *
+     * @return the height, or {@code 0} if empty
+     */
+    protected int getHeight()
+    {
+        return getHeight(root);
+    }
+
+    /**
+     * Get the root Node.
+     *
+     * @return the root Node
+     */
+    protected Node<E> getRoot()
+    {
+        return root;
+    }
+
+    /**
+     * Get the number of rotations made by this tree, since it was created.
+     *
+     * @return the number of rotations
+     */
+    protected long getRotationCount()
+    {
+        return rotations;
+    }
+
+    /**
+     * Add the {@code e} to the tree, replacing any equal element already in it.
+     *
+     * @param e the element to add
+     *
+     * @return the element replaced, or {@code null} if there was none
+     */
+    protected E replace(E e)
+    {
+        return internalAdd(e, true);
+    }
+
+    /**
+     * Search for the element matching the {@code key}.
+     * <p>
+     * Like {@link #extract(Object, ToIntBiFunction) extract()}, this only needs part of an element.
+     *
+     * @param <K>        the type of the key
+     * @param key        the key to search for
+     * @param comparator compares the {@code key} with an element, consistent with
+     *                   the natural ordering of the elements
+     *
+     * @return the element, or {@code null} if not found
+     */
+    protected <K> E search(K key, ToIntBiFunction<? super K, ? super E> comparator)
+    {
+        Node<E> rtn = locate(Objects.requireNonNull(key, NO_NULLS), comparator);
+        return rtn != null ? rtn.Value : null;
+    }
+
+    /**
+     * Set the root Node.
+     *
+     * @param root the replacement Node
+     */
+    protected void setRoot(Node<E> root)
+    {
+        this.root = root;
+
+        // The lookup cache no longer checks the root, so this must count as a change.
+        version++;
+        forgetAll();
+    }
+
+    /**
+     * This is a descending iterator.
+     */
+    private class ATDescItor extends ATItor
+    {
+
+        /**
+         * Instantiates a new ATDescItor object.
+         */
+        public ATDescItor()
+        {
+            super();
+        }
+
+        /**
+         * Instantiates a new ATDescItor object, over the elements from
+         * {@code from}, down to {@code fence}.
+         *
+         * @param from           the element to start from, or {@code null} for the last element
+         * @param fromInclusive  {@code true} if {@code from} is to be included
+         * @param fence          the element to stop at, or {@code null} for the first element
+         * @param fenceInclusive {@code true} if {@code fence} is to be included
+         */
+        public ATDescItor(E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+        {
+            super(from, fromInclusive, fence, fenceInclusive);
+        }
+
+        @Override
+        protected int compareToFence(E value)
+        {
+            return compare(fence, value);
+        }
+
+        @Override
+        protected void pushPath(Node<E> current)
+        {
+            while (current != null)
+            {
+                stack.push(current);
+                current = current.Right;
+            }
+        }
+
+        @Override
+        protected void pushSuccessors(Node<E> current)
+        {
+            pushPath(current.Left);
+        }
+
+        @Override
+        protected void seek(E key, boolean inclusive)
+        {
+            Node<E> current = root;
+            stack.clear();
+
+            while (current != null)
+            {
+                int cmp = compare(key, current.Value);
+
+                if (cmp > 0 || (cmp == 0 && inclusive))
+                {
+                    stack.push(current);
+                    current = current.Right;
+                } else
+                {
+                    current = current.Left;
+                }
+            }
+        }
+    }
+
+    /**
+     * This is an ascending iterator.
+     * <p>
+     * The Nodes still to be visited are held on a stack, rather than being
+     * looked up by their position. Each call to {@link #next()} is therefore
+     * O(1) amortized.
+     */
+    private class ATItor implements Iterator<E>
+    {
+
+        /**
+         * String to display when there is a ConcurrentModificationException.
+         */
+        protected static final String CONCURRENT_MODIFICATION_EXCEPTION_STRING
+                                      = "Another thread has modified the data structure";
+
+        /**
+         * The expected version number.
+         */
+        protected int expectedVersion;
+
+        /**
+         * The element to stop at, or {@code null} to run to the end of the tree.
+         */
+        protected final E fence;
+
+        /**
+         * {@code true} if the {@code fence} is to be returned.
+         */
+        protected final boolean fenceInclusive;
+
+        /**
+         * The last entry returned.
+         */
+        protected E lastReturned;
+
+        /**
+         * The Nodes yet to be returned, with the next one on top.
+         */
+        protected final NodeStack stack;
+
+        /**
+         * Instantiates a new ATItor object.
+         */
+        public ATItor()
+        {
+            this(null, false, null, false);
+        }
+
+        /**
+         * Instantiates a new ATItor object, over the elements from
+         * {@code from}, up to {@code fence}.
+         *
+         * @param from           the element to start from, or {@code null} for the first element
+         * @param fromInclusive  {@code true} if {@code from} is to be included
+         * @param fence          the element to stop at, or {@code null} for the last element
+         * @param fenceInclusive {@code true} if {@code fence} is to be included
+         */
+        public ATItor(E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+        {
+            expectedVersion = version;
+            lastReturned = null;
+            stack = new NodeStack();
+            this.fence = fence;
+            this.fenceInclusive = fenceInclusive;
+
+            if (from == null)
+            {
+                pushPath(root);
+            } else
+            {
+                seek(from, fromInclusive);
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return isExpectedVersion() && !stack.isEmpty() && !isPastFence(stack.peek().Value);
+        }
+
+        @Override
+        public E next()
+        {
+            if (!isExpectedVersion())
+            {
+                throw new ConcurrentModificationException(CONCURRENT_MODIFICATION_EXCEPTION_STRING);
+            }
+
+            if (stack.isEmpty() || isPastFence(stack.peek().Value))
+            {
+                throw new NoSuchElementException();
+            }
+
+            Node<E> current = stack.pop();
+            pushSuccessors(current);
+            lastReturned = current.Value;
+            return lastReturned;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (!isExpectedVersion())
+            {
+                throw new ConcurrentModificationException(CONCURRENT_MODIFICATION_EXCEPTION_STRING);
+            }
+
+            if (lastReturned == null)
+            {
+                throw new IllegalStateException();
+            }
+
+            delete(lastReturned);
+
+            // The rebalancing may have moved any of the Nodes on the stack,
+            // so rebuild it from the element just removed.
+            seek(lastReturned, false);
+            lastReturned = null;
+            expectedVersion = version;
+        }
+
+        /**
+         * Compare the {@code value} with the {@code fence}, in the direction
+         * of travel.
+         *
+         * @param value the value to compare
+         *
+         * @return a positive number if the {@code value} comes after the {@code fence}
+         */
+        protected int compareToFence(E value)
+        {
+            return compare(value, fence);
+        }
+
+        /**
+         * Is the {@code value} beyond the {@code fence}?
+         *
+         * @param value the value to check
+         *
+         * @return result
+         */
+        protected boolean isPastFence(E value)
+        {
+            if (fence == null)
+            {
+                return false;
+            }
+
+            int cmp = compareToFence(value);
+            return cmp > 0 || (cmp == 0 && !fenceInclusive);
+        }
+
+        /**
+         * Is the current version what we expect?
+         *
+         * @return result
+         */
+        protected boolean isExpectedVersion()
+        {
+            return expectedVersion == version;
+        }
+
+        /**
+         * Push the {@code current} Node, and the path down to the first Node
+         * of its sub-tree, onto the stack.
+         *
+         * @param current the current Node
+         */
+        protected void pushPath(Node<E> current)
+        {
+            while (current != null)
+            {
+                stack.push(current);
+                current = current.Left;
+            }
+        }
+
+        /**
+         * Push the Nodes that follow the {@code current} Node, within its own
+         * sub-tree, onto the stack.
+         *
+         * @param current the Node just returned
+         */
+        protected void pushSuccessors(Node<E> current)
+        {
+            pushPath(current.Right);
+        }
+
+        /**
+         * Rebuild the stack, so that the next Node returned will be the
+         * first one at, or if not {@code inclusive} past, the {@code key}.
+         *
+         * @param key       the key to seek to
+         * @param inclusive {@code true} if the {@code key} itself may be returned next
+         */
+        protected void seek(E key, boolean inclusive)
+        {
+            Node<E> current = root;
+            stack.clear();
+
+            while (current != null)
+            {
+                int cmp = compare(key, current.Value);
+
+                if (cmp < 0 || (cmp == 0 && inclusive))
+                {
+                    stack.push(current);
+                    current = current.Left;
+                } else
+                {
+                    current = current.Right;
+                }
+            }
+        }
+    }
+
+    /**
+     * A spliterator over the elements in a range of positions in the tree.
+     * <p>
+     * Splitting just halves the range, so it does not need to touch the tree.
+     * The stack is only built, from the root down to the first position,
+     * once traversal starts.
+     */
+    private class ATSpliterator implements Spliterator<E>
+    {
+
+        /**
+         * The expected version number.
+         */
+        private final int expectedVersion;
+
+        /**
+         * The position after the last element to be returned.
+         */
+        private final int fence;
+
+        /**
+         * The position of the next element to be returned.
+         */
+        private int index;
+
+        /**
+         * The Nodes yet to be returned, with the next one on top.
+         * <p>
+         * {@code null} until traversal starts.
+         */
+        private NodeStack stack;
+
+        /**
+         * Instantiates a new ATSpliterator object, over the elements from
+         * position {@code index}, up to position {@code fence}.
+         *
+         * @param index the position of the first element
+         * @param fence the position after the last element
+         */
+        public ATSpliterator(int index, int fence)
+        {
+            expectedVersion = version;
+            this.index = index;
+            this.fence = fence;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.ORDERED
+                   | Spliterator.SIZED | Spliterator.SORTED | Spliterator.SUBSIZED;
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return fence - index;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action)
+        {
+            Objects.requireNonNull(action);
+
+            while (index < fence)
+            {
+                action.accept(nextNode().Value);
+            }
+
+            checkVersion();
+        }
+
+        @Override
+        public Comparator<? super E> getComparator()
+        {
+            return comparator;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action)
+        {
+            Objects.requireNonNull(action);
+            boolean rtn = false;
+
+            if (index < fence)
+            {
+                checkVersion();
+                action.accept(nextNode().Value);
+                rtn = true;
+            }
+
+            return rtn;
+        }
+
+        @Override
+        public Spliterator<E> trySplit()
+        {
+            int mid = (index + fence) >>> 1;
+            Spliterator<E> rtn = null;
+
+            if (stack == null && mid > index)
+            {
+                rtn = new ATSpliterator(index, mid);
+                index = mid;
+            }
+
+            return rtn;
+        }
+
+        /**
+         * Check that the tree has not been modified.
+         *
+         * @throws ConcurrentModificationException if it has
+         */
+        private void checkVersion()
+        {
+            if (expectedVersion != version)
+            {
+                throw new ConcurrentModificationException(ATItor.CONCURRENT_MODIFICATION_EXCEPTION_STRING);
+            }
+        }
+
+        /**
+         * Get the next Node, and step past it.
+         *
+         * @return the next Node
+         */
+        private Node<E> nextNode()
+        {
+            if (stack == null)
+            {
+                seek(index);
+            }
+
+            Node<E> current = stack.pop();
+            index++;
+
+            for (Node<E> next = current.Right; next != null; next = next.Left)
+            {
+                stack.push(next);
+            }
+
+            return current;
+        }
+
+        /**
+         * Build the stack, so that the next Node returned will be the one
+         * at {@code position}.
+         *
+         * @param position the position to seek to
+         */
+        private void seek(int position)
+        {
+            Node<E> current = root;
+            stack = new NodeStack();
+
+            while (current != null)
+            {
+                int leftSize = getSize(current.Left);
+
+                if (position > leftSize)
+                {
+                    position -= leftSize + 1;
+                    current = current.Right;
+                } else
+                {
+                    stack.push(current);
+                    current = position < leftSize ? current.Left : null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads from another {@linkplain DataInput}, keeping a CRC-32 of the bytes
+     * read.
+     * <p>
+     * Each value read is encoded again, as {@linkplain DataOutput} defines, to
+     * update the checksum. So the checksum matches that of a
+     * {@linkplain CheckedDataOutput} that wrote the same values.
+     */
+    private static final class CheckedDataInput implements DataInput
+    {
+
+        /**
+         * The checksum of the bytes read.
+         */
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * The stream to read from.
+         */
+        private final DataInput in;
+
+        /**
+         * Encodes each value read, into the {@code crc}.
+         */
+        private final DataOutputStream mirror
+                = new DataOutputStream(new CheckedOutputStream(OutputStream.nullOutputStream(), crc));
+
+        /**
+         * Create a new instance of CheckedDataInput.
+         *
+         * @param in the stream to read from
+         */
+        public CheckedDataInput(DataInput in)
+        {
+            this.in = in;
+        }
+
+        /**
+         * Get the checksum of the bytes read so far.
+         *
+         * @return the CRC-32
+         */
+        public int getChecksum()
+        {
+            return (int) crc.getValue();
+        }
+
+        @Override
+        public boolean readBoolean() throws IOException
+        {
+            boolean rtn = in.readBoolean();
+            mirror.writeBoolean(rtn);
+            return rtn;
+        }
+
+        @Override
+        public byte readByte() throws IOException
+        {
+            byte rtn = in.readByte();
+            mirror.writeByte(rtn);
+            return rtn;
+        }
+
+        @Override
+        public char readChar() throws IOException
+        {
+            char rtn = in.readChar();
+            mirror.writeChar(rtn);
+            return rtn;
+        }
+
+        @Override
+        public double readDouble() throws IOException
+        {
+            double rtn = in.readDouble();
+            mirror.writeDouble(rtn);
+            return rtn;
+        }
+
+        @Override
+        public float readFloat() throws IOException
+        {
+            float rtn = in.readFloat();
+            mirror.writeFloat(rtn);
+            return rtn;
+        }
+
+        @Override
+        public void readFully(byte[] b) throws IOException
+        {
+            in.readFully(b);
+            mirror.write(b);
+        }
+
+        @Override
+        public void readFully(byte[] b, int off, int len) throws IOException
+        {
+            in.readFully(b, off, len);
+            mirror.write(b, off, len);
+        }
+
+        @Override
+        public int readInt() throws IOException
+        {
+            int rtn = in.readInt();
+            mirror.writeInt(rtn);
+            return rtn;
+        }
+
+        /**
+         * Not supported, as the line terminator read cannot be known.
+         *
+         * @return never
+         *
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        public String readLine()
+        {
+            throw new UnsupportedOperationException("readLine() is not supported.");
+        }
+
+        @Override
+        public long readLong() throws IOException
+        {
+            long rtn = in.readLong();
+            mirror.writeLong(rtn);
+            return rtn;
+        }
+
+        @Override
+        public short readShort() throws IOException
+        {
+            short rtn = in.readShort();
+            mirror.writeShort(rtn);
+            return rtn;
+        }
+
+        @Override
+        public String readUTF() throws IOException
+        {
+            String rtn = in.readUTF();
+            mirror.writeUTF(rtn);
+            return rtn;
+        }
+
+        @Override
+        public int readUnsignedByte() throws IOException
+        {
+            int rtn = in.readUnsignedByte();
+            mirror.writeByte(rtn);
+            return rtn;
+        }
+
+        @Override
+        public int readUnsignedShort() throws IOException
+        {
+            int rtn = in.readUnsignedShort();
+            mirror.writeShort(rtn);
+            return rtn;
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * The bytes are read, one at a time, so that they are in the checksum.
+         */
+        @Override
+        public int skipBytes(int n) throws IOException
+        {
+            int rtn = 0;
+
+            try
+            {
+                for (; rtn < n; rtn++)
+                {
+                    mirror.writeByte(in.readUnsignedByte());
+                }
+            } catch (EOFException ex)
+            {
+                // Fewer bytes skipped.
+            }
+
+            return rtn;
+        }
+    }
+
+    /**
+     * Writes to another {@linkplain DataOutput}, keeping a CRC-32 of the bytes
+     * written.
+     */
+    private static final class CheckedDataOutput implements DataOutput
+    {
+
+        /**
+         * The checksum of the bytes written.
+         */
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * Encodes each value written, into the {@code crc}.
+         */
+        private final DataOutputStream mirror
+                = new DataOutputStream(new CheckedOutputStream(OutputStream.nullOutputStream(), crc));
+
+        /**
+         * The stream to write to.
+         */
+        private final DataOutput out;
+
+        /**
+         * Create a new instance of CheckedDataOutput.
+         *
+         * @param out the stream to write to
+         */
+        public CheckedDataOutput(DataOutput out)
+        {
+            this.out = out;
+        }
+
+        /**
+         * Get the checksum of the bytes written so far.
+         *
+         * @return the CRC-32
+         */
+        public int getChecksum()
+        {
+            return (int) crc.getValue();
+        }
+
+        @Override
+        public void write(int b) throws IOException
+        {
+            out.write(b);
+            mirror.write(b);
+        }
+
+        @Override
+        public void write(byte[] b) throws IOException
+        {
+            out.write(b);
+            mirror.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException
+        {
+            out.write(b, off, len);
+            mirror.write(b, off, len);
+        }
+
+        @Override
+        public void writeBoolean(boolean v) throws IOException
+        {
+            out.writeBoolean(v);
+            mirror.writeBoolean(v);
+        }
+
+        @Override
+        public void writeByte(int v) throws IOException
+        {
+            out.writeByte(v);
+            mirror.writeByte(v);
+        }
+
+        @Override
+        public void writeBytes(String s) throws IOException
+        {
+            out.writeBytes(s);
+            mirror.writeBytes(s);
+        }
+
+        @Override
+        public void writeChar(int v) throws IOException
+        {
+            out.writeChar(v);
+            mirror.writeChar(v);
+        }
+
+        @Override
+        public void writeChars(String s) throws IOException
+        {
+            out.writeChars(s);
+            mirror.writeChars(s);
+        }
+
+        @Override
+        public void writeDouble(double v) throws IOException
+        {
+            out.writeDouble(v);
+            mirror.writeDouble(v);
+        }
+
+        @Override
+        public void writeFloat(float v) throws IOException
+        {
+            out.writeFloat(v);
+            mirror.writeFloat(v);
+        }
+
+        @Override
+        public void writeInt(int v) throws IOException
+        {
+            out.writeInt(v);
+            mirror.writeInt(v);
+        }
+
+        @Override
+        public void writeLong(long v) throws IOException
+        {
+            out.writeLong(v);
+            mirror.writeLong(v);
+        }
+
+        @Override
+        public void writeShort(int v) throws IOException
+        {
+            out.writeShort(v);
+            mirror.writeShort(v);
+        }
+
+        @Override
+        public void writeUTF(String s) throws IOException
+        {
+            out.writeUTF(s);
+            mirror.writeUTF(s);
+        }
+    }
+
+    /**
+     * A lookup cache slot: a Node, and the state of the tree it was found in.
+     * <p>
+     * Each slot is reused, rather than replaced, on every miss. It holds no
+     * reference to the tree, only its {@code cacheToken}, so an old version of
+     * the tree is not kept alive by the cache.
+     * <p>
+     * Snapshots share the cache, and are read without locking, so a slot is
+     * guarded by a sequence number. It is odd while the slot is being written,
+     * and a read only counts if the number was even, and unchanged, throughout.
+     * A writer that finds the slot busy just leaves it.
+     *
+     * @param <T> element type
+     */
+    private static final class Finger<T>
+    {
+
+        /**
+         * Access to {@code sequence}, for compare-and-set.
+         */
+        private static final VarHandle SEQUENCE;
+
+        static
+        {
+            try
+            {
+                SEQUENCE = MethodHandles.lookup().findVarHandle(Finger.class, "sequence", int.class);
+            } catch (ReflectiveOperationException ex)
+            {
+                throw new ExceptionInInitializerError(ex);
+            }
+        }
+
+        /**
+         * The Node found.
+         */
+        private Node<T> node;
+
+        /**
+         * The {@code replacements} of the tree, when the Node was found.
+         */
+        private int replacements;
+
+        /**
+         * Odd while this slot is being written. Zero until it is first written.
+         */
+        private volatile int sequence;
+
+        /**
+         * The {@code cacheToken} of the tree the Node was found in.
+         */
+        private Object token;
+
+        /**
+         * The {@code version} of the tree, when the Node was found.
+         */
+        private int version;
+
+        /**
+         * Instantiates a new, empty, Finger object.
+         */
+        public Finger()
+        {
+        }
+
+        /**
+         * Empty this slot, so that it no longer keeps its Node alive.
+         * <p>
+         * Unlike {@link #write(Object, int, int, Node) write()}, this waits for
+         * any other writer to finish, so that it is never skipped.
+         */
+        public void clear()
+        {
+            while (!write(null, 0, 0, null))
+            {
+                Thread.onSpinWait();
+            }
+        }
+
+        /**
+         * Get the Node, if this slot was written by the tree with the {@code token},
+         * and the tree has not changed since.
+         *
+         * @param token        the {@code cacheToken} of the tree
+         * @param version      the {@code version} of the tree
+         * @param replacements the {@code replacements} of the tree
+         *
+         * @return the Node, or {@code null} if there is no match
+         */
+        public Node<T> read(Object token, int version, int replacements)
+        {
+            int before = sequence;
+
+            if (before == 0 || (before & 1) != 0)
+            {
+                return null;
+            }
+
+            Node<T> rtn = this.node;
+            boolean match = this.token == token && this.version == version && this.replacements == replacements;
+
+            // Keep the reads above from moving past the re-check of the sequence.
+            VarHandle.acquireFence();
+            return match && sequence == before ? rtn : null;
+        }
+
+        /**
+         * Fill this slot, unless another thread is already writing it.
+         *
+         * @param token        the {@code cacheToken} of the tree
+         * @param version      the {@code version} of the tree
+         * @param replacements the {@code replacements} of the tree
+         * @param node         the Node found
+         *
+         * @return {@code true} if the slot was written
+         */
+        public boolean write(Object token, int version, int replacements, Node<T> node)
+        {
+            int before = sequence;
+            boolean rtn = (before & 1) == 0 && SEQUENCE.compareAndSet(this, before, before + 1);
+
+            if (rtn)
+            {
+                this.token = token;
+                this.version = version;
+                this.replacements = replacements;
+                this.node = node;
+                sequence = before + 2;
+            }
+
+            return rtn;
+        }
+    }
+
+    /**
+     * A stack of Nodes, for walking the tree in order.
+     * <p>
+     * Unlike an {@linkplain ArrayDeque}, it is sized from the height of the tree
+     * when it is created, so that pushing never has to grow it while the tree is
+     * unchanged.
+     */
+    private class NodeStack
+    {
+
+        /**
+         * The Nodes, with the top one at {@code size - 1}.
+         */
+        private Node<E>[] nodes;
+
+        /**
+         * The number of Nodes on the stack.
+         */
+        private int size;
+
+        /**
+         * Instantiates a new NodeStack object, deep enough for the current tree.
+         */
+        public NodeStack()
+        {
+            nodes = newNodeArray(getHeight(root) + 1);
+        }
+
+        /**
+         * Remove all of the Nodes.
+         */
+        public void clear()
+        {
+            Arrays.fill(nodes, 0, size, null);
+            size = 0;
+        }
+
+        /**
+         * Is the stack empty?
+         *
+         * @return result
+         */
+        public boolean isEmpty()
+        {
+            return size == 0;
+        }
+
+        /**
+         * Get the top Node, without removing it.
+         *
+         * @return the top Node
+         */
+        public Node<E> peek()
+        {
+            return nodes[size - 1];
+        }
+
+        /**
+         * Remove the top Node.
+         *
+         * @return the Node removed
+         */
+        public Node<E> pop()
+        {
+            Node<E> rtn = nodes[--size];
+            nodes[size] = null;
+            return rtn;
+        }
+
+        /**
+         * Push the {@code node} onto the stack.
+         * <p>
+         * The stack only grows if the tree has grown taller since it was created.
+         *
+         * @param node the Node to push
+         */
+        public void push(Node<E> node)
+        {
+            if (size == nodes.length)
+            {
+                nodes = Arrays.copyOf(nodes, size * 2);
+            }
+
+            nodes[size++] = node;
+        }
+
+        /**
+         * Get the number of Nodes on the stack.
+         *
+         * @return the size
+         */
+        public int size()
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Reads and writes elements as objects, for {@linkplain Externalizable}.
+     *
+     * @param <T> type of element
+     */
+    private static final class ObjectCodec<T> implements ElementCodec<T>
+    {
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T read(DataInput in) throws IOException
+        {
+            try
+            {
+                return (T) ((ObjectInput) in).readObject();
+            } catch (ClassNotFoundException ex)
+            {
+                throw new IOException(ex);
+            }
+        }
+
+        @Override
+        public void write(DataOutput out, T element) throws IOException
+        {
+            ((ObjectOutput) out).writeObject(element);
+        }
+    }
+
+    /**
+     * The operations a {@linkplain BoundedSet} view needs from this tree.
+     * <p>
+     * Changes go through the tree's own {@code add()} and {@code remove()},
+     * so a subclass's locking still applies.
+     */
+    private class Range implements BoundedSet.Source<E>
+    {
+
+        @Override
+        public boolean add(E e)
+        {
+            return AvlTree.this.add(e);
+        }
+
+        @Override
+        public E ceiling(E key, boolean inclusive)
+        {
+            return valueOf(findCeiling(key, inclusive));
+        }
+
+        @Override
+        public Comparator<? super E> comparator()
+        {
+            return comparator;
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return AvlTree.this.contains(o);
+        }
+
+        @Override
+        public E first()
+        {
+            return valueOf(findFirst());
+        }
+
+        @Override
+        public E floor(E key, boolean inclusive)
+        {
+            return valueOf(findFloor(key, inclusive));
+        }
+
+        @Override
+        public Iterator<E> iterator(boolean descending, E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+        {
+            return newIterator(descending, from, fromInclusive, fence, fenceInclusive);
+        }
+
+        @Override
+        public E last()
+        {
+            return valueOf(findLast());
+        }
+
+        @Override
+        public boolean remove(Object o)
+        {
+            return AvlTree.this.remove(o);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * This is O(log n), as it is calculated from the ranks of the bounds.
+         */
+        @Override
+        public int size(E lo, boolean loInclusive, E hi, boolean hiInclusive)
+        {
+            int upper = hi == null ? count : rankOf(hi, hiInclusive);
+            int lower = lo == null ? 0 : rankOf(lo, !loInclusive);
+
+            return Math.max(upper - lower, 0);
+        }
+
+        @Override
+        public Spliterator<E> spliterator(E lo, boolean loInclusive, E hi, boolean hiInclusive)
+        {
+            int upper = hi == null ? count : rankOf(hi, hiInclusive);
+            int lower = lo == null ? 0 : rankOf(lo, !loInclusive);
+
+            return (snapshotIteration ? snapshot() : AvlTree.this).new ATSpliterator(lower, Math.max(upper, lower));
+        }
+    }
+
+    /**
+     * Stores a value/item in the BST.
+     * <p>
+     * Nodes are shared between snapshots, and adopted by other trees, so a Node
+     * holds no reference to the tree that created it. Only its owner token.
+     *
+     * @param <T> element type
+     */
+    protected static final class Node<T>
+    {
+
+        /**
+         * The height of the sub-tree rooted at this Node.
+         * <p>
+         * A leaf Node has a height of {@code 1}.
+         */
+        public int Height;
+
+        /**
+         * The number of Nodes in the sub-tree rooted at this Node.
+         * <p>
+         * Used to find a Node by its list index position, or the index
+         * position of a Node, in O(log n).
+         */
+        public int Size;
+
+        /**
+         * The attached Left child Node.
+         */
+        public Node<T> Left;
+
+        /**
+         * The attached Right child Node.
+         */
+        public Node<T> Right;
+
+        /**
+         * The value/item being stored in this Node.
+         */
+        public T Value;
+
+        /**
+         * The owner token of the tree that may change this Node in place.
+         */
+        final Object Owner;
+
+        /**
+         * Initialize a new instance of the {@link Node Node&lt;E&gt;} class.
          *
          * @param value to store in this Node.
+         * @param owner the owner token of the tree creating this Node
          */
-        public Node(T value)
+        public Node(T value, Object owner)
         {
             this.Value = value;
+            this.Height = 1;
+            this.Size = 1;
+            this.Owner = owner;
+        }
+
+        /**
+         * Initialize a new instance of the {@link Node Node&lt;E&gt;} class,
+         * as a copy of another.
+         *
+         * @param node  the Node to copy
+         * @param owner the owner token of the tree creating this Node
+         */
+        public Node(Node<T> node, Object owner)
+        {
+            this.Value = node.Value;
+            this.Left = node.Left;
+            this.Right = node.Right;
+            this.Height = node.Height;
+            this.Size = node.Size;
+            this.Owner = owner;
+        }
+    }
+
+    /**
+     * Iterates over a snapshot of the tree, but removes from the tree itself.
+     */
+    protected class SnapshotItor implements Iterator<E>
+    {
+
+        /**
+         * The iterator over the snapshot.
+         */
+        private final Iterator<E> itor;
+
+        /**
+         * The last entry returned.
+         */
+        private E lastReturned;
+
+        /**
+         * Instantiates a new SnapshotItor object.
+         *
+         * @param itor the iterator over the snapshot
+         */
+        public SnapshotItor(Iterator<E> itor)
+        {
+            this.itor = itor;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return itor.hasNext();
+        }
+
+        @Override
+        public E next()
+        {
+            lastReturned = itor.next();
+            return lastReturned;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (lastReturned == null)
+            {
+                throw new IllegalStateException();
+            }
+
+            AvlTree.this.remove(lastReturned);
+            lastReturned = null;
         }
     }
 }
@@ -0,0 +1,255 @@
+/*
+ *  File Name:    AvlTreeStats.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the work done by an {@linkplain AvlTree}.
+ * <p>
+ * Obtained from {@link AvlTree#enableStatistics()}. Until then, the tree keeps
+ * no counts at all. The counters are {@linkplain LongAdder}s, so that the
+ * readers of a {@linkplain ConcurrentAvlTree} do not contend on them. They are
+ * shared with the tree's snapshots.
+ * <p>
+ * The height, size and depth histogram are read from the tree when asked for.
+ * For a plain {@linkplain AvlTree}, that is only safe while it is not being changed.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public class AvlTreeStats implements AvlTreeStatsMXBean
+{
+
+    /**
+     * The number of lookups found in the lookup cache.
+     */
+    private final LongAdder cacheHits = new LongAdder();
+
+    /**
+     * The number of lookups not found in the lookup cache.
+     */
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /**
+     * The number of comparisons made by lookups.
+     */
+    private final LongAdder comparisons = new LongAdder();
+
+    /**
+     * The number of Left-Left rotations.
+     */
+    private final LongAdder leftLeft = new LongAdder();
+
+    /**
+     * The number of Left-Right rotations.
+     */
+    private final LongAdder leftRight = new LongAdder();
+
+    /**
+     * The number of lookups.
+     */
+    private final LongAdder lookups = new LongAdder();
+
+    /**
+     * The number of rebuilds.
+     */
+    private final LongAdder rebuilds = new LongAdder();
+
+    /**
+     * The number of Right-Left rotations.
+     */
+    private final LongAdder rightLeft = new LongAdder();
+
+    /**
+     * The number of Right-Right rotations.
+     */
+    private final LongAdder rightRight = new LongAdder();
+
+    /**
+     * The tree being measured.
+     */
+    private final AvlTree<?> tree;
+
+    /**
+     * Instantiates a new AvlTreeStats object.
+     *
+     * @param tree the tree being measured
+     */
+    AvlTreeStats(AvlTree<?> tree)
+    {
+        this.tree = tree;
+    }
+
+    @Override
+    public double getAverageComparisons()
+    {
+        long count = lookups.sum();
+        return count == 0 ? 0 : (double) comparisons.sum() / count;
+    }
+
+    @Override
+    public String getBalancePolicy()
+    {
+        return tree.getBalancePolicy().name();
+    }
+
+    @Override
+    public double getCacheHitRate()
+    {
+        long hits = cacheHits.sum();
+        long total = hits + cacheMisses.sum();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public long getCacheHits()
+    {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses()
+    {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getComparisons()
+    {
+        return comparisons.sum();
+    }
+
+    @Override
+    public long[] getDepthHistogram()
+    {
+        return tree.getDepthHistogram();
+    }
+
+    @Override
+    public int getHeight()
+    {
+        return tree.getHeight();
+    }
+
+    @Override
+    public long getLeftLeftRotations()
+    {
+        return leftLeft.sum();
+    }
+
+    @Override
+    public long getLeftRightRotations()
+    {
+        return leftRight.sum();
+    }
+
+    @Override
+    public long getLookups()
+    {
+        return lookups.sum();
+    }
+
+    @Override
+    public long getRebuilds()
+    {
+        return rebuilds.sum();
+    }
+
+    @Override
+    public long getRightLeftRotations()
+    {
+        return rightLeft.sum();
+    }
+
+    @Override
+    public long getRightRightRotations()
+    {
+        return rightRight.sum();
+    }
+
+    @Override
+    public int getSize()
+    {
+        return tree.size();
+    }
+
+    @Override
+    public void reset()
+    {
+        cacheHits.reset();
+        cacheMisses.reset();
+        comparisons.reset();
+        leftLeft.reset();
+        leftRight.reset();
+        lookups.reset();
+        rebuilds.reset();
+        rightLeft.reset();
+        rightRight.reset();
+    }
+
+    /**
+     * Record a lookup found in the lookup cache.
+     */
+    void recordCacheHit()
+    {
+        cacheHits.increment();
+    }
+
+    /**
+     * Record a lookup not found in the lookup cache.
+     */
+    void recordCacheMiss()
+    {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Record a lookup.
+     *
+     * @param comparisons the number of comparisons it made
+     */
+    void recordLookup(int comparisons)
+    {
+        lookups.increment();
+        this.comparisons.add(comparisons);
+    }
+
+    /**
+     * Record a rebuild of the whole tree.
+     */
+    void recordRebuild()
+    {
+        rebuilds.increment();
+    }
+
+    /**
+     * Record a rotation.
+     *
+     * @param left   {@code true} if the Left side was too tall
+     * @param single {@code true} for a single rotation, {@code false} for a double one
+     */
+    void recordRotation(boolean left, boolean single)
+    {
+        (left ? (single ? leftLeft : leftRight) : (single ? rightRight : rightLeft)).increment();
+    }
+}
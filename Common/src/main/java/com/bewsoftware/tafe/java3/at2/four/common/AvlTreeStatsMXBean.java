@@ -0,0 +1,154 @@
+/*
+ *  File Name:    AvlTreeStatsMXBean.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+/**
+ * The management interface of {@linkplain AvlTreeStats}, for registering with
+ * a JMX MBean server.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public interface AvlTreeStatsMXBean
+{
+
+    /**
+     * Get the average number of comparisons made per lookup.
+     *
+     * @return the average, or {@code 0} if there have been no lookups
+     */
+    double getAverageComparisons();
+
+    /**
+     * Get the name of the tree's {@linkplain BalancePolicy}.
+     *
+     * @return the policy name
+     */
+    String getBalancePolicy();
+
+    /**
+     * Get the fraction of lookups, made while the lookup cache was enabled, that
+     * were found in it.
+     *
+     * @return the hit rate, from {@code 0} to {@code 1}, or {@code 0} if there have been none
+     *
+     * @see AvlTree#enableLookupCache(int)
+     */
+    double getCacheHitRate();
+
+    /**
+     * Get the number of lookups found in the lookup cache.
+     *
+     * @return the number of hits
+     */
+    long getCacheHits();
+
+    /**
+     * Get the number of lookups, made while the lookup cache was enabled, that
+     * were not found in it.
+     *
+     * @return the number of misses
+     */
+    long getCacheMisses();
+
+    /**
+     * Get the number of comparisons made by lookups.
+     *
+     * @return the number of comparisons
+     */
+    long getComparisons();
+
+    /**
+     * Get the number of Nodes at each depth of the tree, from the root, at depth {@code 0}, down.
+     * <p>
+     * This walks the whole tree, so it is O(n).
+     *
+     * @return the number of Nodes, indexed by depth
+     */
+    long[] getDepthHistogram();
+
+    /**
+     * Get the current height of the tree.
+     *
+     * @return the height, or {@code 0} if the tree is empty
+     */
+    int getHeight();
+
+    /**
+     * Get the number of single rotations to the right, at a Node whose Left
+     * child's Left sub-tree was too tall.
+     *
+     * @return the number of rotations
+     */
+    long getLeftLeftRotations();
+
+    /**
+     * Get the number of double rotations, at a Node whose Left child's Right
+     * sub-tree was too tall.
+     *
+     * @return the number of rotations
+     */
+    long getLeftRightRotations();
+
+    /**
+     * Get the number of lookups made.
+     *
+     * @return the number of lookups
+     */
+    long getLookups();
+
+    /**
+     * Get the number of times the whole tree has been rebuilt, in O(n), by a
+     * bulk add or a read.
+     *
+     * @return the number of rebuilds
+     */
+    long getRebuilds();
+
+    /**
+     * Get the number of double rotations, at a Node whose Right child's Left
+     * sub-tree was too tall.
+     *
+     * @return the number of rotations
+     */
+    long getRightLeftRotations();
+
+    /**
+     * Get the number of single rotations to the left, at a Node whose Right
+     * child's Right sub-tree was too tall.
+     *
+     * @return the number of rotations
+     */
+    long getRightRightRotations();
+
+    /**
+     * Get the number of elements in the tree.
+     *
+     * @return the number of elements
+     */
+    int getSize();
+
+    /**
+     * Reset all of the counters to zero.
+     */
+    void reset();
+}
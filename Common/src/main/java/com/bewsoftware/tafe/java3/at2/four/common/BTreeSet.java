@@ -0,0 +1,1304 @@
+/*
+ *  File Name:    BTreeSet.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.*;
+
+import static com.bewsoftware.tafe.java3.at2.four.common.AvlTree.NO_NULLS;
+
+/**
+ * This is an in-memory B+tree, offering the same sorted, indexed, set as
+ * {@linkplain AvlTree}.
+ * <p>
+ * Each Node holds up to 64 keys, in a sorted array, so a search touches a
+ * handful of Nodes, rather than one per level of a binary tree. The elements
+ * are all held in the leaves, which are linked in order, for iteration.
+ * Each internal Node keeps the size of each of its sub-trees, so that
+ * {@link #get(int)} and {@link #indexOf(Object)} are O(log n).
+ * <p>
+ * The range views returned by {@link #subSet(Comparable, boolean, Comparable, boolean) subSet},
+ * {@link #headSet(Comparable, boolean) headSet} and {@link #tailSet(Comparable, boolean) tailSet}
+ * are backed by this tree, so changes in one are reflected in the other.
+ * <p>
+ * This class does not support storage of either {@code null}s or duplicates.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ * @param <E> type of item stored in this tree.
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public class BTreeSet<E extends Comparable<E>> extends AbstractSet<E> implements NavigableSet<E>
+{
+
+    /**
+     * The maximum number of children of an internal Node.
+     */
+    private static final int MAX_CHILDREN = 64;
+
+    /**
+     * The maximum number of keys in a leaf.
+     */
+    private static final int MAX_KEYS = 64;
+
+    /**
+     * The minimum number of children of an internal Node, other than the root.
+     */
+    private static final int MIN_CHILDREN = MAX_CHILDREN / 2;
+
+    /**
+     * The minimum number of keys in a leaf, other than the root.
+     */
+    private static final int MIN_KEYS = MAX_KEYS / 2;
+
+    /**
+     * Set by {@code insert}: {@code true} if the element was added.
+     */
+    private boolean added;
+
+    /**
+     * The number of elements in this tree.
+     */
+    private int count;
+
+    /**
+     * Set by {@code insert}, when a Node is split: the key that separates
+     * the new Node from the one it was split from.
+     */
+    private Object promoted;
+
+    /**
+     * The root node.
+     */
+    private Node root;
+
+    /**
+     * The version of the data.
+     */
+    private int version;
+
+    /**
+     * Initializes a new instance of the {@linkplain BTreeSet}{@literal <E>} class.
+     */
+    public BTreeSet()
+    {
+        root = new Node(true);
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain BTreeSet}{@literal <E>} class with the contents
+     * of the {@code collection}.
+     *
+     * @param collection the elements to add
+     */
+    public BTreeSet(Collection<? extends E> collection)
+    {
+        this();
+        addAll(collection);
+    }
+
+    @Override
+    public boolean add(E e)
+    {
+        Node right = insert(root, Objects.requireNonNull(e, NO_NULLS));
+
+        if (!added)
+        {
+            return false;
+        }
+
+        if (right != null)
+        {
+            Node newRoot = new Node(false);
+            newRoot.children[0] = root;
+            newRoot.children[1] = right;
+            newRoot.sizes[0] = sizeOf(root);
+            newRoot.sizes[1] = sizeOf(right);
+            newRoot.keys[0] = promoted;
+            newRoot.n = 2;
+            root = newRoot;
+        }
+
+        promoted = null;
+        count++;
+        version++;
+        return true;
+    }
+
+    @Override
+    public E ceiling(E e)
+    {
+        return findCeiling(Objects.requireNonNull(e, NO_NULLS), true);
+    }
+
+    @Override
+    public void clear()
+    {
+        root = new Node(true);
+        count = 0;
+        version++;
+    }
+
+    @Override
+    public Comparator<? super E> comparator()
+    {
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o)
+    {
+        E key = (E) Objects.requireNonNull(o, NO_NULLS);
+        Node leaf = leafFor(key);
+        return Arrays.binarySearch(leaf.keys, 0, leaf.n, key) >= 0;
+    }
+
+    /**
+     * Delete the {@code target} from the tree.
+     *
+     * @param target the element to delete
+     *
+     * @return {@code true} unless {@code target} is {@code null}, or {@code target} is not found.
+     */
+    public boolean delete(E target)
+    {
+        return target != null && internalDelete(target);
+    }
+
+    /**
+     * Returns an iterator over the elements in this set, in descending order.
+     * Equivalent in effect to {@code descendingSet().iterator()}.
+     *
+     * @return an iterator over the elements in this set, in descending order
+     */
+    @Override
+    public Iterator<E> descendingIterator()
+    {
+        return new BTItor(true, null, false, null, false);
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet()
+    {
+        return new BoundedSet<>(new Range(), null, false, null, false, true);
+    }
+
+    @Override
+    public E first()
+    {
+        return key(findFirst());
+    }
+
+    @Override
+    public E floor(E e)
+    {
+        return findFloor(Objects.requireNonNull(e, NO_NULLS), true);
+    }
+
+    /**
+     * Returns the element at the specified position in this set.
+     *
+     * @param index index of the element to return
+     *
+     * @return the element at the specified position in this set
+     *
+     * @throws IndexOutOfBoundsException if the index is out of range
+     *                                   (index {@literal < 0 || index >= } size())
+     */
+    @SuppressWarnings("unchecked")
+    public E get(int index)
+    {
+        if (index < 0 || index >= count)
+        {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+
+        Node current = root;
+
+        while (current.children != null)
+        {
+            int i = 0;
+
+            while (index >= current.sizes[i])
+            {
+                index -= current.sizes[i++];
+            }
+
+            current = current.children[i];
+        }
+
+        return (E) current.keys[index];
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement)
+    {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive)
+    {
+        return new BoundedSet<>(new Range(), null, false, Objects.requireNonNull(toElement, NO_NULLS), inclusive, false);
+    }
+
+    @Override
+    public E higher(E e)
+    {
+        return findCeiling(Objects.requireNonNull(e, NO_NULLS), false);
+    }
+
+    /**
+     * Returns the index of the specified element in this set, or -1 if this set does
+     * not contain the element.
+     *
+     * @param o element to search for
+     *
+     * @return the index of the specified element in this set, or -1 if this set does
+     *         not contain the element
+     *
+     * @throws ClassCastException   if the type of the specified element is incompatible with this set
+     * @throws NullPointerException if the specified element is null as this set does <b>not</b> permit null
+     *                              elements
+     */
+    public int indexOf(Object o)
+    {
+        @SuppressWarnings("unchecked")
+        E key = (E) Objects.requireNonNull(o, NO_NULLS);
+        Node current = root;
+        int rtn = 0;
+
+        while (current.children != null)
+        {
+            int index = childIndex(current, key);
+
+            for (int i = 0; i < index; i++)
+            {
+                rtn += current.sizes[i];
+            }
+
+            current = current.children[index];
+        }
+
+        int index = Arrays.binarySearch(current.keys, 0, current.n, key);
+        return index >= 0 ? rtn + index : -1;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return count == 0;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return new BTItor(false, null, false, null, false);
+    }
+
+    @Override
+    public E last()
+    {
+        return key(findLast());
+    }
+
+    @Override
+    public E lower(E e)
+    {
+        return findFloor(Objects.requireNonNull(e, NO_NULLS), false);
+    }
+
+    @Override
+    public E pollFirst()
+    {
+        return poll(findFirst());
+    }
+
+    @Override
+    public E pollLast()
+    {
+        return poll(findLast());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o)
+    {
+        return internalDelete((E) Objects.requireNonNull(o, NO_NULLS));
+    }
+
+    @Override
+    public int size()
+    {
+        return count;
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement)
+    {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive)
+    {
+        if (Objects.requireNonNull(fromElement, NO_NULLS).compareTo(Objects.requireNonNull(toElement, NO_NULLS)) > 0)
+        {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+
+        return new BoundedSet<>(new Range(), fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement)
+    {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive)
+    {
+        return new BoundedSet<>(new Range(), Objects.requireNonNull(fromElement, NO_NULLS), inclusive, null, false, false);
+    }
+
+    /**
+     * Get the height of the tree.
+     *
+     * @return the height: {@code 1} for a single leaf
+     */
+    protected int getHeight()
+    {
+        int rtn = 1;
+
+        for (Node current = root; current.children != null; current = current.children[0])
+        {
+            rtn++;
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Insert the {@code value} into the array, {@code a}, of {@code length} values in use.
+     *
+     * @param a      the array
+     * @param length the number of values in use
+     * @param index  the index to insert at
+     * @param value  the value to insert
+     */
+    private static void insertAt(Object[] a, int length, int index, Object value)
+    {
+        System.arraycopy(a, index, a, index + 1, length - index);
+        a[index] = value;
+    }
+
+    /**
+     * Insert the {@code value} into the array, {@code a}, of {@code length} values in use.
+     *
+     * @param a      the array
+     * @param length the number of values in use
+     * @param index  the index to insert at
+     * @param value  the value to insert
+     */
+    private static void insertAt(int[] a, int length, int index, int value)
+    {
+        System.arraycopy(a, index, a, index + 1, length - index);
+        a[index] = value;
+    }
+
+    /**
+     * Remove the value at {@code index} from the array, {@code a}, of {@code length} values in use.
+     *
+     * @param a      the array
+     * @param length the number of values in use
+     * @param index  the index to remove
+     */
+    private static void removeAt(Object[] a, int length, int index)
+    {
+        System.arraycopy(a, index + 1, a, index, length - index - 1);
+        a[length - 1] = null;
+    }
+
+    /**
+     * Remove the value at {@code index} from the array, {@code a}, of {@code length} values in use.
+     *
+     * @param a      the array
+     * @param length the number of values in use
+     * @param index  the index to remove
+     */
+    private static void removeAt(int[] a, int length, int index)
+    {
+        System.arraycopy(a, index + 1, a, index, length - index - 1);
+        a[length - 1] = 0;
+    }
+
+    /**
+     * Get the number of elements in the sub-tree of the {@code node}.
+     *
+     * @param node the Node
+     *
+     * @return the number of elements
+     */
+    private static int sizeOf(Node node)
+    {
+        int rtn = node.n;
+
+        if (node.children != null)
+        {
+            rtn = 0;
+
+            for (int i = 0; i < node.n; i++)
+            {
+                rtn += node.sizes[i];
+            }
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Move the last element, or child, of the left sibling of the child at
+     * {@code index}, into that child.
+     *
+     * @param parent the parent Node
+     * @param index  the index of the child that is short
+     */
+    private void borrowLeft(Node parent, int index)
+    {
+        Node child = parent.children[index];
+        Node left = parent.children[index - 1];
+        int moved = 1;
+
+        if (child.children == null)
+        {
+            insertAt(child.keys, child.n++, 0, left.keys[left.n - 1]);
+            left.keys[--left.n] = null;
+            parent.keys[index - 1] = child.keys[0];
+        } else
+        {
+            moved = left.sizes[left.n - 1];
+            insertAt(child.keys, child.n - 1, 0, parent.keys[index - 1]);
+            insertAt(child.children, child.n, 0, left.children[left.n - 1]);
+            insertAt(child.sizes, child.n++, 0, moved);
+            parent.keys[index - 1] = left.keys[left.n - 2];
+            left.keys[left.n - 2] = null;
+            left.children[left.n - 1] = null;
+            left.sizes[--left.n] = 0;
+        }
+
+        parent.sizes[index - 1] -= moved;
+        parent.sizes[index] += moved;
+    }
+
+    /**
+     * Move the first element, or child, of the right sibling of the child at
+     * {@code index}, into that child.
+     *
+     * @param parent the parent Node
+     * @param index  the index of the child that is short
+     */
+    private void borrowRight(Node parent, int index)
+    {
+        Node child = parent.children[index];
+        Node right = parent.children[index + 1];
+        int moved = 1;
+
+        if (child.children == null)
+        {
+            child.keys[child.n++] = right.keys[0];
+            removeAt(right.keys, right.n--, 0);
+            parent.keys[index] = right.keys[0];
+        } else
+        {
+            moved = right.sizes[0];
+            child.keys[child.n - 1] = parent.keys[index];
+            child.children[child.n] = right.children[0];
+            child.sizes[child.n++] = moved;
+            parent.keys[index] = right.keys[0];
+            removeAt(right.keys, right.n - 1, 0);
+            removeAt(right.children, right.n, 0);
+            removeAt(right.sizes, right.n--, 0);
+        }
+
+        parent.sizes[index] += moved;
+        parent.sizes[index + 1] -= moved;
+    }
+
+    /**
+     * Find the index of the child of the internal {@code node} that may hold the {@code key}.
+     *
+     * @param node the internal Node
+     * @param key  the key
+     *
+     * @return the index of the child
+     */
+    private int childIndex(Node node, E key)
+    {
+        int index = Arrays.binarySearch(node.keys, 0, node.n - 1, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Delete the {@code key} from the sub-tree of the {@code node}, fixing up any
+     * child left short on the way back up.
+     *
+     * @param node the root of the sub-tree
+     * @param key  the key to delete
+     *
+     * @return {@code true} if the {@code key} was found
+     */
+    private boolean delete(Node node, E key)
+    {
+        boolean rtn;
+
+        if (node.children == null)
+        {
+            int index = Arrays.binarySearch(node.keys, 0, node.n, key);
+            rtn = index >= 0;
+
+            if (rtn)
+            {
+                removeAt(node.keys, node.n--, index);
+            }
+        } else
+        {
+            int index = childIndex(node, key);
+            rtn = delete(node.children[index], key);
+
+            if (rtn)
+            {
+                Node child = node.children[index];
+                node.sizes[index]--;
+
+                if (child.n < (child.children == null ? MIN_KEYS : MIN_CHILDREN))
+                {
+                    rebalance(node, index);
+                }
+            }
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Find the least element greater than, or if {@code inclusive} equal to, the {@code key}.
+     *
+     * @param key       the key
+     * @param inclusive {@code true} if an element equal to the {@code key} may be returned
+     *
+     * @return the element, or {@code null} if there is no such element
+     */
+    @SuppressWarnings("unchecked")
+    private E findCeiling(E key, boolean inclusive)
+    {
+        Node leaf = leafFor(key);
+        int index = Arrays.binarySearch(leaf.keys, 0, leaf.n, key);
+        index = index >= 0 ? (inclusive ? index : index + 1) : -index - 1;
+
+        // Only the root leaf is ever empty, so the next leaf must hold the answer.
+        if (index == leaf.n)
+        {
+            leaf = leaf.next;
+            index = 0;
+        }
+
+        return leaf != null ? (E) leaf.keys[index] : null;
+    }
+
+    /**
+     * Find the first element.
+     *
+     * @return the element, or {@code null} if this tree is empty
+     */
+    @SuppressWarnings("unchecked")
+    private E findFirst()
+    {
+        Node current = root;
+
+        while (current.children != null)
+        {
+            current = current.children[0];
+        }
+
+        return (E) current.keys[0];
+    }
+
+    /**
+     * Find the greatest element less than, or if {@code inclusive} equal to, the {@code key}.
+     *
+     * @param key       the key
+     * @param inclusive {@code true} if an element equal to the {@code key} may be returned
+     *
+     * @return the element, or {@code null} if there is no such element
+     */
+    @SuppressWarnings("unchecked")
+    private E findFloor(E key, boolean inclusive)
+    {
+        Node leaf = leafFor(key);
+        int index = Arrays.binarySearch(leaf.keys, 0, leaf.n, key);
+        index = index >= 0 ? (inclusive ? index : index - 1) : -index - 2;
+
+        if (index < 0)
+        {
+            leaf = leaf.prev;
+            index = leaf != null ? leaf.n - 1 : -1;
+        }
+
+        return leaf != null ? (E) leaf.keys[index] : null;
+    }
+
+    /**
+     * Find the last element.
+     *
+     * @return the element, or {@code null} if this tree is empty
+     */
+    @SuppressWarnings("unchecked")
+    private E findLast()
+    {
+        Node current = root;
+
+        while (current.children != null)
+        {
+            current = current.children[current.n - 1];
+        }
+
+        return current.n > 0 ? (E) current.keys[current.n - 1] : null;
+    }
+
+    /**
+     * Insert the {@code key} into the sub-tree of the {@code node}, splitting
+     * any Node that overflows on the way back up.
+     * <p>
+     * Sets {@code added}, and if a Node is split, {@code promoted}.
+     *
+     * @param node the root of the sub-tree
+     * @param key  the key to insert
+     *
+     * @return the new right sibling of the {@code node}, if it was split, otherwise {@code null}
+     */
+    private Node insert(Node node, E key)
+    {
+        Node rtn = null;
+
+        if (node.children == null)
+        {
+            int index = Arrays.binarySearch(node.keys, 0, node.n, key);
+            added = index < 0;
+
+            if (added)
+            {
+                insertAt(node.keys, node.n++, -index - 1, key);
+
+                if (node.n > MAX_KEYS)
+                {
+                    rtn = splitLeaf(node);
+                }
+            }
+        } else
+        {
+            int index = childIndex(node, key);
+            Node right = insert(node.children[index], key);
+
+            if (added)
+            {
+                node.sizes[index]++;
+
+                if (right != null)
+                {
+                    int rightSize = sizeOf(right);
+                    node.sizes[index] -= rightSize;
+                    insertAt(node.keys, node.n - 1, index, promoted);
+                    insertAt(node.children, node.n, index + 1, right);
+                    insertAt(node.sizes, node.n++, index + 1, rightSize);
+
+                    if (node.n > MAX_CHILDREN)
+                    {
+                        rtn = splitInternal(node);
+                    }
+                }
+            }
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Delete the {@code key}, and collapse the root if it is left with one child.
+     *
+     * @param key the key to delete
+     *
+     * @return {@code true} if the {@code key} was found
+     */
+    private boolean internalDelete(E key)
+    {
+        boolean rtn = delete(root, key);
+
+        if (rtn)
+        {
+            if (root.children != null && root.n == 1)
+            {
+                root = root.children[0];
+            }
+
+            count--;
+            version++;
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Returns the {@code key}, or throws an exception if it is {@code null}.
+     *
+     * @param key the key
+     *
+     * @return the key
+     *
+     * @throws NoSuchElementException if {@code key} is {@code null}
+     */
+    private E key(E key)
+    {
+        if (key == null)
+        {
+            throw new NoSuchElementException();
+        }
+
+        return key;
+    }
+
+    /**
+     * Find the leaf that may hold the {@code key}.
+     *
+     * @param key the key
+     *
+     * @return the leaf
+     */
+    private Node leafFor(E key)
+    {
+        Node current = root;
+
+        while (current.children != null)
+        {
+            current = current.children[childIndex(current, key)];
+        }
+
+        return current;
+    }
+
+    /**
+     * Merge the child at {@code index + 1} into the child at {@code index}.
+     *
+     * @param parent the parent Node
+     * @param index  the index of the left child
+     */
+    private void merge(Node parent, int index)
+    {
+        Node left = parent.children[index];
+        Node right = parent.children[index + 1];
+
+        if (left.children == null)
+        {
+            System.arraycopy(right.keys, 0, left.keys, left.n, right.n);
+            left.next = right.next;
+
+            if (left.next != null)
+            {
+                left.next.prev = left;
+            }
+        } else
+        {
+            left.keys[left.n - 1] = parent.keys[index];
+            System.arraycopy(right.keys, 0, left.keys, left.n, right.n - 1);
+            System.arraycopy(right.children, 0, left.children, left.n, right.n);
+            System.arraycopy(right.sizes, 0, left.sizes, left.n, right.n);
+        }
+
+        left.n += right.n;
+        parent.sizes[index] += parent.sizes[index + 1];
+        removeAt(parent.keys, parent.n - 1, index);
+        removeAt(parent.children, parent.n, index + 1);
+        removeAt(parent.sizes, parent.n--, index + 1);
+    }
+
+    /**
+     * Remove the {@code key}.
+     *
+     * @param key the key
+     *
+     * @return the key removed, or {@code null} if {@code key} is {@code null}
+     */
+    private E poll(E key)
+    {
+        if (key != null)
+        {
+            internalDelete(key);
+        }
+
+        return key;
+    }
+
+    /**
+     * Get the number of elements less than, or if {@code inclusive} less than
+     * or equal to, the {@code key}.
+     *
+     * @param key       the key
+     * @param inclusive {@code true} if the {@code key} itself is to be counted
+     *
+     * @return the rank
+     */
+    private int rankOf(E key, boolean inclusive)
+    {
+        Node current = root;
+        int rtn = 0;
+
+        while (current.children != null)
+        {
+            int index = childIndex(current, key);
+
+            for (int i = 0; i < index; i++)
+            {
+                rtn += current.sizes[i];
+            }
+
+            current = current.children[index];
+        }
+
+        int index = Arrays.binarySearch(current.keys, 0, current.n, key);
+        return rtn + (index >= 0 ? (inclusive ? index + 1 : index) : -index - 1);
+    }
+
+    /**
+     * Refill the child at {@code index}, which is short, from a sibling, or
+     * merge it with one.
+     *
+     * @param parent the parent Node
+     * @param index  the index of the child that is short
+     */
+    private void rebalance(Node parent, int index)
+    {
+        int min = parent.children[index].children == null ? MIN_KEYS : MIN_CHILDREN;
+
+        if (index > 0 && parent.children[index - 1].n > min)
+        {
+            borrowLeft(parent, index);
+        } else if (index + 1 < parent.n && parent.children[index + 1].n > min)
+        {
+            borrowRight(parent, index);
+        } else if (index > 0)
+        {
+            merge(parent, index - 1);
+        } else
+        {
+            merge(parent, index);
+        }
+    }
+
+    /**
+     * Split the full internal {@code node} in two.
+     *
+     * @param node the Node to split
+     *
+     * @return the new right sibling
+     */
+    private Node splitInternal(Node node)
+    {
+        Node rtn = new Node(false);
+        int leftCount = node.n / 2;
+        rtn.n = node.n - leftCount;
+        System.arraycopy(node.children, leftCount, rtn.children, 0, rtn.n);
+        System.arraycopy(node.sizes, leftCount, rtn.sizes, 0, rtn.n);
+        System.arraycopy(node.keys, leftCount, rtn.keys, 0, rtn.n - 1);
+        promoted = node.keys[leftCount - 1];
+        Arrays.fill(node.keys, leftCount - 1, node.n - 1, null);
+        Arrays.fill(node.children, leftCount, node.n, null);
+        Arrays.fill(node.sizes, leftCount, node.n, 0);
+        node.n = leftCount;
+        return rtn;
+    }
+
+    /**
+     * Split the full leaf, {@code node}, in two, and link the new one in after it.
+     *
+     * @param node the leaf to split
+     *
+     * @return the new right sibling
+     */
+    private Node splitLeaf(Node node)
+    {
+        Node rtn = new Node(true);
+        int leftCount = node.n / 2;
+        rtn.n = node.n - leftCount;
+        System.arraycopy(node.keys, leftCount, rtn.keys, 0, rtn.n);
+        Arrays.fill(node.keys, leftCount, node.n, null);
+        node.n = leftCount;
+        rtn.next = node.next;
+        rtn.prev = node;
+
+        if (rtn.next != null)
+        {
+            rtn.next.prev = rtn;
+        }
+
+        node.next = rtn;
+        promoted = rtn.keys[0];
+        return rtn;
+    }
+
+    /**
+     * This is an iterator along the chain of leaves, in either direction.
+     */
+    private class BTItor implements Iterator<E>
+    {
+
+        /**
+         * {@code true} if this iterator runs from the last element to the first.
+         */
+        private final boolean descending;
+
+        /**
+         * The expected version number.
+         */
+        private int expectedVersion;
+
+        /**
+         * The element to stop at, or {@code null} to run to the end of the tree.
+         */
+        private final E fence;
+
+        /**
+         * {@code true} if the {@code fence} is to be returned.
+         */
+        private final boolean fenceInclusive;
+
+        /**
+         * The index, in the current leaf, of the next element.
+         */
+        private int index;
+
+        /**
+         * The last entry returned.
+         */
+        private E lastReturned;
+
+        /**
+         * The current leaf.
+         */
+        private Node leaf;
+
+        /**
+         * Instantiates a new BTItor object, over the elements from
+         * {@code from}, on to {@code fence}.
+         *
+         * @param descending     {@code true} to run from the last element to the first
+         * @param from           the element to start from, or {@code null} for the first element
+         *                       in the direction of travel
+         * @param fromInclusive  {@code true} if {@code from} is to be included
+         * @param fence          the element to stop at, or {@code null} for the last element
+         *                       in the direction of travel
+         * @param fenceInclusive {@code true} if {@code fence} is to be included
+         */
+        public BTItor(boolean descending, E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+        {
+            this.descending = descending;
+            this.fence = fence;
+            this.fenceInclusive = fenceInclusive;
+            expectedVersion = version;
+
+            if (from == null)
+            {
+                leaf = root;
+
+                while (leaf.children != null)
+                {
+                    leaf = leaf.children[descending ? leaf.n - 1 : 0];
+                }
+
+                index = descending ? leaf.n - 1 : 0;
+            } else
+            {
+                seek(from, fromInclusive);
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return expectedVersion == version && index >= 0 && index < leaf.n && !isPastFence(value());
+        }
+
+        @Override
+        public E next()
+        {
+            if (expectedVersion != version)
+            {
+                throw new ConcurrentModificationException();
+            }
+
+            if (index < 0 || index >= leaf.n || isPastFence(value()))
+            {
+                throw new NoSuchElementException();
+            }
+
+            lastReturned = value();
+
+            if (descending)
+            {
+                if (--index < 0 && leaf.prev != null)
+                {
+                    leaf = leaf.prev;
+                    index = leaf.n - 1;
+                }
+            } else if (++index == leaf.n && leaf.next != null)
+            {
+                leaf = leaf.next;
+                index = 0;
+            }
+
+            return lastReturned;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (expectedVersion != version)
+            {
+                throw new ConcurrentModificationException();
+            }
+
+            if (lastReturned == null)
+            {
+                throw new IllegalStateException();
+            }
+
+            internalDelete(lastReturned);
+
+            // Borrowing and merging may have moved the next element to
+            // another leaf, so find it again.
+            seek(lastReturned, false);
+            lastReturned = null;
+            expectedVersion = version;
+        }
+
+        /**
+         * Is the {@code value} beyond the {@code fence}?
+         *
+         * @param value the value to check
+         *
+         * @return result
+         */
+        private boolean isPastFence(E value)
+        {
+            if (fence == null)
+            {
+                return false;
+            }
+
+            int cmp = descending ? fence.compareTo(value) : value.compareTo(fence);
+            return cmp > 0 || (cmp == 0 && !fenceInclusive);
+        }
+
+        /**
+         * Move to the first element at, or if not {@code inclusive} past,
+         * the {@code key}, in the direction of travel.
+         *
+         * @param key       the key to seek to
+         * @param inclusive {@code true} if the {@code key} itself may be returned next
+         */
+        private void seek(E key, boolean inclusive)
+        {
+            leaf = leafFor(key);
+            index = Arrays.binarySearch(leaf.keys, 0, leaf.n, key);
+
+            if (descending)
+            {
+                index = index >= 0 ? (inclusive ? index : index - 1) : -index - 2;
+
+                if (index < 0 && leaf.prev != null)
+                {
+                    leaf = leaf.prev;
+                    index = leaf.n - 1;
+                }
+            } else
+            {
+                index = index >= 0 ? (inclusive ? index : index + 1) : -index - 1;
+
+                if (index == leaf.n && leaf.next != null)
+                {
+                    leaf = leaf.next;
+                    index = 0;
+                }
+            }
+        }
+
+        /**
+         * Get the element at the current position.
+         *
+         * @return the element
+         */
+        @SuppressWarnings("unchecked")
+        private E value()
+        {
+            return (E) leaf.keys[index];
+        }
+    }
+
+    /**
+     * A Node of the tree: either a leaf, holding elements, or an internal
+     * Node, holding the keys that separate its children.
+     * <p>
+     * The arrays have room for one more than the maximum, so that a Node can
+     * be filled first, and then split.
+     */
+    private static final class Node
+    {
+
+        /**
+         * The children of an internal Node, or {@code null} for a leaf.
+         * <p>
+         * Child {@code i} holds the elements from {@code keys[i - 1]} up to,
+         * but not including, {@code keys[i]}.
+         */
+        private final Node[] children;
+
+        /**
+         * The elements of a leaf, or the keys separating the children of an
+         * internal Node, in ascending order.
+         */
+        private final Object[] keys;
+
+        /**
+         * The number of elements in a leaf, or the number of children of an
+         * internal Node.
+         */
+        private int n;
+
+        /**
+         * The next leaf, or {@code null}.
+         */
+        private Node next;
+
+        /**
+         * The previous leaf, or {@code null}.
+         */
+        private Node prev;
+
+        /**
+         * The number of elements in the sub-tree of each child of an internal Node.
+         */
+        private final int[] sizes;
+
+        /**
+         * Instantiates a new Node object.
+         *
+         * @param leaf {@code true} for a leaf
+         */
+        private Node(boolean leaf)
+        {
+            if (leaf)
+            {
+                children = null;
+                keys = new Object[MAX_KEYS + 1];
+                sizes = null;
+            } else
+            {
+                children = new Node[MAX_CHILDREN + 1];
+                keys = new Object[MAX_CHILDREN];
+                sizes = new int[MAX_CHILDREN + 1];
+            }
+        }
+    }
+
+    /**
+     * The operations a {@linkplain BoundedSet} view needs from this tree.
+     */
+    private class Range implements BoundedSet.Source<E>
+    {
+
+        @Override
+        public boolean add(E e)
+        {
+            return BTreeSet.this.add(e);
+        }
+
+        @Override
+        public E ceiling(E key, boolean inclusive)
+        {
+            return findCeiling(key, inclusive);
+        }
+
+        @Override
+        public Comparator<? super E> comparator()
+        {
+            return null;
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return BTreeSet.this.contains(o);
+        }
+
+        @Override
+        public E first()
+        {
+            return findFirst();
+        }
+
+        @Override
+        public E floor(E key, boolean inclusive)
+        {
+            return findFloor(key, inclusive);
+        }
+
+        @Override
+        public Iterator<E> iterator(boolean descending, E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+        {
+            return new BTItor(descending, from, fromInclusive, fence, fenceInclusive);
+        }
+
+        @Override
+        public E last()
+        {
+            return findLast();
+        }
+
+        @Override
+        public boolean remove(Object o)
+        {
+            return BTreeSet.this.remove(o);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * This is O(log n), as it is calculated from the ranks of the bounds.
+         */
+        @Override
+        public int size(E lo, boolean loInclusive, E hi, boolean hiInclusive)
+        {
+            int upper = hi == null ? count : rankOf(hi, hiInclusive);
+            int lower = lo == null ? 0 : rankOf(lo, !loInclusive);
+
+            return Math.max(upper - lower, 0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *  File Name:    BalancePolicy.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+/**
+ * How closely an {@linkplain AvlTree} keeps itself balanced.
+ * <p>
+ * Each policy sets how much the heights of the two sub-trees of a Node may
+ * differ before the Node is rotated. The looser the policy, the fewer the
+ * rotations made by adds and deletes, and the taller the tree may grow.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public enum BalancePolicy
+{
+
+    /**
+     * Strict AVL: the heights may differ by at most one.
+     * <p>
+     * The height of the tree is at most about 1.44 log2(n). This is the only policy
+     * under which trees are joined and split, for set algebra and range removal.
+     */
+    AVL(1),
+    /**
+     * Relaxed AVL: the heights may differ by at most two.
+     * <p>
+     * The height of the tree is at most about 1.81 log2(n), in return for fewer
+     * rotations. Suits write-heavy loads.
+     */
+    RELAXED(2),
+    /**
+     * No balancing at all: a plain Binary Search Tree.
+     * <p>
+     * Sorted input builds a tree as tall as it has elements.
+     */
+    NONE(Integer.MAX_VALUE);
+
+    /**
+     * The largest difference allowed between the heights of the two sub-trees of a Node.
+     */
+    private final int tolerance;
+
+    /**
+     * Instantiates a new BalancePolicy.
+     *
+     * @param tolerance the largest difference allowed between sub-tree heights
+     */
+    BalancePolicy(int tolerance)
+    {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * Get the largest difference allowed between the heights of the two
+     * sub-trees of a Node.
+     *
+     * @return the tolerance
+     */
+    public int getTolerance()
+    {
+        return tolerance;
+    }
+}
@@ -0,0 +1,611 @@
+/*
+ *  File Name:    BoundedSet.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.*;
+
+import static com.bewsoftware.tafe.java3.at2.four.common.AvlTree.NO_NULLS;
+
+/**
+ * A live view of a range of the elements in a sorted set.
+ * <p>
+ * This is the {@code descendingSet()}, {@code headSet()}, {@code subSet()} and
+ * {@code tailSet()} view of each of the sorted sets in this package. Each set
+ * gives it a {@linkplain Source}, with which it searches, iterates over, and
+ * changes the set.
+ * <p>
+ * A {@code null} bound means the range is open at that end. The bounds
+ * are always held in ascending order; {@code descending} reverses the
+ * order in which the elements are presented.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ * @param <E> type of element
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+final class BoundedSet<E extends Comparable<E>> extends AbstractSet<E> implements NavigableSet<E>
+{
+
+    /**
+     * Key out of range string.
+     */
+    private static final String KEY_OUT_OF_RANGE = "key out of range";
+
+    /**
+     * {@code true} if this view presents its elements in descending order.
+     */
+    private final boolean descending;
+
+    /**
+     * The upper bound, or {@code null} if there is none.
+     */
+    private final E hi;
+
+    /**
+     * {@code true} if the upper bound is included.
+     */
+    private final boolean hiInclusive;
+
+    /**
+     * The lower bound, or {@code null} if there is none.
+     */
+    private final E lo;
+
+    /**
+     * {@code true} if the lower bound is included.
+     */
+    private final boolean loInclusive;
+
+    /**
+     * The set this is a view of.
+     */
+    private final Source<E> source;
+
+    /**
+     * Instantiates a new BoundedSet object.
+     *
+     * @param source      the set this is a view of
+     * @param lo          the lower bound, or {@code null} if there is none
+     * @param loInclusive {@code true} if the lower bound is included
+     * @param hi          the upper bound, or {@code null} if there is none
+     * @param hiInclusive {@code true} if the upper bound is included
+     * @param descending  {@code true} if the elements are to be presented in descending order
+     */
+    BoundedSet(Source<E> source, E lo, boolean loInclusive, E hi, boolean hiInclusive, boolean descending)
+    {
+        this.source = source;
+        this.lo = lo;
+        this.loInclusive = loInclusive;
+        this.hi = hi;
+        this.hiInclusive = hiInclusive;
+        this.descending = descending;
+    }
+
+    @Override
+    public boolean add(E e)
+    {
+        if (!inRange(Objects.requireNonNull(e, NO_NULLS)))
+        {
+            throw new IllegalArgumentException(KEY_OUT_OF_RANGE);
+        }
+
+        return source.add(e);
+    }
+
+    @Override
+    public E ceiling(E e)
+    {
+        return descending ? absFloor(e, true) : absCeiling(e, true);
+    }
+
+    @Override
+    public Comparator<? super E> comparator()
+    {
+        return descending ? Collections.reverseOrder(source.comparator()) : source.comparator();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o)
+    {
+        return inRange((E) Objects.requireNonNull(o, NO_NULLS)) && source.contains(o);
+    }
+
+    @Override
+    public Iterator<E> descendingIterator()
+    {
+        return descending ? ascendingIterator() : reverseIterator();
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet()
+    {
+        return new BoundedSet<>(source, lo, loInclusive, hi, hiInclusive, !descending);
+    }
+
+    @Override
+    public E first()
+    {
+        return key(descending ? absHighest() : absLowest());
+    }
+
+    @Override
+    public E floor(E e)
+    {
+        return descending ? absCeiling(e, true) : absFloor(e, true);
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement)
+    {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive)
+    {
+        checkBound(toElement, inclusive);
+
+        return descending
+               ? new BoundedSet<>(source, toElement, inclusive, hi, hiInclusive, true)
+               : new BoundedSet<>(source, lo, loInclusive, toElement, inclusive, false);
+    }
+
+    @Override
+    public E higher(E e)
+    {
+        return descending ? absFloor(e, false) : absCeiling(e, false);
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return descending ? reverseIterator() : ascendingIterator();
+    }
+
+    @Override
+    public E last()
+    {
+        return key(descending ? absLowest() : absHighest());
+    }
+
+    @Override
+    public E lower(E e)
+    {
+        return descending ? absCeiling(e, false) : absFloor(e, false);
+    }
+
+    @Override
+    public E pollFirst()
+    {
+        return poll(descending ? absHighest() : absLowest());
+    }
+
+    @Override
+    public E pollLast()
+    {
+        return poll(descending ? absLowest() : absHighest());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o)
+    {
+        return inRange((E) Objects.requireNonNull(o, NO_NULLS)) && source.remove(o);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @see Source#size(Comparable, boolean, Comparable, boolean)
+     */
+    @Override
+    public int size()
+    {
+        return source.size(lo, loInclusive, hi, hiInclusive);
+    }
+
+    @Override
+    public Spliterator<E> spliterator()
+    {
+        Spliterator<E> rtn = descending ? null : source.spliterator(lo, loInclusive, hi, hiInclusive);
+        return rtn != null ? rtn : NavigableSet.super.spliterator();
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement)
+    {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive)
+    {
+        checkBound(fromElement, fromInclusive);
+        checkBound(toElement, toInclusive);
+
+        if (descending)
+        {
+            if (compare(fromElement, toElement) < 0)
+            {
+                throw new IllegalArgumentException("fromElement < toElement");
+            }
+
+            return new BoundedSet<>(source, toElement, toInclusive, fromElement, fromInclusive, true);
+        }
+
+        if (compare(fromElement, toElement) > 0)
+        {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+
+        return new BoundedSet<>(source, fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement)
+    {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive)
+    {
+        checkBound(fromElement, inclusive);
+
+        return descending
+               ? new BoundedSet<>(source, lo, loInclusive, fromElement, inclusive, true)
+               : new BoundedSet<>(source, fromElement, inclusive, hi, hiInclusive, false);
+    }
+
+    /**
+     * Find the least element in range, greater than, or equal to if
+     * {@code inclusive}, the {@code key}.
+     *
+     * @param key       the key to search for
+     * @param inclusive {@code true} if an element equal to the {@code key} will do
+     *
+     * @return the element if found, otherwise {@code null}
+     */
+    private E absCeiling(E key, boolean inclusive)
+    {
+        if (tooLow(Objects.requireNonNull(key, NO_NULLS)))
+        {
+            return absLowest();
+        }
+
+        E rtn = source.ceiling(key, inclusive);
+        return rtn == null || tooHigh(rtn) ? null : rtn;
+    }
+
+    /**
+     * Find the greatest element in range, less than, or equal to if
+     * {@code inclusive}, the {@code key}.
+     *
+     * @param key       the key to search for
+     * @param inclusive {@code true} if an element equal to the {@code key} will do
+     *
+     * @return the element if found, otherwise {@code null}
+     */
+    private E absFloor(E key, boolean inclusive)
+    {
+        if (tooHigh(Objects.requireNonNull(key, NO_NULLS)))
+        {
+            return absHighest();
+        }
+
+        E rtn = source.floor(key, inclusive);
+        return rtn == null || tooLow(rtn) ? null : rtn;
+    }
+
+    /**
+     * Find the greatest element in range.
+     *
+     * @return the element if found, otherwise {@code null}
+     */
+    private E absHighest()
+    {
+        E rtn = hi == null ? source.last() : source.floor(hi, hiInclusive);
+        return rtn == null || tooLow(rtn) ? null : rtn;
+    }
+
+    /**
+     * Find the least element in range.
+     *
+     * @return the element if found, otherwise {@code null}
+     */
+    private E absLowest()
+    {
+        E rtn = lo == null ? source.first() : source.ceiling(lo, loInclusive);
+        return rtn == null || tooHigh(rtn) ? null : rtn;
+    }
+
+    /**
+     * Get an iterator over this range, in ascending order.
+     *
+     * @return the iterator
+     */
+    private Iterator<E> ascendingIterator()
+    {
+        return source.iterator(false, lo, loInclusive, hi, hiInclusive);
+    }
+
+    /**
+     * Check that the {@code key} is a valid bound for a view within this one.
+     *
+     * @param key       the new bound
+     * @param inclusive {@code true} if the new bound is to be included
+     *
+     * @throws IllegalArgumentException if the {@code key} is outside of this range
+     */
+    private void checkBound(E key, boolean inclusive)
+    {
+        Objects.requireNonNull(key, NO_NULLS);
+
+        if (inclusive ? !inRange(key) : !inClosedRange(key))
+        {
+            throw new IllegalArgumentException(KEY_OUT_OF_RANGE);
+        }
+    }
+
+    /**
+     * Compare two elements, in the order of the set.
+     *
+     * @param a the first element
+     * @param b the second element
+     *
+     * @return result of the comparison
+     */
+    private int compare(E a, E b)
+    {
+        Comparator<? super E> comparator = source.comparator();
+        return comparator != null ? comparator.compare(a, b) : a.compareTo(b);
+    }
+
+    /**
+     * Is the {@code key} within the bounds, treating them as inclusive?
+     *
+     * @param key the key to check
+     *
+     * @return result
+     */
+    private boolean inClosedRange(E key)
+    {
+        return (lo == null || compare(key, lo) >= 0)
+               && (hi == null || compare(key, hi) <= 0);
+    }
+
+    /**
+     * Is the {@code key} within this range?
+     *
+     * @param key the key to check
+     *
+     * @return result
+     */
+    private boolean inRange(E key)
+    {
+        return !tooLow(key) && !tooHigh(key);
+    }
+
+    /**
+     * Check that there is an element.
+     *
+     * @param element the element, or {@code null} if there is none
+     *
+     * @return the {@code element}
+     *
+     * @throws NoSuchElementException if the {@code element} is {@code null}
+     */
+    private E key(E element)
+    {
+        if (element == null)
+        {
+            throw new NoSuchElementException();
+        }
+
+        return element;
+    }
+
+    /**
+     * Remove the {@code element} from the set.
+     *
+     * @param element the element, or {@code null} if there is none
+     *
+     * @return the element removed, or {@code null} if {@code element} is {@code null}
+     */
+    private E poll(E element)
+    {
+        if (element != null)
+        {
+            source.remove(element);
+        }
+
+        return element;
+    }
+
+    /**
+     * Get an iterator over this range, in descending order.
+     *
+     * @return the iterator
+     */
+    private Iterator<E> reverseIterator()
+    {
+        return source.iterator(true, hi, hiInclusive, lo, loInclusive);
+    }
+
+    /**
+     * Is the {@code key} above the upper bound?
+     *
+     * @param key the key to check
+     *
+     * @return result
+     */
+    private boolean tooHigh(E key)
+    {
+        if (hi != null)
+        {
+            int cmp = compare(key, hi);
+            return cmp > 0 || (cmp == 0 && !hiInclusive);
+        }
+
+        return false;
+    }
+
+    /**
+     * Is the {@code key} below the lower bound?
+     *
+     * @param key the key to check
+     *
+     * @return result
+     */
+    private boolean tooLow(E key)
+    {
+        if (lo != null)
+        {
+            int cmp = compare(key, lo);
+            return cmp < 0 || (cmp == 0 && !loInclusive);
+        }
+
+        return false;
+    }
+
+    /**
+     * The operations a sorted set provides to its {@linkplain BoundedSet} views.
+     * <p>
+     * Each set implements this in a private inner class, so that none of it
+     * becomes part of the set's own API.
+     *
+     * @param <E> type of element
+     */
+    interface Source<E extends Comparable<E>>
+    {
+
+        /**
+         * Add the {@code e} to the set.
+         *
+         * @param e the element
+         *
+         * @return {@code true} if the set changed
+         */
+        boolean add(E e);
+
+        /**
+         * Find the least element greater than, or if {@code inclusive} equal to,
+         * the {@code key}.
+         *
+         * @param key       the key
+         * @param inclusive {@code true} if an element equal to the {@code key} will do
+         *
+         * @return the element, or {@code null} if there is none
+         */
+        E ceiling(E key, boolean inclusive);
+
+        /**
+         * Get the comparator of the set.
+         *
+         * @return the comparator, or {@code null} for the natural ordering
+         */
+        Comparator<? super E> comparator();
+
+        /**
+         * Is the {@code o} in the set?
+         *
+         * @param o the element
+         *
+         * @return result
+         */
+        boolean contains(Object o);
+
+        /**
+         * Find the first element.
+         *
+         * @return the element, or {@code null} if the set is empty
+         */
+        E first();
+
+        /**
+         * Find the greatest element less than, or if {@code inclusive} equal to,
+         * the {@code key}.
+         *
+         * @param key       the key
+         * @param inclusive {@code true} if an element equal to the {@code key} will do
+         *
+         * @return the element, or {@code null} if there is none
+         */
+        E floor(E key, boolean inclusive);
+
+        /**
+         * Get an iterator over the elements from {@code from}, up to {@code fence}.
+         *
+         * @param descending     {@code true} for a descending iterator
+         * @param from           the element to start from, or {@code null} for the first element
+         * @param fromInclusive  {@code true} if {@code from} is to be included
+         * @param fence          the element to stop at, or {@code null} for the last element
+         * @param fenceInclusive {@code true} if {@code fence} is to be included
+         *
+         * @return the iterator
+         */
+        Iterator<E> iterator(boolean descending, E from, boolean fromInclusive, E fence, boolean fenceInclusive);
+
+        /**
+         * Find the last element.
+         *
+         * @return the element, or {@code null} if the set is empty
+         */
+        E last();
+
+        /**
+         * Remove the {@code o} from the set.
+         *
+         * @param o the element
+         *
+         * @return {@code true} if the set changed
+         */
+        boolean remove(Object o);
+
+        /**
+         * Count the elements within the bounds.
+         *
+         * @param lo          the lower bound, or {@code null} if there is none
+         * @param loInclusive {@code true} if the lower bound is included
+         * @param hi          the upper bound, or {@code null} if there is none
+         * @param hiInclusive {@code true} if the upper bound is included
+         *
+         * @return the number of elements
+         */
+        int size(E lo, boolean loInclusive, E hi, boolean hiInclusive);
+
+        /**
+         * Get a spliterator over the elements within the bounds, in ascending order.
+         *
+         * @param lo          the lower bound, or {@code null} if there is none
+         * @param loInclusive {@code true} if the lower bound is included
+         * @param hi          the upper bound, or {@code null} if there is none
+         * @param hiInclusive {@code true} if the upper bound is included
+         *
+         * @return the spliterator, or {@code null} to use the default one
+         */
+        default Spliterator<E> spliterator(E lo, boolean loInclusive, E hi, boolean hiInclusive)
+        {
+            return null;
+        }
+    }
+}
@@ -71,6 +71,39 @@ public class CSVFile implements Iterable<CSVRow>
         return rows.add(row);
     }
 
+    /**
+     * Appends the CSV data to the end of the file.
+     * <p>
+     * The header is only written if the file is new, or empty.
+     *
+     * @return {@code true} if successful.
+     *
+     * @throws java.io.IOException if any
+     */
+    public boolean appendData() throws IOException
+    {
+        boolean rtn = false;
+
+        if (rows.size() > 0 && fileName != null && !fileName.isBlank())
+        {
+            boolean isNew = new File(fileName).length() == 0;
+
+            try (FileWriter fw = new FileWriter(fileName, true))
+            {
+                fw.write(isNew && !(header == null || header.isEmpty()) ? header.toString() + "\n" : "");
+
+                for (CSVRow row : rows)
+                {
+                    fw.write(row.toString() + "\n");
+                }
+
+                rtn = true;
+            }
+        }
+
+        return rtn;
+    }
+
     /**
      * Get the header text as a CSV String.
      *
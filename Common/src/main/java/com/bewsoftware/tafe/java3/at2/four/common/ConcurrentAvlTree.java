@@ -0,0 +1,612 @@
+/*
+ *  File Name:    ConcurrentAvlTree.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * This is a thread-safe version of the {@linkplain AvlTree}.
+ * <p>
+ * All writes are serialized by a lock. After each write, a {@linkplain #snapshot() snapshot}
+ * of the tree is published. All of the read methods work on the latest published
+ * snapshot, which is never changed, so they neither take a lock nor wait for one.
+ * <p>
+ * The iterators, and the range views, also work on the snapshot current when they are
+ * created, and so never throw {@link ConcurrentModificationException}. The views are
+ * read-only; {@link Iterator#remove()} removes the element from this tree.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ * @param <E> type of item stored in this tree.
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public class ConcurrentAvlTree<E extends Comparable<E>> extends AvlTree<E>
+{
+
+    private static final long serialVersionUID = -2093384745817622311L;
+
+    /**
+     * Serializes the writes to the tree.
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * The latest snapshot of the tree, used by all of the read methods.
+     */
+    private volatile AvlTree<E> published;
+
+    /**
+     * Initializes a new instance of the {@linkplain ConcurrentAvlTree}{@literal <E>} class as a
+     * Balanced Binary Search Tree.
+     */
+    public ConcurrentAvlTree()
+    {
+        super();
+        published = super.snapshot();
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain ConcurrentAvlTree}{@literal <E>} class as a
+     * Binary Search Tree that will/will not be balanced based on the value of the
+     * parameter: {@code balanced}.
+     *
+     * @param balanced if {@code true} tree will be balanced
+     */
+    public ConcurrentAvlTree(boolean balanced)
+    {
+        super(balanced);
+        published = super.snapshot();
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain ConcurrentAvlTree}{@literal <E>} class as a
+     * Binary Search Tree, kept balanced according to the {@code policy}.
+     *
+     * @param policy how closely the tree is to be kept balanced
+     */
+    public ConcurrentAvlTree(BalancePolicy policy)
+    {
+        super(policy);
+        published = super.snapshot();
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain ConcurrentAvlTree}{@literal <E>} class as a
+     * Balanced Binary Search Tree, ordered by the {@code comparator}.
+     *
+     * @param comparator the ordering of the elements, or {@code null} for their
+     *                   {@linkplain Comparable natural ordering}
+     */
+    public ConcurrentAvlTree(Comparator<? super E> comparator)
+    {
+        super(comparator);
+        published = super.snapshot();
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain ConcurrentAvlTree}{@literal <E>} class with
+     * the contents of the {@code list} as a Balanced Binary Search Tree.
+     *
+     * @param list the list containing the items to add to this tree
+     */
+    public ConcurrentAvlTree(List<E> list)
+    {
+        super(list);
+        published = super.snapshot();
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain ConcurrentAvlTree}{@literal <E>} class, as a
+     * Binary Search Tree that will/will not be balanced based on the value of the
+     * parameter: {@code balanced}, with the contents of the {@code list}.
+     *
+     * @param list     the list containing the items to add to this tree
+     * @param balanced if {@code true} tree will be balanced
+     */
+    public ConcurrentAvlTree(List<E> list, boolean balanced)
+    {
+        super(list, balanced);
+        published = super.snapshot();
+    }
+
+    @Override
+    public boolean add(E e)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.add(e);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.addAll(c);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public E ceiling(E e)
+    {
+        return published.ceiling(e);
+    }
+
+    @Override
+    public void clear()
+    {
+        lock.lock();
+
+        try
+        {
+            super.clear();
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public boolean containsAll(Collection<?> c)
+    {
+        return published.containsAll(c);
+    }
+
+    @Override
+    public boolean delete(E target)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.delete(target);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public Iterator<E> descendingIterator()
+    {
+        return new SnapshotItor(published.descendingIterator());
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet()
+    {
+        return Collections.unmodifiableNavigableSet(published.descendingSet());
+    }
+
+    @Override
+    public void display()
+    {
+        published.display();
+    }
+
+    @Override
+    public void enableLookupCache(int size)
+    {
+        lock.lock();
+
+        try
+        {
+            super.enableLookupCache(size);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public AvlTreeStats enableStatistics()
+    {
+        lock.lock();
+
+        try
+        {
+            return super.enableStatistics();
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public E first()
+    {
+        return published.first();
+    }
+
+    @Override
+    public E floor(E e)
+    {
+        return published.floor(e);
+    }
+
+    @Override
+    public E get(int index)
+    {
+        return published.get(index);
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive)
+    {
+        return Collections.unmodifiableNavigableSet(published.headSet(toElement, inclusive));
+    }
+
+    @Override
+    public E higher(E e)
+    {
+        return published.higher(e);
+    }
+
+    @Override
+    public int indexOf(Object o)
+    {
+        return published.indexOf(o);
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return published.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Always {@code true}, as the iterators of this tree work on the published snapshot.
+     *
+     * @return {@code true}
+     */
+    @Override
+    public boolean isSnapshotIteration()
+    {
+        return true;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return new SnapshotItor(published.iterator());
+    }
+
+    @Override
+    public E last()
+    {
+        return published.last();
+    }
+
+    @Override
+    public E lower(E e)
+    {
+        return published.lower(e);
+    }
+
+    @Override
+    public E pollFirst()
+    {
+        lock.lock();
+
+        try
+        {
+            return super.pollFirst();
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public E pollLast()
+    {
+        lock.lock();
+
+        try
+        {
+            return super.pollLast();
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public void read(DataInput in, ElementCodec<? extends E> codec) throws IOException
+    {
+        lock.lock();
+
+        try
+        {
+            super.read(in, codec);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
+    {
+        lock.lock();
+
+        try
+        {
+            super.readExternal(in);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.remove(o);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> c)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.removeAll(c);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public E removeAt(int index)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.removeAt(index);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex)
+    {
+        lock.lock();
+
+        try
+        {
+            super.removeRange(fromIndex, toIndex);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> c)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.retainAll(c);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    /**
+     * Has no effect, as the iterators of this tree always work on the published snapshot.
+     *
+     * @param snapshotIteration ignored
+     */
+    @Override
+    public void setSnapshotIteration(boolean snapshotIteration)
+    {
+        // Nothing to do.
+    }
+
+    @Override
+    public int size()
+    {
+        return published.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * This is the snapshot used by the read methods, so it costs nothing extra.
+     */
+    @Override
+    public AvlTree<E> snapshot()
+    {
+        // Snapshot the published tree, rather than hand it out, so that
+        // nothing can change what the readers see.
+        return published.snapshot();
+    }
+
+    @Override
+    public Spliterator<E> spliterator()
+    {
+        return published.spliterator();
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive)
+    {
+        return Collections.unmodifiableNavigableSet(published.subSet(fromElement, fromInclusive, toElement, toInclusive));
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive)
+    {
+        return Collections.unmodifiableNavigableSet(published.tailSet(fromElement, inclusive));
+    }
+
+    @Override
+    public Object[] toArray()
+    {
+        return published.toArray();
+    }
+
+    @Override
+    public <T> T[] toArray(T[] a)
+    {
+        return published.toArray(a);
+    }
+
+    @Override
+    public String toString()
+    {
+        return published.toString();
+    }
+
+    @Override
+    protected <K> E extract(K key, ToIntBiFunction<? super K, ? super E> comparator)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.extract(key, comparator);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    @Override
+    public void write(DataOutput out, ElementCodec<? super E> codec) throws IOException
+    {
+        published.write(out, codec);
+    }
+
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException
+    {
+        published.writeExternal(out);
+    }
+
+    /**
+     * Finds the specified key, in the latest published snapshot.
+     *
+     * @param key the key to search for
+     *
+     * @return the {@linkplain Node}{@literal <T>} if found, or {@code null} otherwise
+     */
+    @Override
+    protected Node<E> find(E key)
+    {
+        return published.find(key);
+    }
+
+    @Override
+    protected long[] getDepthHistogram()
+    {
+        return published.getDepthHistogram();
+    }
+
+    @Override
+    protected int getHeight()
+    {
+        return published.getHeight();
+    }
+
+    @Override
+    protected E replace(E e)
+    {
+        lock.lock();
+
+        try
+        {
+            return super.replace(e);
+        } finally
+        {
+            publish();
+        }
+    }
+
+    /**
+     * Search for the element matching the {@code key}, in the latest published snapshot.
+     *
+     * @param <K>        the type of the key
+     * @param key        the key to search for
+     * @param comparator compares the {@code key} with an element
+     *
+     * @return the element, or {@code null} if not found
+     */
+    @Override
+    protected <K> E search(K key, ToIntBiFunction<? super K, ? super E> comparator)
+    {
+        return published.search(key, comparator);
+    }
+
+    /**
+     * Publish a snapshot of the tree, and release the write lock.
+     * <p>
+     * The snapshot is published even if the write failed part way through,
+     * so that the readers never fall behind.
+     */
+    private void publish()
+    {
+        try
+        {
+            published = super.snapshot();
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *  File Name:    ElementCodec.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes elements to, and reads them back from, a compact binary stream.
+ * <p>
+ * This avoids the overhead of {@link java.io.ObjectOutput#writeObject(Object) writeObject()},
+ * which records the class of every element.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ * @param <E> type of element
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public interface ElementCodec<E>
+{
+
+    /**
+     * Writes {@linkplain String}s in modified UTF-8, as {@link DataOutput#writeUTF(String)}.
+     */
+    ElementCodec<String> UTF = new ElementCodec<>()
+    {
+        @Override
+        public String read(DataInput in) throws IOException
+        {
+            return in.readUTF();
+        }
+
+        @Override
+        public void write(DataOutput out, String element) throws IOException
+        {
+            out.writeUTF(element);
+        }
+    };
+
+    /**
+     * Read an element.
+     *
+     * @param in the stream to read from
+     *
+     * @return the element
+     *
+     * @throws IOException if any
+     */
+    E read(DataInput in) throws IOException;
+
+    /**
+     * Write the {@code element}.
+     *
+     * @param out     the stream to write to
+     * @param element the element to write
+     *
+     * @throws IOException if any
+     */
+    void write(DataOutput out, E element) throws IOException;
+}
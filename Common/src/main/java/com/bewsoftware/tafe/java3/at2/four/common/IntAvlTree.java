@@ -0,0 +1,255 @@
+/*
+ *  File Name:    IntAvlTree.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.Arrays;
+import java.util.PrimitiveIterator;
+
+/**
+ * This is a sorted set of {@code int}s, held unboxed, in a Balanced Binary Search Tree.
+ * <p>
+ * The keys are kept in a {@code int[]} pool, alongside the pools of links kept
+ * by the {@linkplain AbstractPooledAvlTree}, so no element is ever boxed.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public class IntAvlTree extends AbstractPooledAvlTree
+{
+
+    /**
+     * The default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The key of each Node.
+     */
+    private int[] keys;
+
+    /**
+     * Initializes a new instance of the {@linkplain IntAvlTree} class.
+     */
+    public IntAvlTree()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain IntAvlTree} class, with
+     * room for {@code initialCapacity} elements before the pools have to grow.
+     *
+     * @param initialCapacity the initial capacity
+     */
+    public IntAvlTree(int initialCapacity)
+    {
+        super(initialCapacity);
+    }
+
+    /**
+     * Adds the {@code key} to this set, if it is not already present.
+     *
+     * @param key the key to add
+     *
+     * @return {@code true} if this set did not already contain the {@code key}
+     */
+    public boolean add(int key)
+    {
+        keys[PROBE] = key;
+        return insertProbe();
+    }
+
+    /**
+     * Returns {@code true} if this set contains the {@code key}.
+     *
+     * @param key the key to look for
+     *
+     * @return {@code true} if this set contains the {@code key}
+     */
+    public boolean contains(int key)
+    {
+        keys[PROBE] = key;
+        return findProbe() != NIL;
+    }
+
+    /**
+     * Returns the lowest key in this set.
+     *
+     * @return the lowest key
+     *
+     * @throws java.util.NoSuchElementException if this set is empty
+     */
+    public int first()
+    {
+        return keys[firstId()];
+    }
+
+    /**
+     * Returns an iterator over the keys in this set, in ascending order.
+     *
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt iterator()
+    {
+        return new Itor();
+    }
+
+    /**
+     * Returns an iterator over the keys in this set, in ascending order, from
+     * {@code fromKey}, inclusive, to {@code toKey}, exclusive.
+     *
+     * @param fromKey the lowest key to return
+     * @param toKey   the key to stop at
+     *
+     * @return the iterator
+     */
+    public PrimitiveIterator.OfInt iterator(int fromKey, int toKey)
+    {
+        keys[PROBE] = fromKey;
+        return new Itor(toKey);
+    }
+
+    /**
+     * Returns the highest key in this set.
+     *
+     * @return the highest key
+     *
+     * @throws java.util.NoSuchElementException if this set is empty
+     */
+    public int last()
+    {
+        return keys[lastId()];
+    }
+
+    /**
+     * Removes the {@code key} from this set, if it is present.
+     *
+     * @param key the key to remove
+     *
+     * @return {@code true} if this set contained the {@code key}
+     */
+    public boolean remove(int key)
+    {
+        keys[PROBE] = key;
+        return deleteProbe();
+    }
+
+    /**
+     * Returns an array containing all of the keys in this set, in ascending order.
+     *
+     * @return the array
+     */
+    public int[] toArray()
+    {
+        int[] rtn = new int[size()];
+        PrimitiveIterator.OfInt it = iterator();
+
+        for (int i = 0; i < rtn.length; i++)
+        {
+            rtn[i] = it.nextInt();
+        }
+
+        return rtn;
+    }
+
+    @Override
+    public String toString()
+    {
+        return Arrays.toString(toArray());
+    }
+
+    @Override
+    protected void allocateKeys(int capacity)
+    {
+        keys = new int[capacity];
+    }
+
+    @Override
+    protected int compare(int idA, int idB)
+    {
+        return Integer.compare(keys[idA], keys[idB]);
+    }
+
+    @Override
+    protected void copyKey(int from, int to)
+    {
+        keys[to] = keys[from];
+    }
+
+    @Override
+    protected void resizeKeys(int capacity)
+    {
+        keys = Arrays.copyOf(keys, capacity);
+    }
+
+    /**
+     * This is an in-order iterator, over an optional range of keys.
+     */
+    private class Itor extends PooledItor implements PrimitiveIterator.OfInt
+    {
+
+        /**
+         * {@code true} if there is a {@code toKey}.
+         */
+        private final boolean bounded;
+
+        /**
+         * The key to stop at.
+         */
+        private final int toKey;
+
+        /**
+         * Instantiates a new Itor object, over all of the keys.
+         */
+        public Itor()
+        {
+            super(false, false);
+            bounded = false;
+            toKey = 0;
+        }
+
+        /**
+         * Instantiates a new Itor object, over the keys from the one in
+         * {@link #PROBE}, inclusive, to {@code toKey}, exclusive.
+         *
+         * @param toKey the key to stop at
+         */
+        public Itor(int toKey)
+        {
+            super(true, true);
+            bounded = true;
+            this.toKey = toKey;
+        }
+
+        @Override
+        public int nextInt()
+        {
+            return keys[nextId()];
+        }
+
+        @Override
+        protected boolean isPastFence(int id)
+        {
+            return bounded && keys[id] >= toKey;
+        }
+    }
+}
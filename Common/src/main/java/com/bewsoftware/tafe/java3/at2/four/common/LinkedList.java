@@ -29,8 +29,13 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * This is an implementation of a Doubly Linked List.
@@ -42,6 +47,19 @@ import java.util.Objects;
  * <li>By default, this implementation allows duplicate items to be added.<br>
  * However, it is possible to change that at instantiation - see: {@linkplain #LinkedList(boolean)
  * }.</li>
+ * <li>The position in the list is held by a {@linkplain Cursor}. The traversal
+ * methods of the list itself use its own Cursor, so only one thread at a time
+ * can use them. Each thread should get its own from {@link #cursor()}.</li>
+ * <li>The read-only methods, {@link #contains(Object) contains()}, {@link #get(Object) get()},
+ * {@link #iterator()}, {@link #toString()} and {@link #writeExternal(ObjectOutput) writeExternal()},
+ * do not move any Cursor. So, as long as the list is not being changed, any number of
+ * threads can use them at the same time, without locking.</li>
+ * <li>A list that does not allow duplicates can keep a hash index of its items - see:
+ * {@linkplain #enableIndex()}. Searches, and the duplicate check made by every add, then
+ * take O(1), instead of a scan of the whole list.</li>
+ * <li>Reading a list with {@link #readExternal(ObjectInput) readExternal()} takes O(n). It
+ * relies on the items having a {@code hashCode()} method that is consistent with their
+ * {@code equals(Object)} method, whether or not the list is indexed.</li>
  * </ul>
  *
  *
@@ -78,15 +96,20 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
     private boolean allowDuplicates;
 
     /**
-     * The node that was last retrieved by one of the traversal methods.
+     * The Cursor used by the traversal methods of the list itself.
      */
-    private transient Node<E> current;
+    private final transient Cursor cursor = new Cursor();
 
     /**
      * The first node in the chain.
      */
     private transient Node<E> first;
 
+    /**
+     * The node holding each item, or {@code null} if the index is not enabled.
+     */
+    private transient Map<E, Node<E>> index;
+
     /**
      * The last node in the chain.
      */
@@ -135,29 +158,14 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
     {
         Node<E> node = new Node<>(Objects.requireNonNull(item, NO_NULL));
 
-        // Is the list empty?
-        if (last == null)
-        {
-            // Yes - add first node
-            first = node;
-            last = node;
-            current = node;
-        } else
+        // Check for disallowed duplicates
+        if (foundDisallowedDuplicate(item))
         {
-            // Check for disallowed duplicates
-            if (foundDisallowedDuplicate(item))
-            {
-                return false;
-            }
-
-            // Add node to tail of chain
-            node.previous = last;
-            last.next = node;
-            last = node;
+            return false;
         }
 
-        current = node;
-        size++;
+        linkAfter(last, node);
+        cursor.current = node;
         return true;
     }
 
@@ -166,16 +174,28 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public void clear()
     {
-        current = null;
+        // Mark every node, so that no Cursor left on one can change the new chain.
+        for (Node<E> node = first; node != null; node = node.next)
+        {
+            node.removed = true;
+        }
+
+        cursor.current = null;
         first = null;
         last = null;
         size = 0;
+
+        if (index != null)
+        {
+            index.clear();
+        }
     }
 
     /**
      * Searches for the first occurrence of the item in the list.
      * <p>
-     * If found, this becomes the current reference point in the list.
+     * This does not move any {@linkplain Cursor}. To move to the item, use
+     * {@link Cursor#find(Object)}.
      *
      * @param item to search for
      *
@@ -185,26 +205,50 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public boolean contains(final E item)
     {
-        Objects.requireNonNull(item, NO_NULL);
+        return findNode(item) != null;
+    }
 
-        boolean rtn = false;
-        current = first;
+    /**
+     * Get a new Cursor over this list, not yet pointing at any item.
+     * <p>
+     * Each Cursor has its own position, so several can be used at the same time.
+     *
+     * @return the new Cursor
+     */
+    public Cursor cursor()
+    {
+        return new Cursor();
+    }
 
-        // While we have something to work with
-        while (current != null)
+    /**
+     * Start keeping a hash index of the items in this list.
+     * <p>
+     * The index maps each item to the node holding it, so that {@link #contains(Object) contains()},
+     * {@link #get(Object) get()}, {@link Cursor#find(Object)}, and the duplicate check made by
+     * {@link #add(Object) add()}, {@link #push(Object) push()} and the inserts, take O(1).
+     * Building it takes O(n). It is not saved by {@link #writeExternal(ObjectOutput) writeExternal()}.
+     * <p>
+     * <b>Note:</b> The items must have a {@code hashCode()} method that is consistent
+     * with their {@code equals(Object)} method.
+     *
+     * @throws IllegalStateException if this list allows duplicates
+     */
+    public void enableIndex()
+    {
+        if (allowDuplicates)
         {
-            // Have we found one?
-            if (current.item.equals(item))
-            { // Yes - return true
-                rtn = true;
-                break;
-            } else
-            { // No - pointer to the next node
-                current = current.next;
-            }
+            throw new IllegalStateException("Only a list that does not allow duplicates can be indexed.");
         }
 
-        return rtn;
+        if (index == null)
+        {
+            index = new HashMap<>(Math.max(16, (int) (size / 0.75f) + 1));
+
+            for (Node<E> node = first; node != null; node = node.next)
+            {
+                index.put(node.item, node);
+            }
+        }
     }
 
     /**
@@ -217,14 +261,13 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public E first()
     {
-        current = first;
-        return (first != null) ? first.item : null;
+        return cursor.first();
     }
 
     /**
      * Searches for the first occurrence of the item in the list and returns it.
      * <p>
-     * If found, this becomes the current reference point in the list.
+     * This does not move any {@linkplain Cursor}.
      * <p>
      * <b>Note:</b> This is only useful, if the class used {@literal (<E>) } has
      * an {@code equals(Object) } method
@@ -239,19 +282,14 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      *
      * @param item to search for
      *
-     * @return {@code true } if found, {@code false } otherwise
+     * @return the item found, or {@code null } if not found
      *
      * @throws NullPointerException if item is {@code null}
      */
     public E get(final E item)
     {
-        if (contains(item))
-        {
-            return current.item;
-        } else
-        {
-            return null;
-        }
+        Node<E> node = findNode(item);
+        return node != null ? node.item : null;
     }
 
     /**
@@ -263,7 +301,7 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public boolean hasNext()
     {
-        return (current != null && current.next != null);
+        return cursor.hasNext();
     }
 
     /**
@@ -280,38 +318,7 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public boolean insert(final E item)
     {
-
-        // Are we out of bounds or pointing at the top?
-        if (current == null || current.previous == null)
-        { // Yes
-            return push(item);
-
-        } else
-        { // No - so we insert it before the current node
-            Node<E> node = new Node<>(Objects.requireNonNull(item, NO_NULL));
-
-            // Check for disallowed duplicates
-            if (foundDisallowedDuplicate(item))
-            {
-                return false;
-            }
-
-            // Add node
-            // point node to previous node
-            node.previous = current.previous;
-            // point current node to node
-            current.previous = node;
-
-            // point previous node to node
-            node.previous.next = node;
-            // point node to next node
-            node.next = current;
-
-            // point current reference pointer to node
-            current = node;
-            size++;
-            return true;
-        }
+        return cursor.insert(item);
     }
 
     /**
@@ -328,38 +335,7 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public boolean insertAfter(final E item)
     {
-
-        // Are we out of bounds or pointing at the top?
-        if (current == null || current.next == null)
-        { // Yes
-            return add(item);
-
-        } else
-        { // No - so we insert it before the current node
-            Node<E> node = new Node<>(Objects.requireNonNull(item, NO_NULL));
-
-            // Check for disallowed duplicates
-            if (foundDisallowedDuplicate(item))
-            {
-                return false;
-            }
-
-            // Add node
-            // point node to next node
-            node.next = current.next;
-            // point current node to node
-            current.next = node;
-
-            // point next node to node
-            node.next.previous = node;
-            // point node to previous node
-            node.previous = current;
-
-            // point current reference pointer to node
-            current = node;
-            size++;
-            return true;
-        }
+        return cursor.insertAfter(item);
     }
 
     /**
@@ -373,6 +349,25 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
         return allowDuplicates;
     }
 
+    /**
+     * Is this list keeping a hash index of its items?
+     *
+     * @return {@code true } if it is, {@code false } otherwise
+     *
+     * @see #enableIndex()
+     */
+    public boolean isIndexed()
+    {
+        return index != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The iterator has its own position, and does not move any {@linkplain Cursor}.
+     *
+     * @return an iterator over the items, from the top of the list
+     */
     @Override
     public Iterator<E> iterator()
     {
@@ -380,35 +375,27 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
         {
 
             /**
-             * First time this instance of {@code hasNaext() } was run.
+             * The node holding the next item to return.
              */
-            private boolean firstTime = true;
+            private Node<E> nextNode = first;
 
             @Override
             public boolean hasNext()
             {
-
-                if (firstTime)
-                {
-                    return (size() > 0);
-
-                } else
-                {
-                    return LinkedList.this.hasNext();
-                }
+                return nextNode != null;
             }
 
             @Override
             public E next()
             {
-                if (firstTime)
-                {
-                    firstTime = false;
-                    return first();
-                } else
+                if (nextNode == null)
                 {
-                    return LinkedList.this.next();
+                    throw new NoSuchElementException();
                 }
+
+                E rtn = nextNode.item;
+                nextNode = nextNode.next;
+                return rtn;
             }
 
             @Override
@@ -429,8 +416,7 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public E last()
     {
-        current = last;
-        return (last != null) ? last.item : null;
+        return cursor.last();
     }
 
     /**
@@ -448,25 +434,7 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public boolean next(final E item)
     {
-        Objects.requireNonNull(item, NO_NULL);
-
-        boolean rtn = false;
-
-        // While we have something to work with
-        while (current != null)
-        {
-            // Have we found one?
-            if (current.item.equals(item))
-            { // Yes - return true
-                rtn = true;
-                break;
-            } else
-            { // No - pointer to the next node
-                current = current.next;
-            }
-        }
-
-        return rtn;
+        return cursor.next(item);
     }
 
     /**
@@ -482,21 +450,7 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     public E next()
     {
-        E rtn = null;
-
-        // Are we pointing to something?
-        if (current != null)
-        { // Yes - shift the pointer
-            current = current.next;
-
-            // Are we pointing to something now?
-            if (current != null)
-            { // Yes - get item to return
-                rtn = current.item;
-            }
-        }
-
-        return rtn;
+        return cursor.next();
     }
 
     /**
@@ -516,19 +470,8 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
         if (first != null)
         {
             // No - get item and remove node
-            item = first.item;
-            first = first.next;
-
-            if (first != null)
-            {
-                first.previous = null;
-            } else
-            {
-                last = null;
-            }
-
-            current = first;
-            size--;
+            item = unlink(first);
+            cursor.current = first;
         } // Yes - nothing to do
 
         return item;
@@ -537,31 +480,17 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
     /**
      * Retrieves the previous item from the list.
      * <p>
-     * The item retrieved is the one following the last item retrieved
+     * The item retrieved is the one preceding the last item retrieved
      * or located by this or other traversal methods.
      * <p>
      * If found, this becomes the current reference point in the list.
      *
-     * @return the item found, or {@code null } if either past the end of the
+     * @return the item found, or {@code null } if either past the top of the
      *         list, or the list is empty.
      */
     public E prev()
     {
-        E rtn = null;
-
-        // Are we pointing to something?
-        if (current != null)
-        { // Yes - shift the pointer
-            current = current.previous;
-
-            // Are we pointing to something now?
-            if (current != null)
-            { // Yes - get item to return
-                rtn = current.item;
-            }
-        }
-
-        return rtn;
+        return cursor.prev();
     }
 
     /**
@@ -581,19 +510,8 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
         if (last != null)
         {
             // No - get item and remove node
-            item = last.item;
-            last = last.next;
-
-            if (last != null)
-            {
-                last.next = null;
-            } else
-            {
-                first = null;
-            }
-
-            current = last;
-            size--;
+            item = unlink(last);
+            cursor.current = last;
         } // Yes - nothing to do
 
         return item;
@@ -617,32 +535,33 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
     {
         Node<E> node = new Node<>(Objects.requireNonNull(item, NO_NULL));
 
-        // Is the list empty?
-        if (first == null)
-        {
-            // Yes - add first node
-            first = node;
-            last = node;
-            current = node;
-        } else
+        // Check for disallowed duplicates
+        if (foundDisallowedDuplicate(item))
         {
-            // Check for disallowed duplicates
-            if (foundDisallowedDuplicate(item))
-            {
-                return false;
-            }
-
-            // Add node to tail of chain
-            node.next = first;
-            first.previous = node;
-            first = node;
+            return false;
         }
 
-        current = node;
-        size++;
+        linkBefore(first, node);
+        cursor.current = node;
         return true;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The items read are appended to this list, in O(n). If the stream's list
+     * did not allow duplicates, each item is checked against those already read,
+     * with a {@linkplain HashSet}, rather than by the {@code equals(Object)} scan
+     * of {@link #add(Object) add()}, which would make reading O(n<sup>2</sup>).
+     * <p>
+     * <b>Note:</b> The items must have a {@code hashCode()} method that is consistent
+     * with their {@code equals(Object)} method. The stream already holds each item's
+     * {@code hashCode()}, to check its integrity, so reading relies on it anyway.
+     * An item whose {@code hashCode()} differs from the one written, a {@code null }
+     * item, or a duplicate where none are allowed, means the data is corrupt.
+     *
+     * @throws IOException if any, or if the data fails its integrity checks
+     */
     @Override
     public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException
     {
@@ -669,6 +588,11 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
             throw new IOException(DATA_ITEGRITY_FAILED);
         }
 
+        // The items are appended without the O(n) duplicate check of add().
+        // So, if duplicates are not allowed, they are checked for here, in O(1) each,
+        // which relies on hashCode() being consistent with equals().
+        Set<E> seen = allowDuplicates ? null : new HashSet<>();
+
         for (int i = 0; i < numOfNodes; i++)
         {
             // process 'item'
@@ -677,12 +601,17 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
             hashCode = in.readInt();
             totalHashCode += hashCode;
 
-            if (item.hashCode() != hashCode)
+            if (item == null || item.hashCode() != hashCode)
             {
                 throw new IOException(DATA_ITEGRITY_FAILED);
             }
 
-            add(item);
+            if (seen != null && !seen.add(item))
+            {
+                throw new IOException(DATA_ITEGRITY_FAILED);
+            }
+
+            linkAfter(last, new Node<>(item));
         }
 
         // process 'finish'
@@ -697,35 +626,11 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
     /**
      * Removes the item at the current reference point in the list.
      *
-     * @return {@code true } if successful, {@code false } otherwise
+     * @return the item removed, or {@code null } if there is no current item
      */
     public E remove()
     {
-        E rtn = null;
-
-        if (current != null)
-        {
-            // Are we at the top of the list?
-            if (current.previous == null)
-            { // Yes
-                rtn = pop();
-                // Are we at the bottom of the list?
-            } else if (current.next == null)
-            { // Yes
-                rtn = pull();
-
-            } else
-            {
-                // We are in the midst of the list
-                current.previous.next = current.next;
-                current.next.previous = current.previous;
-                rtn = current.item;
-                current = current.next;
-                size--;
-            }
-        }
-
-        return rtn;
+        return cursor.remove();
     }
 
     /**
@@ -745,19 +650,9 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
 
         sb.append("    size = ").append(size).append('\n');
 
-        // process first item in list
-        E item = first();
-
-        if (item != null)
+        for (Node<E> node = first; node != null; node = node.next)
         {
-            sb.append("    item = ").append(item).append('\n');
-        }
-
-        // process the rest of the list
-        while (hasNext())
-        {
-            item = next();
-            sb.append("    item = ").append(item).append('\n');
+            sb.append("    item = ").append(node.item).append('\n');
         }
 
         sb.append("}\n");
@@ -783,29 +678,51 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
         totalHashCode += hashCode;
         out.writeInt(hashCode);
 
-        // process first item in list
-        E item = first();
-
-        if (item != null)
+        for (Node<E> node = first; node != null; node = node.next)
         {
-            out.writeObject(item);
-            hashCode = item.hashCode();
+            out.writeObject(node.item);
+            hashCode = node.item.hashCode();
             totalHashCode += hashCode;
             out.writeInt(hashCode);
         }
 
-        // process the rest of the list
-        while (hasNext())
+        // finish
+        out.writeInt(totalHashCode);
+    }
+
+    /**
+     * Find the node holding the first occurrence of the item.
+     * <p>
+     * This does not move any {@linkplain Cursor}. It uses the index, if enabled,
+     * and otherwise scans the list.
+     *
+     * @param item to search for
+     *
+     * @return the node, or {@code null } if not found
+     *
+     * @throws NullPointerException if item is {@code null}
+     */
+    private Node<E> findNode(final E item)
+    {
+        Objects.requireNonNull(item, NO_NULL);
+
+        Node<E> rtn;
+
+        if (index != null)
         {
-            E next = next();
-            out.writeObject(next);
-            hashCode = next.hashCode();
-            totalHashCode += hashCode;
-            out.writeInt(hashCode);
+            rtn = index.get(item);
+        } else
+        {
+            rtn = first;
+
+            // While we have something to work with, that is not it
+            while (rtn != null && !rtn.item.equals(item))
+            {
+                rtn = rtn.next;
+            }
         }
 
-        // finish
-        out.writeInt(totalHashCode);
+        return rtn;
     }
 
     /**
@@ -819,24 +736,420 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
      */
     private boolean foundDisallowedDuplicate(final E item)
     {
-        boolean rtn = false;
+        return !allowDuplicates && findNode(item) != null;
+    }
+
+    /**
+     * Link the {@code node} into the chain, after the {@code previous} node.
+     *
+     * @param previous the node to link after, or {@code null } to link at the top
+     * @param node     the new node
+     */
+    private void linkAfter(final Node<E> previous, final Node<E> node)
+    {
+        node.previous = previous;
+        node.next = previous != null ? previous.next : first;
+
+        if (node.previous != null)
+        {
+            node.previous.next = node;
+        } else
+        {
+            first = node;
+        }
+
+        if (node.next != null)
+        {
+            node.next.previous = node;
+        } else
+        {
+            last = node;
+        }
+
+        if (index != null)
+        {
+            index.put(node.item, node);
+        }
+
+        size++;
+    }
+
+    /**
+     * Link the {@code node} into the chain, before the {@code next} node.
+     *
+     * @param next the node to link before, or {@code null } to link at the bottom
+     * @param node the new node
+     */
+    private void linkBefore(final Node<E> next, final Node<E> node)
+    {
+        linkAfter(next != null ? next.previous : last, node);
+    }
 
-        // Are duplicates allowed?
-        if (!allowDuplicates)
-        { // No - store current pointer
-            Node<E> tempNode = current;
+    /**
+     * Get the first node still in the chain, starting at the {@code node} and
+     * following the {@code next} links.
+     *
+     * @param node the node to start at
+     *
+     * @return the node, or {@code null } if there is none
+     */
+    private Node<E> nextLinked(Node<E> node)
+    {
+        while (node != null && node.removed)
+        {
+            node = node.next;
+        }
+
+        return node;
+    }
+
+    /**
+     * Get the first node still in the chain, starting at the {@code node} and
+     * following the {@code previous} links.
+     *
+     * @param node the node to start at
+     *
+     * @return the node, or {@code null } if there is none
+     */
+    private Node<E> previousLinked(Node<E> node)
+    {
+        while (node != null && node.removed)
+        {
+            node = node.previous;
+        }
+
+        return node;
+    }
 
-            // Does this item exist in the list?
-            if (contains(item))
-            { // Yes
-                rtn = true;
+    /**
+     * Unlink the {@code node} from the chain.
+     * <p>
+     * The node keeps its own links, so that a {@linkplain Cursor} left on it
+     * can still move off it. It is marked as removed, so that the Cursor
+     * cannot change the chain through it.
+     *
+     * @param node the node to remove, which must still be in the chain
+     *
+     * @return the item it held
+     */
+    private E unlink(final Node<E> node)
+    {
+        if (node.previous != null)
+        {
+            node.previous.next = node.next;
+        } else
+        {
+            first = node.next;
+        }
+
+        if (node.next != null)
+        {
+            node.next.previous = node.previous;
+        } else
+        {
+            last = node.previous;
+        }
+
+        if (index != null)
+        {
+            index.remove(node.item);
+        }
+
+        node.removed = true;
+        size--;
+        return node.item;
+    }
+
+    /**
+     * A position in the list, with its own current reference point.
+     * <p>
+     * Get one from {@link LinkedList#cursor()}. Each Cursor moves independently
+     * of the others, so each thread scanning the list can have its own. A Cursor
+     * is not itself thread-safe.
+     * <p>
+     * Changing the list, other than through this Cursor, does not move it. If the
+     * item it points at is removed, it has no current item, but it can still move
+     * to the nearest items, either side of it, that are still in the list. An
+     * insert then goes next to those items.
+     *
+     * @since 1.0
+     * @version 1.0
+     */
+    public class Cursor
+    {
+
+        /**
+         * The node that was last retrieved by one of the traversal methods.
+         */
+        private Node<E> current;
+
+        /**
+         * Instantiate a new Cursor object, not yet pointing at any item.
+         */
+        private Cursor()
+        {
+        }
+
+        /**
+         * Searches for the first occurrence of the item in the list.
+         * <p>
+         * If found, this becomes the current reference point of this Cursor.
+         *
+         * @param item to search for
+         *
+         * @return {@code true } if found, {@code false } otherwise
+         *
+         * @throws NullPointerException if item is {@code null}
+         */
+        public boolean find(final E item)
+        {
+            Node<E> node = findNode(item);
+
+            if (node != null)
+            {
+                current = node;
             }
 
-            // No - reset current pointer
-            current = tempNode;
+            return node != null;
         }
 
-        return rtn;
+        /**
+         * Retrieves the first item in the list.
+         * <p>
+         * If found, this becomes the current reference point of this Cursor.
+         *
+         * @return the item at the top of the list, or {@code null } if the list is
+         *         empty
+         */
+        public E first()
+        {
+            current = first;
+            return (first != null) ? first.item : null;
+        }
+
+        /**
+         * Retrieves the item at the current reference point of this Cursor.
+         *
+         * @return the item, or {@code null } if there is none, or it has been
+         *         removed
+         */
+        public E get()
+        {
+            return current != null && !current.removed ? current.item : null;
+        }
+
+        /**
+         * Returns {@code true } if there is other item following the current one,
+         * {@code false } otherwise.
+         *
+         * @return {@code true } if there is other item following the current one,
+         *         {@code false } otherwise
+         */
+        public boolean hasNext()
+        {
+            return (current != null && nextLinked(current.next) != null);
+        }
+
+        /**
+         * Returns {@code true } if there is other item preceding the current one,
+         * {@code false } otherwise.
+         *
+         * @return {@code true } if there is other item preceding the current one,
+         *         {@code false } otherwise
+         */
+        public boolean hasPrevious()
+        {
+            return (current != null && previousLinked(current.previous) != null);
+        }
+
+        /**
+         * Inserts the item before the current reference point.
+         * <p>
+         * If the current reference is not within the list, then the item
+         * will be pushed onto the top of the list.
+         * <p>
+         * If successful, this item becomes the current reference point of this Cursor.
+         *
+         * @param item to be inserted
+         *
+         * @return {@code true } if successful, {@code false } otherwise.
+         *
+         * @throws NullPointerException if item is {@code null}
+         */
+        public boolean insert(final E item)
+        {
+            Node<E> node = new Node<>(Objects.requireNonNull(item, NO_NULL));
+
+            // Check for disallowed duplicates
+            if (foundDisallowedDuplicate(item))
+            {
+                return false;
+            }
+
+            // Are we out of bounds?
+            linkBefore(current != null ? nextLinked(current) : first, node);
+            current = node;
+            return true;
+        }
+
+        /**
+         * Inserts the item after the current reference point.
+         * <p>
+         * If the current reference is not within the list, then the item
+         * will be appended onto the bottom of the list.
+         * <p>
+         * If successful, this item becomes the current reference point of this Cursor.
+         *
+         * @param item to be inserted
+         *
+         * @return {@code true } if successful, {@code false } otherwise.
+         *
+         * @throws NullPointerException if item is {@code null}
+         */
+        public boolean insertAfter(final E item)
+        {
+            Node<E> node = new Node<>(Objects.requireNonNull(item, NO_NULL));
+
+            // Check for disallowed duplicates
+            if (foundDisallowedDuplicate(item))
+            {
+                return false;
+            }
+
+            // Are we out of bounds?
+            linkAfter(current != null ? previousLinked(current) : last, node);
+            current = node;
+            return true;
+        }
+
+        /**
+         * Retrieves the last item in the list.
+         * <p>
+         * If found, this becomes the current reference point of this Cursor.
+         *
+         * @return the item at the bottom of the list, or {@code null } if the list is
+         *         empty
+         */
+        public E last()
+        {
+            current = last;
+            return (last != null) ? last.item : null;
+        }
+
+        /**
+         * Searches for the next occurrence of the item in the list.
+         * <p>
+         * The search starts at the current reference point, plus one.
+         * <p>
+         * If found, this becomes the current reference point of this Cursor.
+         * Otherwise, the Cursor is left past the end of the list.
+         *
+         * @param item to search for.
+         *
+         * @return {@code true } if found, {@code false } otherwise
+         *
+         * @throws NullPointerException if item is {@code null}
+         */
+        public boolean next(final E item)
+        {
+            Objects.requireNonNull(item, NO_NULL);
+
+            // While we have something to work with
+            while (current != null)
+            {
+                current = nextLinked(current.next);
+
+                // Have we found one?
+                if (current != null && current.item.equals(item))
+                { // Yes - return true
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        /**
+         * Retrieves the next item from the list.
+         * <p>
+         * The item retrieved is the one following the last item retrieved
+         * or located by this Cursor.
+         * <p>
+         * If found, this becomes the current reference point of this Cursor.
+         *
+         * @return the item found, or {@code null } if either past the end of the
+         *         list, or the list is empty.
+         */
+        public E next()
+        {
+            E rtn = null;
+
+            // Are we pointing to something?
+            if (current != null)
+            { // Yes - shift the pointer
+                current = nextLinked(current.next);
+
+                // Are we pointing to something now?
+                if (current != null)
+                { // Yes - get item to return
+                    rtn = current.item;
+                }
+            }
+
+            return rtn;
+        }
+
+        /**
+         * Retrieves the previous item from the list.
+         * <p>
+         * The item retrieved is the one preceding the last item retrieved
+         * or located by this Cursor.
+         * <p>
+         * If found, this becomes the current reference point of this Cursor.
+         *
+         * @return the item found, or {@code null } if either past the top of the
+         *         list, or the list is empty.
+         */
+        public E prev()
+        {
+            E rtn = null;
+
+            // Are we pointing to something?
+            if (current != null)
+            { // Yes - shift the pointer
+                current = previousLinked(current.previous);
+
+                // Are we pointing to something now?
+                if (current != null)
+                { // Yes - get item to return
+                    rtn = current.item;
+                }
+            }
+
+            return rtn;
+        }
+
+        /**
+         * Removes the item at the current reference point of this Cursor.
+         * <p>
+         * The following item, or if there is none, the preceding one, becomes the
+         * current reference point.
+         *
+         * @return the item removed, or {@code null } if there is no current item,
+         *         or it has already been removed
+         */
+        public E remove()
+        {
+            E rtn = null;
+
+            if (current != null && !current.removed)
+            {
+                rtn = unlink(current);
+                current = current.next != null ? current.next : current.previous;
+            }
+
+            return rtn;
+        }
     }
 
     /**
@@ -869,6 +1182,11 @@ public class LinkedList<E> implements Externalizable, Iterable<E>
          */
         public Node<E> previous;
 
+        /**
+         * Has this node been removed from the chain?
+         */
+        public boolean removed;
+
         /**
          * Instantiate a new Node object.
          *
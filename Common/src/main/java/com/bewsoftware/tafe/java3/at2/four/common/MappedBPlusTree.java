@@ -0,0 +1,1469 @@
+/*
+ *  File Name:    MappedBPlusTree.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static com.bewsoftware.tafe.java3.at2.four.common.AvlTree.NO_NULLS;
+
+/**
+ * This is a sorted set, held on disk in a B+tree of fixed-size pages, in a
+ * memory-mapped file.
+ * <p>
+ * Opening the file only reads its header. Pages are then read from the mapped
+ * file as they are needed, and the most recently used ones are kept, decoded,
+ * in a pool in memory. Changed pages are written back to the file when they
+ * leave the pool, on {@link #flush()}, and on {@link #close()}.
+ * <p>
+ * The elements are stored in their own compact form, written by an
+ * {@linkplain ElementCodec}, of no more than {@link #MAX_ELEMENT_BYTES} bytes each.
+ * Pages are split when they fill up, but not merged when elements are removed.
+ * A page emptied by removals stays in the tree, and its space is never reclaimed,
+ * so the file never shrinks. Only {@link #clear()} lets its pages be used again.
+ * The file can hold up to 2GB of pages.
+ * <p>
+ * Unlike {@linkplain AvlTree} and {@linkplain BTreeSet}, there is no {@code get(int)}
+ * or {@code indexOf()}. The pages hold no counts of the elements below them, and
+ * keeping them would change the file format, and have every add and remove rewrite
+ * each page on the path down to its leaf. For the same reason, the {@code size()}
+ * of a sub-set view counts its elements, in O(k). Nor are there links back along
+ * the leaves, so a descending iterator finds each element from the root, in O(log n).
+ * <p>
+ * This class does not support storage of either {@code null}s or duplicates.
+ * It is not thread-safe, and it does not protect the file against a crash
+ * between flushes.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ * @param <E> type of item stored in this tree.
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public class MappedBPlusTree<E extends Comparable<E>> extends AbstractSet<E> implements NavigableSet<E>, Closeable
+{
+
+    /**
+     * The size of each page, in bytes.
+     */
+    public static final int PAGE_SIZE = 4096;
+
+    /**
+     * The size of a page's own header: type, number of keys, and next leaf, or first child.
+     */
+    private static final int PAGE_HEADER = 1 + 2 + 4;
+
+    /**
+     * The maximum size of an encoded element, in bytes.
+     * <p>
+     * Small enough that a full page always splits into two that fit.
+     */
+    public static final int MAX_ELEMENT_BYTES = (PAGE_SIZE - PAGE_HEADER) / 4 - 2 - 4;
+
+    /**
+     * The default number of pages kept in memory.
+     */
+    private static final int DEFAULT_POOL_PAGES = 256;
+
+    /**
+     * Identifies the file format: "BPT1".
+     */
+    private static final int MAGIC = 0x42505431;
+
+    /**
+     * The smallest pool allowed.
+     * <p>
+     * An add can touch two pages per level of the tree. The pool must be big enough
+     * that none of them is sent back to the file while the add is still using it.
+     */
+    private static final int MIN_POOL_PAGES = 16;
+
+    /**
+     * The page type of an internal page.
+     */
+    private static final byte INTERNAL = 2;
+
+    /**
+     * The page type of a leaf page.
+     */
+    private static final byte LEAF = 1;
+
+    /**
+     * The id of the absent page.
+     */
+    private static final int NIL = -1;
+
+    /**
+     * The file is mapped in steps of this many pages, at least.
+     */
+    private static final int GROWTH_PAGES = 64;
+
+    /**
+     * The mapped file.
+     */
+    private MappedByteBuffer buffer;
+
+    /**
+     * The file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Writes and reads the elements.
+     */
+    private final ElementCodec<E> codec;
+
+    /**
+     * The number of elements in this tree.
+     */
+    private int count;
+
+    /**
+     * {@code true} if the file header needs to be written.
+     */
+    private boolean headerDirty;
+
+    /**
+     * The number of pages in the file, including the file header.
+     */
+    private int pageCount;
+
+    /**
+     * The pool of decoded pages, in order of use, least recent first.
+     */
+    private final LinkedHashMap<Integer, Page> pool;
+
+    /**
+     * The root page.
+     */
+    private int root;
+
+    /**
+     * The version of the data.
+     */
+    private int version;
+
+    /**
+     * Opens, or creates, the {@code file}, with the default pool size.
+     *
+     * @param file  the file holding the tree
+     * @param codec writes and reads the elements
+     *
+     * @throws IOException if any, or if the {@code file} is not a B+tree of this format
+     */
+    public MappedBPlusTree(Path file, ElementCodec<E> codec) throws IOException
+    {
+        this(file, codec, DEFAULT_POOL_PAGES);
+    }
+
+    /**
+     * Opens, or creates, the {@code file}.
+     *
+     * @param file      the file holding the tree
+     * @param codec     writes and reads the elements
+     * @param poolPages the number of pages to keep in memory
+     *
+     * @throws IOException if any, or if the {@code file} is not a B+tree of this format
+     */
+    public MappedBPlusTree(Path file, ElementCodec<E> codec, int poolPages) throws IOException
+    {
+        final int capacity = Math.max(poolPages, MIN_POOL_PAGES);
+        this.codec = Objects.requireNonNull(codec);
+        pool = new LinkedHashMap<>(capacity * 2, 0.75f, true)
+        {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest)
+            {
+                boolean rtn = size() > capacity;
+
+                if (rtn)
+                {
+                    writePage(eldest.getValue());
+                }
+
+                return rtn;
+            }
+        };
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+
+        try
+        {
+            if (channel.size() == 0)
+            {
+                map(2);
+                initialize();
+            } else
+            {
+                openExisting();
+            }
+        } catch (IOException | RuntimeException ex)
+        {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public boolean add(E e)
+    {
+        byte[] raw = encode(Objects.requireNonNull(e, NO_NULLS));
+
+        if (raw.length > MAX_ELEMENT_BYTES)
+        {
+            throw new IllegalArgumentException("element is too large: " + raw.length + " bytes");
+        }
+
+        int[] path = new int[16];
+        int[] pathIndex = new int[16];
+        int depth = 0;
+        Page page = getPage(root);
+
+        while (!page.leaf)
+        {
+            if (depth == path.length)
+            {
+                path = Arrays.copyOf(path, depth * 2);
+                pathIndex = Arrays.copyOf(pathIndex, depth * 2);
+            }
+
+            int index = childIndex(page, e);
+            path[depth] = page.id;
+            pathIndex[depth++] = index;
+            page = getPage(page.children[index]);
+        }
+
+        int index = Collections.binarySearch(page.keys, e);
+
+        if (index >= 0)
+        {
+            return false;
+        }
+
+        page.insertKey(-index - 1, e, raw);
+
+        // Split each full page, from the leaf up.
+        while (page.bytes() > PAGE_SIZE)
+        {
+            Page right = split(page);
+
+            if (depth == 0)
+            {
+                Page newRoot = newPage(false);
+                newRoot.children[0] = page.id;
+                newRoot.insertChild(0, right.keys.get(0), right.raw.get(0), right.id);
+                root = newRoot.id;
+                headerDirty = true;
+
+                if (!page.leaf)
+                {
+                    right.removeFirstKey();
+                }
+
+                break;
+            }
+
+            Page parent = getPage(path[--depth]);
+            parent.insertChild(pathIndex[depth], right.keys.get(0), right.raw.get(0), right.id);
+
+            if (!page.leaf)
+            {
+                // The separator moves up, out of an internal page.
+                right.removeFirstKey();
+            }
+
+            page = parent;
+        }
+
+        count++;
+        version++;
+        headerDirty = true;
+        return true;
+    }
+
+    /**
+     * Returns the least element greater than or equal to the {@code e}.
+     *
+     * @param e the value to match
+     *
+     * @return the element, or {@code null} if there is no such element
+     */
+    @Override
+    public E ceiling(E e)
+    {
+        return findCeiling(Objects.requireNonNull(e, NO_NULLS), true);
+    }
+
+    @Override
+    public void clear()
+    {
+        pool.clear();
+        initialize();
+        version++;
+    }
+
+    /**
+     * Writes any changed pages, and closes the file.
+     *
+     * @throws IOException if any
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (channel.isOpen())
+        {
+            flush();
+            channel.close();
+        }
+    }
+
+    @Override
+    public Comparator<? super E> comparator()
+    {
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean contains(Object o)
+    {
+        E key = (E) Objects.requireNonNull(o, NO_NULLS);
+        return Collections.binarySearch(findLeaf(key).keys, key) >= 0;
+    }
+
+    /**
+     * Delete the {@code target} from the tree.
+     *
+     * @param target the element to delete
+     *
+     * @return {@code true} unless {@code target} is {@code null}, or {@code target} is not found.
+     */
+    public boolean delete(E target)
+    {
+        return target != null && remove(target);
+    }
+
+    /**
+     * Returns an iterator over the elements in this set, in descending order.
+     * Equivalent in effect to {@code descendingSet().iterator()}.
+     * <p>
+     * There are no links back along the leaves, so each step is O(log n).
+     *
+     * @return an iterator over the elements in this set, in descending order
+     */
+    @Override
+    public Iterator<E> descendingIterator()
+    {
+        return new BPTDescItor(null, false, null, false);
+    }
+
+    @Override
+    public NavigableSet<E> descendingSet()
+    {
+        return new BoundedSet<>(new Range(), null, false, null, false, true);
+    }
+
+    /**
+     * Returns the first (lowest) element.
+     *
+     * @return the first element
+     *
+     * @throws NoSuchElementException if this tree is empty
+     */
+    @Override
+    public E first()
+    {
+        E rtn = findCeiling(null, true);
+
+        if (rtn == null)
+        {
+            throw new NoSuchElementException();
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Returns the greatest element less than or equal to the {@code e}.
+     *
+     * @param e the value to match
+     *
+     * @return the element, or {@code null} if there is no such element
+     */
+    @Override
+    public E floor(E e)
+    {
+        return findFloor(root, Objects.requireNonNull(e, NO_NULLS), true);
+    }
+
+    /**
+     * Writes any changed pages, and the file header, to the file.
+     */
+    public void flush()
+    {
+        for (Page page : pool.values())
+        {
+            writePage(page);
+        }
+
+        writeHeader();
+        buffer.force();
+    }
+
+    @Override
+    public SortedSet<E> headSet(E toElement)
+    {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public NavigableSet<E> headSet(E toElement, boolean inclusive)
+    {
+        return new BoundedSet<>(new Range(), null, false, Objects.requireNonNull(toElement, NO_NULLS), inclusive, false);
+    }
+
+    /**
+     * Returns the least element strictly greater than the {@code e}.
+     *
+     * @param e the value to match
+     *
+     * @return the element, or {@code null} if there is no such element
+     */
+    @Override
+    public E higher(E e)
+    {
+        return findCeiling(Objects.requireNonNull(e, NO_NULLS), false);
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return new BPTItor(null, false, null, false);
+    }
+
+    /**
+     * Returns the last (highest) element.
+     *
+     * @return the last element
+     *
+     * @throws NoSuchElementException if this tree is empty
+     */
+    @Override
+    public E last()
+    {
+        E rtn = findFloor(root, null, true);
+
+        if (rtn == null)
+        {
+            throw new NoSuchElementException();
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Returns the greatest element strictly less than the {@code e}.
+     *
+     * @param e the value to match
+     *
+     * @return the element, or {@code null} if there is no such element
+     */
+    @Override
+    public E lower(E e)
+    {
+        return findFloor(root, Objects.requireNonNull(e, NO_NULLS), false);
+    }
+
+    @Override
+    public E pollFirst()
+    {
+        return poll(findCeiling(null, true));
+    }
+
+    @Override
+    public E pollLast()
+    {
+        return poll(findFloor(root, null, true));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean remove(Object o)
+    {
+        E key = (E) Objects.requireNonNull(o, NO_NULLS);
+        Page leaf = findLeaf(key);
+        int index = Collections.binarySearch(leaf.keys, key);
+        boolean rtn = index >= 0;
+
+        if (rtn)
+        {
+            leaf.removeKey(index);
+            count--;
+            version++;
+            headerDirty = true;
+        }
+
+        return rtn;
+    }
+
+    @Override
+    public int size()
+    {
+        return count;
+    }
+
+    @Override
+    public SortedSet<E> subSet(E fromElement, E toElement)
+    {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive)
+    {
+        if (Objects.requireNonNull(fromElement, NO_NULLS).compareTo(Objects.requireNonNull(toElement, NO_NULLS)) > 0)
+        {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+
+        return new BoundedSet<>(new Range(), fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    @Override
+    public SortedSet<E> tailSet(E fromElement)
+    {
+        return tailSet(fromElement, true);
+    }
+
+    @Override
+    public NavigableSet<E> tailSet(E fromElement, boolean inclusive)
+    {
+        return new BoundedSet<>(new Range(), Objects.requireNonNull(fromElement, NO_NULLS), inclusive, null, false, false);
+    }
+
+    /**
+     * Find the index of the child of the internal {@code page} that may hold the {@code key}.
+     *
+     * @param page the internal page
+     * @param key  the key
+     *
+     * @return the index of the child
+     */
+    private int childIndex(Page page, E key)
+    {
+        int index = Collections.binarySearch(page.keys, key);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    /**
+     * Decode an element.
+     *
+     * @param raw the encoded element
+     *
+     * @return the element
+     */
+    private E decode(byte[] raw)
+    {
+        try
+        {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(raw)));
+        } catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Encode an element.
+     *
+     * @param element the element
+     *
+     * @return the encoded element
+     */
+    private byte[] encode(E element)
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try
+        {
+            codec.write(new DataOutputStream(bytes), element);
+        } catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Find the least element greater than, or if {@code inclusive} equal to, the {@code key}.
+     *
+     * @param key       the key, or {@code null} for the first element
+     * @param inclusive {@code true} if an element equal to the {@code key} may be returned
+     *
+     * @return the element, or {@code null} if there is no such element
+     */
+    private E findCeiling(E key, boolean inclusive)
+    {
+        Page page = findLeaf(key);
+        int index = 0;
+
+        if (key != null)
+        {
+            index = Collections.binarySearch(page.keys, key);
+            index = index >= 0 ? (inclusive ? index : index + 1) : -index - 1;
+        }
+
+        // Removed elements can leave empty leaves, so keep going along the chain.
+        while (index == page.keys.size() && page.next != NIL)
+        {
+            page = getPage(page.next);
+            index = 0;
+        }
+
+        return index < page.keys.size() ? page.keys.get(index) : null;
+    }
+
+    /**
+     * Find the greatest element less than, or if {@code inclusive} equal to, the
+     * {@code key}, in the sub-tree of the {@code pageId} page.
+     * <p>
+     * There are no links back along the leaves, so this backs up the tree instead,
+     * past any empty leaves.
+     *
+     * @param pageId    the root of the sub-tree
+     * @param key       the key, or {@code null} for the last element
+     * @param inclusive {@code true} if an element equal to the {@code key} may be returned
+     *
+     * @return the element, or {@code null} if there is no such element
+     */
+    private E findFloor(int pageId, E key, boolean inclusive)
+    {
+        Page page = getPage(pageId);
+        E rtn = null;
+
+        if (page.leaf)
+        {
+            int index = page.keys.size();
+
+            if (key != null)
+            {
+                index = Collections.binarySearch(page.keys, key);
+                index = index >= 0 ? (inclusive ? index + 1 : index) : -index - 1;
+            }
+
+            rtn = index > 0 ? page.keys.get(index - 1) : null;
+        } else
+        {
+            int[] children = page.children;
+
+            for (int i = key == null ? page.keys.size() : childIndex(page, key); rtn == null && i >= 0; i--)
+            {
+                rtn = findFloor(children[i], key, inclusive);
+            }
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Find the leaf page that may hold the {@code key}.
+     *
+     * @param key the key, or {@code null} for the first leaf
+     *
+     * @return the leaf page
+     */
+    private Page findLeaf(E key)
+    {
+        Page page = getPage(root);
+
+        while (!page.leaf)
+        {
+            page = getPage(page.children[key == null ? 0 : childIndex(page, key)]);
+        }
+
+        return page;
+    }
+
+    /**
+     * Get a page, from the pool if possible, or else from the file.
+     *
+     * @param id the page id
+     *
+     * @return the page
+     */
+    private Page getPage(int id)
+    {
+        Page rtn = pool.get(id);
+
+        if (rtn == null)
+        {
+            rtn = readPage(id);
+            pool.put(id, rtn);
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Set up an empty tree: the file header, and an empty root leaf.
+     */
+    private void initialize()
+    {
+        pageCount = 1;
+        count = 0;
+        root = newPage(true).id;
+        headerDirty = true;
+        writeHeader();
+    }
+
+    /**
+     * Map the file, big enough to hold {@code pages} pages.
+     *
+     * @param pages the number of pages needed
+     */
+    private void map(int pages)
+    {
+        try
+        {
+            long size = (long) Math.max(pages, GROWTH_PAGES) * PAGE_SIZE;
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException ex)
+        {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Allocate a new, empty, page.
+     *
+     * @param leaf {@code true} for a leaf page
+     *
+     * @return the page
+     */
+    private Page newPage(boolean leaf)
+    {
+        if ((long) (pageCount + 1) * PAGE_SIZE > Integer.MAX_VALUE)
+        {
+            throw new IllegalStateException("file is full");
+        }
+
+        int id = pageCount++;
+
+        if ((long) pageCount * PAGE_SIZE > buffer.capacity())
+        {
+            map((int) Math.min(pageCount * 2L, Integer.MAX_VALUE / PAGE_SIZE));
+        }
+
+        Page rtn = new Page(id, leaf);
+        rtn.dirty = true;
+        pool.put(id, rtn);
+        headerDirty = true;
+        return rtn;
+    }
+
+    /**
+     * Read the file header of an existing file.
+     *
+     * @throws IOException if the file is not a B+tree of this format
+     */
+    private void openExisting() throws IOException
+    {
+        long size = channel.size();
+
+        if (size % PAGE_SIZE != 0 || size > Integer.MAX_VALUE)
+        {
+            throw new IOException("not a B+tree file");
+        }
+
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != PAGE_SIZE)
+        {
+            throw new IOException("not a B+tree file");
+        }
+
+        root = buffer.getInt(8);
+        pageCount = buffer.getInt(12);
+        count = buffer.getInt(16);
+
+        if (root < 1 || root >= pageCount || (long) pageCount * PAGE_SIZE > size || count < 0)
+        {
+            throw new IOException("not a B+tree file");
+        }
+    }
+
+    /**
+     * Remove the {@code key}.
+     *
+     * @param key the key
+     *
+     * @return the key removed, or {@code null} if {@code key} is {@code null}
+     */
+    private E poll(E key)
+    {
+        if (key != null)
+        {
+            remove(key);
+        }
+
+        return key;
+    }
+
+    /**
+     * Decode a page from the file.
+     *
+     * @param id the page id
+     *
+     * @return the page
+     */
+    private Page readPage(int id)
+    {
+        int position = id * PAGE_SIZE;
+        Page rtn = new Page(id, buffer.get(position) == LEAF);
+        int keyCount = buffer.getShort(position + 1);
+        int first = buffer.getInt(position + 3);
+        position += PAGE_HEADER;
+
+        if (rtn.leaf)
+        {
+            rtn.next = first;
+        } else
+        {
+            rtn.children = new int[keyCount + 8];
+            rtn.children[0] = first;
+        }
+
+        for (int i = 0; i < keyCount; i++)
+        {
+            byte[] raw = new byte[buffer.getShort(position)];
+            buffer.get(position + 2, raw);
+            position += 2 + raw.length;
+            rtn.keys.add(decode(raw));
+            rtn.raw.add(raw);
+
+            if (!rtn.leaf)
+            {
+                rtn.children[i + 1] = buffer.getInt(position);
+                position += 4;
+            }
+        }
+
+        return rtn;
+    }
+
+    /**
+     * Split the full {@code page} in two, by size.
+     * <p>
+     * The upper half is moved to a new page, to its right. For a leaf, the new
+     * page is linked in after it.
+     *
+     * @param page the page to split
+     *
+     * @return the new page
+     */
+    private Page split(Page page)
+    {
+        Page rtn = newPage(page.leaf);
+        int half = page.bytes() / 2;
+        int used = PAGE_HEADER;
+        int from = 0;
+
+        while (used < half)
+        {
+            used += page.entryBytes(from++);
+        }
+
+        // Keep at least one key on each side.
+        from = Math.max(1, Math.min(from, page.keys.size() - 1));
+        int size = page.keys.size();
+
+        if (page.leaf)
+        {
+            rtn.next = page.next;
+            page.next = rtn.id;
+        } else
+        {
+            rtn.children = new int[size - from + 8];
+            System.arraycopy(page.children, from, rtn.children, 0, size - from + 1);
+        }
+
+        rtn.keys.addAll(page.keys.subList(from, size));
+        rtn.raw.addAll(page.raw.subList(from, size));
+        page.keys.subList(from, size).clear();
+        page.raw.subList(from, size).clear();
+        page.dirty = true;
+        return rtn;
+    }
+
+    /**
+     * Write the file header, if it has changed.
+     */
+    private void writeHeader()
+    {
+        if (headerDirty)
+        {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, PAGE_SIZE);
+            buffer.putInt(8, root);
+            buffer.putInt(12, pageCount);
+            buffer.putInt(16, count);
+            headerDirty = false;
+        }
+    }
+
+    /**
+     * Encode the {@code page} into the file, if it has changed.
+     *
+     * @param page the page
+     */
+    private void writePage(Page page)
+    {
+        if (page.dirty)
+        {
+            int position = page.id * PAGE_SIZE;
+            buffer.put(position, page.leaf ? LEAF : INTERNAL);
+            buffer.putShort(position + 1, (short) page.keys.size());
+            buffer.putInt(position + 3, page.leaf ? page.next : page.children[0]);
+            position += PAGE_HEADER;
+
+            for (int i = 0; i < page.raw.size(); i++)
+            {
+                byte[] raw = page.raw.get(i);
+                buffer.putShort(position, (short) raw.length);
+                buffer.put(position + 2, raw);
+                position += 2 + raw.length;
+
+                if (!page.leaf)
+                {
+                    buffer.putInt(position, page.children[i + 1]);
+                    position += 4;
+                }
+            }
+
+            page.dirty = false;
+        }
+    }
+
+    /**
+     * This is a descending iterator.
+     * <p>
+     * There are no links back along the leaves, so each element is found from
+     * the root, in O(log n).
+     */
+    private class BPTDescItor implements Iterator<E>
+    {
+
+        /**
+         * The expected version number.
+         */
+        private int expectedVersion;
+
+        /**
+         * The element to stop at, or {@code null} to go to the first element.
+         */
+        private final E fence;
+
+        /**
+         * {@code true} if the {@code fence} is to be included.
+         */
+        private final boolean fenceInclusive;
+
+        /**
+         * The last entry returned.
+         */
+        private E lastReturned;
+
+        /**
+         * The next entry to return, or {@code null} if there is none.
+         */
+        private E next;
+
+        /**
+         * Instantiates a new BPTDescItor object.
+         *
+         * @param from           the element to start from, or {@code null} for the last element
+         * @param fromInclusive  {@code true} if {@code from} is to be included
+         * @param fence          the element to stop at, or {@code null} for the first element
+         * @param fenceInclusive {@code true} if {@code fence} is to be included
+         */
+        public BPTDescItor(E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+        {
+            expectedVersion = version;
+            this.fence = fence;
+            this.fenceInclusive = fenceInclusive;
+            next = checkFence(findFloor(root, from, fromInclusive));
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public E next()
+        {
+            if (expectedVersion != version)
+            {
+                throw new ConcurrentModificationException();
+            }
+
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+
+            lastReturned = next;
+            next = checkFence(findFloor(root, lastReturned, false));
+            return lastReturned;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (expectedVersion != version)
+            {
+                throw new ConcurrentModificationException();
+            }
+
+            if (lastReturned == null)
+            {
+                throw new IllegalStateException();
+            }
+
+            // The next element is below the one removed, so it is still valid.
+            MappedBPlusTree.this.remove(lastReturned);
+            lastReturned = null;
+            expectedVersion = version;
+        }
+
+        /**
+         * Check that the {@code key} has not gone past the fence.
+         *
+         * @param key the key, or {@code null} if there is none
+         *
+         * @return the {@code key}, or {@code null} if it is past the fence
+         */
+        private E checkFence(E key)
+        {
+            if (key != null && fence != null)
+            {
+                int cmp = key.compareTo(fence);
+
+                if (cmp < 0 || (cmp == 0 && !fenceInclusive))
+                {
+                    return null;
+                }
+            }
+
+            return key;
+        }
+    }
+
+    /**
+     * This is an iterator along the chain of leaves.
+     */
+    private class BPTItor implements Iterator<E>
+    {
+
+        /**
+         * The expected version number.
+         */
+        private int expectedVersion;
+
+        /**
+         * The element to stop at, or {@code null} to go to the last element.
+         */
+        private final E fence;
+
+        /**
+         * {@code true} if the {@code fence} is to be included.
+         */
+        private final boolean fenceInclusive;
+
+        /**
+         * The index, in the current leaf, of the next element.
+         */
+        private int index;
+
+        /**
+         * The last entry returned.
+         */
+        private E lastReturned;
+
+        /**
+         * The current leaf page.
+         */
+        private int leaf;
+
+        /**
+         * Instantiates a new BPTItor object.
+         *
+         * @param from           the element to start from, or {@code null} for the first element
+         * @param fromInclusive  {@code true} if {@code from} is to be included
+         * @param fence          the element to stop at, or {@code null} for the last element
+         * @param fenceInclusive {@code true} if {@code fence} is to be included
+         */
+        public BPTItor(E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+        {
+            expectedVersion = version;
+            this.fence = fence;
+            this.fenceInclusive = fenceInclusive;
+            Page page = findLeaf(from);
+            leaf = page.id;
+
+            if (from != null)
+            {
+                index = Collections.binarySearch(page.keys, from);
+                index = index >= 0 ? (fromInclusive ? index : index + 1) : -index - 1;
+            }
+
+            skipEmpty();
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            Page page = getPage(leaf);
+            return index < page.keys.size() && beforeFence(page.keys.get(index));
+        }
+
+        @Override
+        public E next()
+        {
+            if (expectedVersion != version)
+            {
+                throw new ConcurrentModificationException();
+            }
+
+            Page page = getPage(leaf);
+
+            if (index >= page.keys.size() || !beforeFence(page.keys.get(index)))
+            {
+                throw new NoSuchElementException();
+            }
+
+            lastReturned = page.keys.get(index++);
+            skipEmpty();
+            return lastReturned;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (expectedVersion != version)
+            {
+                throw new ConcurrentModificationException();
+            }
+
+            if (lastReturned == null)
+            {
+                throw new IllegalStateException();
+            }
+
+            MappedBPlusTree.this.remove(lastReturned);
+
+            // Pages are never merged, so only the leaf holding the next
+            // element may have changed.
+            Page page = getPage(leaf);
+            int next = Collections.binarySearch(page.keys, lastReturned);
+            index = next >= 0 ? next + 1 : -next - 1;
+            skipEmpty();
+            lastReturned = null;
+            expectedVersion = version;
+        }
+
+        /**
+         * Is the {@code key} before the fence?
+         *
+         * @param key the key to check
+         *
+         * @return result
+         */
+        private boolean beforeFence(E key)
+        {
+            if (fence != null)
+            {
+                int cmp = key.compareTo(fence);
+                return cmp < 0 || (cmp == 0 && fenceInclusive);
+            }
+
+            return true;
+        }
+
+        /**
+         * Move past the end of the current leaf, and any empty leaves, to the
+         * next element, if there is one.
+         */
+        private void skipEmpty()
+        {
+            Page page = getPage(leaf);
+
+            while (index == page.keys.size() && page.next != NIL)
+            {
+                page = getPage(page.next);
+                leaf = page.id;
+                index = 0;
+            }
+        }
+    }
+
+    /**
+     * A decoded page.
+     */
+    private class Page
+    {
+
+        /**
+         * The child pages of an internal page.
+         * <p>
+         * Child {@code i} holds the keys from {@code keys[i - 1]} up to,
+         * but not including, {@code keys[i]}.
+         */
+        private int[] children;
+
+        /**
+         * {@code true} if this page has changed since it was written to the file.
+         */
+        private boolean dirty;
+
+        /**
+         * The page id.
+         */
+        private final int id;
+
+        /**
+         * The keys, in ascending order.
+         */
+        private final ArrayList<E> keys = new ArrayList<>();
+
+        /**
+         * {@code true} for a leaf page.
+         */
+        private final boolean leaf;
+
+        /**
+         * The next leaf page, or {@code NIL}.
+         */
+        private int next = NIL;
+
+        /**
+         * The encoded keys.
+         */
+        private final ArrayList<byte[]> raw = new ArrayList<>();
+
+        /**
+         * Instantiates a new Page object.
+         *
+         * @param id   the page id
+         * @param leaf {@code true} for a leaf page
+         */
+        private Page(int id, boolean leaf)
+        {
+            this.id = id;
+            this.leaf = leaf;
+
+            if (!leaf)
+            {
+                children = new int[8];
+            }
+        }
+
+        /**
+         * Get the number of bytes this page takes up, encoded.
+         *
+         * @return the number of bytes
+         */
+        private int bytes()
+        {
+            int rtn = PAGE_HEADER;
+
+            for (int i = 0; i < raw.size(); i++)
+            {
+                rtn += entryBytes(i);
+            }
+
+            return rtn;
+        }
+
+        /**
+         * Get the number of bytes the entry at {@code index} takes up, encoded.
+         *
+         * @param index the index of the entry
+         *
+         * @return the number of bytes
+         */
+        private int entryBytes(int index)
+        {
+            return 2 + raw.get(index).length + (leaf ? 0 : 4);
+        }
+
+        /**
+         * Insert a key, and the child to its right, into this internal page.
+         *
+         * @param index    the index of the key
+         * @param key      the key
+         * @param rawKey   the encoded key
+         * @param child    the child page holding the keys from {@code key} up
+         */
+        private void insertChild(int index, E key, byte[] rawKey, int child)
+        {
+            if (keys.size() + 2 > children.length)
+            {
+                children = Arrays.copyOf(children, children.length * 2);
+            }
+
+            System.arraycopy(children, index + 1, children, index + 2, keys.size() - index);
+            children[index + 1] = child;
+            insertKey(index, key, rawKey);
+        }
+
+        /**
+         * Insert a key into this page.
+         *
+         * @param index  the index of the key
+         * @param key    the key
+         * @param rawKey the encoded key
+         */
+        private void insertKey(int index, E key, byte[] rawKey)
+        {
+            keys.add(index, key);
+            raw.add(index, rawKey);
+            dirty = true;
+        }
+
+        /**
+         * Remove the first key, and the child to its left, from this internal page.
+         * <p>
+         * Used after a split, when the first key of the new page has moved up to the parent.
+         */
+        private void removeFirstKey()
+        {
+            System.arraycopy(children, 1, children, 0, keys.size());
+            removeKey(0);
+        }
+
+        /**
+         * Remove a key from this page.
+         *
+         * @param index the index of the key
+         */
+        private void removeKey(int index)
+        {
+            keys.remove(index);
+            raw.remove(index);
+            dirty = true;
+        }
+    }
+
+    /**
+     * The operations a {@linkplain BoundedSet} view needs from this tree.
+     */
+    private class Range implements BoundedSet.Source<E>
+    {
+
+        @Override
+        public boolean add(E e)
+        {
+            return MappedBPlusTree.this.add(e);
+        }
+
+        @Override
+        public E ceiling(E key, boolean inclusive)
+        {
+            return findCeiling(key, inclusive);
+        }
+
+        @Override
+        public Comparator<? super E> comparator()
+        {
+            return null;
+        }
+
+        @Override
+        public boolean contains(Object o)
+        {
+            return MappedBPlusTree.this.contains(o);
+        }
+
+        @Override
+        public E first()
+        {
+            return findCeiling(null, true);
+        }
+
+        @Override
+        public E floor(E key, boolean inclusive)
+        {
+            return findFloor(root, key, inclusive);
+        }
+
+        @Override
+        public Iterator<E> iterator(boolean descending, E from, boolean fromInclusive, E fence, boolean fenceInclusive)
+        {
+            return descending
+                   ? new BPTDescItor(from, fromInclusive, fence, fenceInclusive)
+                   : new BPTItor(from, fromInclusive, fence, fenceInclusive);
+        }
+
+        @Override
+        public E last()
+        {
+            return findFloor(root, null, true);
+        }
+
+        @Override
+        public boolean remove(Object o)
+        {
+            return MappedBPlusTree.this.remove(o);
+        }
+
+        /**
+         * {@inheritDoc}
+         * <p>
+         * The pages hold no counts, so this is O(k), as it counts the elements in range.
+         */
+        @Override
+        public int size(E lo, boolean loInclusive, E hi, boolean hiInclusive)
+        {
+            int rtn = count;
+
+            if (lo != null || hi != null)
+            {
+                rtn = 0;
+
+                for (Iterator<E> it = new BPTItor(lo, loInclusive, hi, hiInclusive); it.hasNext(); rtn++)
+                {
+                    it.next();
+                }
+            }
+
+            return rtn;
+        }
+    }
+}
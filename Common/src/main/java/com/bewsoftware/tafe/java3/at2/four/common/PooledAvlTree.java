@@ -0,0 +1,216 @@
+/*
+ *  File Name:    PooledAvlTree.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.*;
+
+import static com.bewsoftware.tafe.java3.at2.four.common.AvlTree.NO_NULLS;
+
+/**
+ * This is a Balanced Binary Search Tree, with its Nodes held in pools of arrays,
+ * instead of as separate objects.
+ * <p>
+ * Each Node is just an id: an index into the {@code left}, {@code right},
+ * {@code height} and {@code values} arrays. This saves the object header, and
+ * the references, of a Node object, and keeps the links of nearby Nodes close
+ * together in memory. The ids of deleted Nodes are kept on a free list, for
+ * reuse by later adds. The tree itself is an {@linkplain AbstractPooledAvlTree}.
+ * <p>
+ * This class does not support storage of either {@code null}s or duplicates.
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ * @param <E> type of item stored in this tree.
+ *
+ * @since 1.0
+ * @version 1.0
+ */
+public class PooledAvlTree<E extends Comparable<E>> extends AbstractSet<E>
+{
+
+    /**
+     * The default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * The tree.
+     */
+    private final Pool pool;
+
+    /**
+     * Initializes a new instance of the {@linkplain PooledAvlTree}{@literal <E>} class.
+     */
+    public PooledAvlTree()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Initializes a new instance of the {@linkplain PooledAvlTree}{@literal <E>} class, with
+     * room for {@code initialCapacity} elements before the pools have to grow.
+     *
+     * @param initialCapacity the initial capacity
+     */
+    public PooledAvlTree(int initialCapacity)
+    {
+        pool = new Pool(initialCapacity);
+    }
+
+    @Override
+    public boolean add(E e)
+    {
+        pool.values[AbstractPooledAvlTree.PROBE] = Objects.requireNonNull(e, NO_NULLS);
+        boolean rtn = pool.insertProbe();
+        pool.releaseKey(AbstractPooledAvlTree.PROBE);
+        return rtn;
+    }
+
+    @Override
+    public void clear()
+    {
+        pool.clear();
+    }
+
+    @Override
+    public boolean contains(Object o)
+    {
+        pool.values[AbstractPooledAvlTree.PROBE] = Objects.requireNonNull(o, NO_NULLS);
+        boolean rtn = pool.findProbe() != AbstractPooledAvlTree.NIL;
+        pool.releaseKey(AbstractPooledAvlTree.PROBE);
+        return rtn;
+    }
+
+    @Override
+    public Iterator<E> iterator()
+    {
+        return pool.new Itor();
+    }
+
+    @Override
+    public boolean remove(Object o)
+    {
+        pool.values[AbstractPooledAvlTree.PROBE] = Objects.requireNonNull(o, NO_NULLS);
+        boolean rtn = pool.deleteProbe();
+        pool.releaseKey(AbstractPooledAvlTree.PROBE);
+        return rtn;
+    }
+
+    @Override
+    public int size()
+    {
+        return pool.size();
+    }
+
+    /**
+     * Shrink the pools to fit the elements currently held.
+     * <p>
+     * The ids in use are left as they are, so the pools can only shrink down
+     * to the highest id in use.
+     */
+    public void trimToSize()
+    {
+        pool.trimToSize();
+    }
+
+    /**
+     * Get the height of the tree.
+     *
+     * @return the height, or {@code 0} if empty
+     */
+    protected int getHeight()
+    {
+        return pool.getHeight();
+    }
+
+    /**
+     * The tree, with the elements held in an {@code Object[]} pool.
+     */
+    private class Pool extends AbstractPooledAvlTree
+    {
+
+        /**
+         * The value of each Node.
+         */
+        private Object[] values;
+
+        /**
+         * Instantiates a new Pool object.
+         *
+         * @param initialCapacity the initial capacity
+         */
+        public Pool(int initialCapacity)
+        {
+            super(initialCapacity);
+        }
+
+        @Override
+        protected void allocateKeys(int capacity)
+        {
+            values = new Object[capacity];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected int compare(int idA, int idB)
+        {
+            return ((E) values[idA]).compareTo((E) values[idB]);
+        }
+
+        @Override
+        protected void copyKey(int from, int to)
+        {
+            values[to] = values[from];
+        }
+
+        @Override
+        protected void releaseKey(int id)
+        {
+            values[id] = null;
+        }
+
+        @Override
+        protected void resizeKeys(int capacity)
+        {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        /**
+         * This is an in-order iterator.
+         */
+        private class Itor extends PooledItor implements Iterator<E>
+        {
+
+            /**
+             * Instantiates a new Itor object.
+             */
+            public Itor()
+            {
+                super(false, false);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next()
+            {
+                return (E) values[nextId()];
+            }
+        }
+    }
+}
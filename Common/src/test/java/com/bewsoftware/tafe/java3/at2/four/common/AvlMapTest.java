@@ -0,0 +1,102 @@
+/*
+ *  File Name:    AvlMapTest.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ */
+public class AvlMapTest
+{
+
+    public AvlMapTest()
+    {
+    }
+
+    /**
+     * Test of get, put, putIfAbsent, computeIfAbsent and remove methods, of class AvlMap.
+     */
+    @Test
+    public void testKeyedAccess()
+    {
+        AvlMap<String, Integer> map = new AvlMap<>();
+
+        assertNull(map.put("one", 1));
+        assertNull(map.putIfAbsent("two", 2));
+        assertEquals(2, map.putIfAbsent("two", 22));
+        assertEquals(1, map.put("one", 11));
+        assertEquals(3, map.computeIfAbsent("three", key -> 3));
+        assertEquals(3, map.computeIfAbsent("three", key -> fail("already present")));
+
+        assertEquals(11, map.get("one"));
+        assertEquals(2, map.get("two"));
+        assertNull(map.get("four"));
+        assertTrue(map.containsKey("three"));
+        assertEquals(3, map.size());
+
+        assertEquals(2, map.remove("two"));
+        assertNull(map.remove("two"));
+        assertFalse(map.containsKey("two"));
+        assertEquals(2, map.size());
+    }
+
+    /**
+     * Test of entrySet method, of class AvlMap.
+     */
+    @Test
+    public void testEntrySet()
+    {
+        AvlMap<Integer, String> map = new AvlMap<>(true);
+        TreeMap<Integer, String> expected = new TreeMap<>();
+
+        for (int i = 0; i < 100; i++)
+        {
+            expected.put(i, Integer.toString(i));
+        }
+
+        map.putAll(expected);
+        map.put(200, "200");
+        expected.put(200, "200");
+
+        assertEquals(expected, map);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(map.keySet()));
+        assertTrue(map.entrySet().contains(Map.entry(5, "5")));
+        assertFalse(map.entrySet().contains(Map.entry(5, "6")));
+
+        for (Iterator<Map.Entry<Integer, String>> it = map.entrySet().iterator(); it.hasNext();)
+        {
+            if (it.next().getKey() % 2 == 0)
+            {
+                it.remove();
+            }
+        }
+
+        expected.keySet().removeIf(key -> key % 2 == 0);
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.entrySet().parallelStream().count());
+        assertThrows(UnsupportedOperationException.class,
+                () -> map.entrySet().iterator().next().setValue("x"));
+    }
+}
@@ -19,7 +19,11 @@
  */
 package com.bewsoftware.tafe.java3.at2.four.common;
 
+import java.io.*;
+import java.lang.ref.WeakReference;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 import org.junit.jupiter.api.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -111,6 +115,47 @@ public class AvlTreeTest
 
     }
 
+    /**
+     * Test of addAll method, with sorted input, of class AvlTree.
+     */
+    @Test
+    public void testAddAll_sorted()
+    {
+        List<Integer> sorted = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i += 2)
+        {
+            sorted.add(i);
+        }
+
+        AvlTree<Integer> list = new AvlTree<>(sorted);
+        assertEquals(500, list.size());
+        assertEquals(checkHeight(list.getRoot()), list.getRoot().Height);
+        assertEquals(9, list.getRoot().Height);
+
+        sorted.clear();
+
+        for (int i = 0; i < 1000; i += 3)
+        {
+            sorted.add(i);
+        }
+
+        assertTrue(list.addAll(sorted));
+        assertFalse(list.addAll(sorted));
+        assertEquals(667, list.size());
+        assertEquals(checkHeight(list.getRoot()), list.getRoot().Height);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            assertEquals(i % 2 == 0 || i % 3 == 0, list.contains(i));
+        }
+
+        list = new AvlTree<>(sorted, false);
+        assertFalse(list.isBalanced());
+        assertEquals(334, list.size());
+        assertThrows(NullPointerException.class, () -> new AvlTree<>(Arrays.asList(1, null, 3)));
+    }
+
     /**
      * Test of addAll method, of class AvlTree.
      */
@@ -120,6 +165,51 @@ public class AvlTreeTest
         // not impl
     }
 
+    /**
+     * Test of the balancing policies, of class AvlTree.
+     */
+    @Test
+    public void testBalancePolicy()
+    {
+        Random random = new Random(97531);
+        List<Integer> input = new ArrayList<>();
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            input.add(random.nextInt(1_000_000));
+        }
+
+        AvlTree<Integer> avl = new AvlTree<>(BalancePolicy.AVL);
+        AvlTree<Integer> relaxed = new AvlTree<>(BalancePolicy.RELAXED);
+        AvlTree<Integer> none = new AvlTree<>(BalancePolicy.NONE);
+
+        for (Integer i : input)
+        {
+            avl.add(i);
+            relaxed.add(i);
+            none.add(i);
+        }
+
+        for (int i = 0; i < input.size(); i += 3)
+        {
+            avl.remove(input.get(i));
+            relaxed.remove(input.get(i));
+        }
+
+        assertArrayEquals(avl.toArray(), relaxed.toArray());
+        assertEquals(BalancePolicy.RELAXED, relaxed.getBalancePolicy());
+        assertTrue(relaxed.isBalanced());
+        assertFalse(none.isBalanced());
+        assertEquals(0, none.getRotationCount());
+        assertTrue(relaxed.getRotationCount() < avl.getRotationCount());
+
+        assertEquals(checkHeight(avl.getRoot()), avl.getRoot().Height);
+        assertEquals(checkHeight(relaxed.getRoot(), BalancePolicy.RELAXED.getTolerance()),
+                     relaxed.getRoot().Height);
+        assertTrue(relaxed.getRoot().Height <= 1.81 * Math.log(relaxed.size()) / Math.log(2) + 2);
+        assertEquals(BalancePolicy.RELAXED, relaxed.snapshot().getBalancePolicy());
+    }
+
     /**
      * Test of clear method, of class AvlTree.
      */
@@ -137,6 +227,59 @@ public class AvlTreeTest
         assertEquals(0, list.size());
     }
 
+    /**
+     * Test of a tree ordered by a Comparator, of class AvlTree.
+     *
+     * @throws IOException            if any
+     * @throws ClassNotFoundException if any
+     */
+    @Test
+    public void testComparator() throws IOException, ClassNotFoundException
+    {
+        int[] comparisons = new int[1];
+        AvlTree<String> list = new AvlTree<>((a, b) ->
+        {
+            comparisons[0]++;
+            return String.CASE_INSENSITIVE_ORDER.compare(a, b);
+        });
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            list.add("User" + i);
+        }
+
+        assertFalse(list.add("USER5"));
+        assertTrue(list.contains("user999"));
+        assertEquals("User10", list.higher("user1"));
+        assertNotNull(list.comparator());
+        assertEquals(list.comparator(), list.subSet("a", true, "z", true).comparator());
+
+        // One comparison per Node on the way down.
+        comparisons[0] = 0;
+        list.contains("user500");
+        assertTrue(comparisons[0] <= list.getRoot().Height);
+
+        AvlTree<String> caseless = new AvlTree<>(String.CASE_INSENSITIVE_ORDER);
+        caseless.addAll(Arrays.asList("b", "C", "a"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(caseless);
+        }
+
+        try ( ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            @SuppressWarnings("unchecked")
+            AvlTree<String> copy = (AvlTree<String>) in.readObject();
+            assertArrayEquals(new Object[]
+            {
+                "a", "b", "C"
+            }, copy.toArray());
+            assertTrue(copy.contains("c"));
+        }
+    }
+
     /**
      * Test of contains method, of class AvlTree.
      */
@@ -160,7 +303,11 @@ public class AvlTreeTest
 //    @Test
     public void testContainsAll()
     {
-        // not impl
+        AvlTree<Integer> list = generateList();
+        assertTrue(list.containsAll(Arrays.asList(7, 10)));
+        assertFalse(list.containsAll(Arrays.asList(-99, 7)));
+        assertFalse(list.containsAll(Arrays.asList(7, -99)));
+        assertTrue(list.containsAll(Collections.emptyList()));
     }
 
     /**
@@ -195,21 +342,28 @@ public class AvlTreeTest
         return list;
     }
 
-//    /**
-//     * Test of get method, of class AvlTree.
-//     */
-//    @Test
-//    @SuppressWarnings("AssertEqualsBetweenInconvertibleTypes")
-//    public void testGet()
-//    {
-//        AvlTree<Integer> list = generateList();
-//        Assertions.assertEquals(5, list.get(4));
-//        Assertions.assertNotEquals(5, list.get(5));
-//        Assertions.assertThrows(IndexOutOfBoundsException.class, () ->
-//                        {
-//                            list.get(list.size());
-//                        });
-//    }
+    /**
+     * Test of get method, of class AvlTree.
+     */
+    @Test
+    @SuppressWarnings("AssertEqualsBetweenInconvertibleTypes")
+    public void testGet()
+    {
+        AvlTree<Integer> list = generateList();
+        assertEquals(5, list.get(4));
+        assertNotEquals(5, list.get(5));
+        assertThrows(IndexOutOfBoundsException.class, ()
+                ->
+        {
+            list.get(list.size());
+        });
+
+        list.delete(3);
+        list.add(30);
+        assertEquals(5, list.get(3));
+        assertEquals(30, list.get(list.size() - 1));
+    }
+
     /**
      * Test of getCount method, of class AvlTree.
      */
@@ -221,20 +375,81 @@ public class AvlTreeTest
         assertNotEquals(5, list.size());
     }
 
-//    /**
-//     * Test of indexOf method, of class AvlTree.
-//     */
-//    @Test
-//    public void testIndexOf()
-//    {
-//        AvlTree<Integer> list = generateList();
-//        Assertions.assertEquals(10, list.indexOf(11));
-//        Assertions.assertNotEquals(5, list.indexOf(1));
-//        Assertions.assertThrows(NullPointerException.class, () ->
-//                        {
-//                            list.indexOf(null);
-//                        });
-//    }
+    /**
+     * Test of indexOf method, of class AvlTree.
+     */
+    @Test
+    public void testIndexOf()
+    {
+        AvlTree<Integer> list = generateList();
+        assertEquals(10, list.indexOf(11));
+        assertNotEquals(5, list.indexOf(1));
+        assertEquals(-1, list.indexOf(20));
+        assertThrows(NullPointerException.class, ()
+                ->
+        {
+            list.indexOf(null);
+        });
+
+        for (int i = 0; i < list.size(); i++)
+        {
+            assertEquals(i, list.indexOf(list.get(i)));
+        }
+    }
+
+    /**
+     * Test of the cached Node heights, of class AvlTree.
+     */
+    @Test
+    public void testHeight()
+    {
+        AvlTree<Integer> list = new AvlTree<>();
+
+        for (int i = 0; i < 10_000; i++)
+        {
+            list.add(i);
+        }
+
+        for (int i = 0; i < 10_000; i += 3)
+        {
+            list.delete(i);
+        }
+
+        assertEquals(checkHeight(list.getRoot()), list.getRoot().Height);
+        assertTrue(list.getRoot().Height <= 20);
+    }
+
+    /**
+     * Recursively check the cached height, size and balance of each Node.
+     *
+     * @param current the current Node
+     *
+     * @return the actual height of the sub-tree
+     */
+    private int checkHeight(AvlTree.Node<Integer> current)
+    {
+        return checkHeight(current, 1);
+    }
+
+    private int checkHeight(AvlTree.Node<Integer> current, int tolerance)
+    {
+        int rtn = 0;
+
+        if (current != null)
+        {
+            int left = checkHeight(current.Left, tolerance);
+            int right = checkHeight(current.Right, tolerance);
+
+            assertTrue(Math.abs(left - right) <= tolerance);
+            rtn = Math.max(left, right) + 1;
+            assertEquals(rtn, current.Height);
+            assertEquals((current.Left != null ? current.Left.Size : 0)
+                         + (current.Right != null ? current.Right.Size : 0) + 1, current.Size);
+        }
+
+        return rtn;
+    }
+
     /**
      * Test of isBalanced method, of class AvlTree.
      */
@@ -255,6 +470,28 @@ public class AvlTreeTest
         assertFalse(list.isBalanced());
     }
 
+    /**
+     * Test of an unbalanced tree with a very deep, list like, shape.
+     */
+    @Test
+    public void testIsBalanced_deep()
+    {
+        AvlTree<Integer> list = new AvlTree<>(false);
+
+        for (int i = 0; i < 20_000; i++)
+        {
+            list.add(i);
+        }
+
+        assertEquals(20_000, list.getRoot().Height);
+        assertTrue(list.contains(19_999));
+        assertEquals(19_999, list.indexOf(19_999));
+        assertEquals(20_000, list.toArray().length);
+        assertTrue(list.delete(19_999));
+        assertTrue(list.delete(0));
+        assertEquals(19_998, list.size());
+    }
+
     /**
      * Test of isEmpty method, of class AvlTree.
      */
@@ -286,6 +523,59 @@ public class AvlTreeTest
         assertEquals(SORTED_STRING, sb.toString());
     }
 
+    /**
+     * Test of iterator remove method, of class AvlTree.
+     */
+    @Test
+    public void testIterator_remove()
+    {
+        AvlTree<Integer> list = generateList();
+        StringBuilder sb = new StringBuilder();
+
+        for (Iterator<Integer> it = list.iterator(); it.hasNext();)
+        {
+            int next = it.next();
+            sb.append(next).append(',');
+
+            if (next % 2 == 0)
+            {
+                it.remove();
+            }
+        }
+
+        assertEquals(SORTED_STRING, sb.toString());
+        assertEquals(6, list.size());
+        assertArrayEquals(new Integer[]
+        {
+            1, 3, 5, 7, 9, 11
+        }, list.toArray(new Integer[0]));
+
+        sb.setLength(0);
+
+        for (Iterator<Integer> it = list.descendingIterator(); it.hasNext();)
+        {
+            int next = it.next();
+            sb.append(next).append(',');
+
+            if (next % 3 == 0)
+            {
+                it.remove();
+            }
+        }
+
+        assertEquals("11,9,7,5,3,1,", sb.toString());
+        assertArrayEquals(new Integer[]
+        {
+            1, 5, 7, 11
+        }, list.toArray(new Integer[0]));
+
+        Iterator<Integer> it = list.iterator();
+        assertThrows(IllegalStateException.class, it::remove);
+        it.next();
+        list.add(2);
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
     /**
      * Test of lastIndexOf method, of class AvlTree.
      */
@@ -314,25 +604,235 @@ public class AvlTreeTest
     }
 
     /**
-     * Test of remove method, of class AvlTree.
+     * Test of the NavigableSet navigation methods, of class AvlTree.
      */
     @Test
-    public void testRemove_Object()
+    public void testNavigation()
     {
-        AvlTree<Integer> list = generateList();
-        assertTrue(list.remove(7));
-        assertFalse(list.contains(7));
+        AvlTree<Integer> list = new AvlTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
 
-        assertFalse(list.remove(7));
+        for (int i = 0; i < 100; i += 5)
+        {
+            list.add(i);
+            expected.add(i);
+        }
+
+        assertEquals(expected.first(), list.first());
+        assertEquals(expected.last(), list.last());
+
+        for (int i = -3; i < 103; i++)
+        {
+            assertEquals(expected.lower(i), list.lower(i));
+            assertEquals(expected.floor(i), list.floor(i));
+            assertEquals(expected.ceiling(i), list.ceiling(i));
+            assertEquals(expected.higher(i), list.higher(i));
+        }
+
+        assertEquals(0, list.pollFirst());
+        assertEquals(95, list.pollLast());
+        assertEquals(18, list.size());
+
+        list.clear();
+        assertNull(list.pollFirst());
+        assertThrows(NoSuchElementException.class, list::first);
+    }
+
+    /**
+     * Test of the NavigableSet range views, of class AvlTree.
+     */
+    @Test
+    public void testRangeViews()
+    {
+        AvlTree<Integer> list = new AvlTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 100; i += 2)
+        {
+            list.add(i);
+            expected.add(i);
+        }
+
+        assertRangeEquals(expected.subSet(10, true, 30, false), list.subSet(10, true, 30, false));
+        assertRangeEquals(expected.subSet(11, false, 31, true), list.subSet(11, false, 31, true));
+        assertRangeEquals(expected.headSet(20, true), list.headSet(20, true));
+        assertRangeEquals(expected.tailSet(91, false), list.tailSet(91, false));
+        assertRangeEquals(expected.descendingSet(), list.descendingSet());
+        assertRangeEquals(expected.descendingSet().subSet(60, true, 40, false),
+                          list.descendingSet().subSet(60, true, 40, false));
+        assertRangeEquals(expected.subSet(20, true, 80, false).headSet(50, false).descendingSet().tailSet(30, true),
+                          list.subSet(20, true, 80, false).headSet(50, false).descendingSet().tailSet(30, true));
+
+        NavigableSet<Integer> view = list.subSet(10, true, 20, true);
+        assertThrows(IllegalArgumentException.class, () -> view.add(21));
+        assertThrows(IllegalArgumentException.class, () -> view.subSet(5, 15));
+        assertTrue(view.add(11));
+        assertTrue(list.contains(11));
+        assertTrue(list.remove(12));
+        assertFalse(view.contains(12));
+        assertEquals(6, view.size());
+        assertEquals(11, view.higher(10));
+        assertEquals(20, view.floor(25));
+        assertNull(view.higher(20));
+
+        view.clear();
+        assertTrue(view.isEmpty());
+        assertEquals(44, list.size());
+        assertEquals(8, list.lower(22));
+    }
+
+    /**
+     * Assert that the {@code actual} range view matches the {@code expected} one.
+     *
+     * @param expected the expected range view
+     * @param actual   the actual range view
+     */
+    private void assertRangeEquals(NavigableSet<Integer> expected, NavigableSet<Integer> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.toArray(), actual.toArray());
+        assertArrayEquals(expected.descendingSet().toArray(), actual.descendingSet().toArray());
+
+        if (!expected.isEmpty())
+        {
+            assertEquals(expected.first(), actual.first());
+            assertEquals(expected.last(), actual.last());
+        }
+
+        for (int i = -3; i < 103; i++)
+        {
+            assertEquals(expected.contains(i), actual.contains(i));
+            assertEquals(expected.lower(i), actual.lower(i));
+            assertEquals(expected.floor(i), actual.floor(i));
+            assertEquals(expected.ceiling(i), actual.ceiling(i));
+            assertEquals(expected.higher(i), actual.higher(i));
+        }
+    }
+
+    /**
+     * Test of union, intersection and difference methods, of class AvlTree.
+     */
+    @Test
+    public void testSetAlgebra()
+    {
+        Random random = new Random(24680);
+        int[][] sizes =
+        {
+            {
+                0, 100
+            },
+            {
+                5, 10_000
+            },
+            {
+                3_000, 4_000
+            },
+            {
+                10_000, 50
+            }
+        };
+
+        for (int[] size : sizes)
+        {
+            AvlTree<Integer> a = new AvlTree<>();
+            AvlTree<Integer> b = new AvlTree<>();
+            TreeSet<Integer> expectedA = new TreeSet<>();
+            TreeSet<Integer> expectedB = new TreeSet<>();
+
+            while (expectedA.size() < size[0])
+            {
+                Integer next = random.nextInt(20_000);
+                a.add(next);
+                expectedA.add(next);
+            }
+
+            while (expectedB.size() < size[1])
+            {
+                Integer next = random.nextInt(20_000);
+                b.add(next);
+                expectedB.add(next);
+            }
+
+            TreeSet<Integer> expected = new TreeSet<>(expectedA);
+            expected.addAll(expectedB);
+            assertSetAlgebra(expected, a.union(b));
+
+            expected = new TreeSet<>(expectedA);
+            expected.retainAll(expectedB);
+            assertSetAlgebra(expected, a.intersection(b));
+
+            expected = new TreeSet<>(expectedA);
+            expected.removeAll(expectedB);
+            assertSetAlgebra(expected, a.difference(b));
+
+            // Neither side is changed.
+            assertArrayEquals(expectedA.toArray(), a.toArray());
+            assertArrayEquals(expectedB.toArray(), b.toArray());
+
+            // In place, including with itself.
+            assertEquals(!expectedB.isEmpty(), b.removeAll(b));
+            assertTrue(b.isEmpty());
+            assertFalse(a.retainAll(a));
+            assertSetAlgebra(expectedA, a);
+        }
+    }
+
+    /**
+     * Assert that the {@code actual} tree holds the {@code expected} elements, and
+     * is well-formed.
+     *
+     * @param expected the expected elements
+     * @param actual   the actual tree
+     */
+    private void assertSetAlgebra(TreeSet<Integer> expected, AvlTree<Integer> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+        assertArrayEquals(expected.toArray(), actual.toArray());
+
+        if (!expected.isEmpty())
+        {
+            assertEquals(checkHeight(actual.getRoot()), actual.getRoot().Height);
+        }
+    }
+
+    /**
+     * Test of random adds and deletes, of class AvlTree.
+     */
+    @Test
+    public void testRandomised()
+    {
+        Random random = new Random(12345);
+        AvlTree<Integer> list = new AvlTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 20_000; i++)
+        {
+            Integer next = random.nextInt(2_000);
+
+            if (random.nextBoolean())
+            {
+                assertEquals(expected.add(next), list.add(next));
+            } else
+            {
+                assertEquals(expected.remove(next), list.remove(next));
+            }
+        }
+
+        assertEquals(checkHeight(list.getRoot()), list.getRoot().Height);
+        assertArrayEquals(expected.toArray(), list.toArray());
     }
 
     /**
      * Test of remove method, of class AvlTree.
      */
-//    @Test
-    public void testRemove_int()
+    @Test
+    public void testRemove_Object()
     {
-        // not impl
+        AvlTree<Integer> list = generateList();
+        assertTrue(list.remove(7));
+        assertFalse(list.contains(7));
+
+        assertFalse(list.remove(7));
     }
 
     /**
@@ -354,6 +854,77 @@ public class AvlTreeTest
         assertEquals(size - (SUB_LIST.length - 1), list.size());
     }
 
+    /**
+     * Test of removeAt method, of class AvlTree.
+     */
+    @Test
+    public void testRemoveAt()
+    {
+        AvlTree<Integer> list = new AvlTree<>();
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            list.add(i);
+            expected.add(i);
+        }
+
+        AvlTree<Integer> snapshot = list.snapshot();
+        assertEquals(0, list.removeAt(0));
+        assertEquals(500, list.removeAt(499));
+        assertEquals(999, list.removeAt(list.size() - 1));
+        expected.removeAll(List.of(0, 500, 999));
+        assertArrayEquals(expected.toArray(), list.toArray());
+        assertEquals(1_000, snapshot.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> list.removeAt(list.size()));
+    }
+
+    /**
+     * Test of removeRange method, of class AvlTree.
+     */
+    @Test
+    public void testRemoveRange()
+    {
+        for (boolean balanced : new boolean[]
+        {
+            true, false
+        })
+        {
+            AvlTree<Integer> list = new AvlTree<>(balanced);
+            List<Integer> expected = new ArrayList<>();
+
+            for (int i = 0; i < 2_000; i++)
+            {
+                list.add(i);
+                expected.add(i);
+            }
+
+            AvlTree<Integer> snapshot = list.snapshot();
+            list.removeRange(0, 300);
+            expected.subList(0, 300).clear();
+            list.removeRange(500, 1_200);
+            expected.subList(500, 1_200).clear();
+            list.removeRange(list.size() - 10, list.size());
+            expected.subList(expected.size() - 10, expected.size()).clear();
+            list.removeRange(5, 5);
+
+            assertEquals(expected.size(), list.size());
+            assertArrayEquals(expected.toArray(), list.toArray());
+            assertEquals(expected.get(600), list.get(600));
+            assertEquals(2_000, snapshot.size());
+            assertThrows(IndexOutOfBoundsException.class, () -> list.removeRange(5, 4));
+            assertThrows(IndexOutOfBoundsException.class, () -> list.removeRange(0, list.size() + 1));
+
+            if (balanced)
+            {
+                assertEquals(checkHeight(list.getRoot()), list.getRoot().Height);
+            }
+
+            list.removeRange(0, list.size());
+            assertTrue(list.isEmpty());
+        }
+    }
+
     /**
      * Test of retainAll method, of class AvlTree.
      */
@@ -381,6 +952,365 @@ public class AvlTreeTest
         // not impl
     }
 
+    /**
+     * Test of spliterator method, of class AvlTree.
+     */
+    @Test
+    public void testSpliterator()
+    {
+        AvlTree<Integer> list = new AvlTree<>();
+        List<Integer> expected = new ArrayList<>();
+
+        for (int i = 0; i < 10_000; i++)
+        {
+            list.add(i);
+            expected.add(i);
+        }
+
+        Spliterator<Integer> spliterator = list.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED
+                                                  | Spliterator.SORTED | Spliterator.DISTINCT
+                                                  | Spliterator.NONNULL));
+        assertNull(spliterator.getComparator());
+
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        assertEquals(5_000, prefix.estimateSize());
+        assertEquals(5_000, spliterator.estimateSize());
+        assertTrue(prefix.tryAdvance(i -> assertEquals(0, i)));
+        assertTrue(spliterator.tryAdvance(i -> assertEquals(5_000, i)));
+
+        assertEquals(expected, list.parallelStream().collect(Collectors.toList()));
+        assertEquals(expected.stream().mapToLong(i -> i).sum(),
+                list.parallelStream().mapToLong(i -> i).sum());
+        assertEquals(expected.subList(100, 201),
+                list.subSet(100, true, 200, true).stream().collect(Collectors.toList()));
+
+        Spliterator<Integer> stale = list.spliterator();
+        list.add(-1);
+        assertThrows(ConcurrentModificationException.class, () -> stale.tryAdvance(i -> {}));
+    }
+
+    /**
+     * Test of snapshot method, of class AvlTree.
+     */
+    @Test
+    public void testSnapshot()
+    {
+        AvlTree<Integer> list = new AvlTree<>();
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            list.add(i);
+        }
+
+        AvlTree<Integer> snapshot = list.snapshot();
+        Iterator<Integer> it = snapshot.iterator();
+        assertEquals(0, it.next());
+
+        for (int i = 0; i < 1_000; i += 2)
+        {
+            assertTrue(list.remove(i));
+        }
+
+        list.add(5_000);
+        assertEquals(1, it.next());
+        assertTrue(snapshot.add(-1));
+
+        assertEquals(501, list.size());
+        assertEquals(1_001, snapshot.size());
+        assertFalse(list.contains(-1));
+        assertTrue(snapshot.contains(0));
+        assertFalse(snapshot.contains(5_000));
+        assertEquals(checkHeight(list.getRoot()), list.getRoot().Height);
+        assertEquals(checkHeight(snapshot.getRoot()), snapshot.getRoot().Height);
+    }
+
+    /**
+     * Test of setSnapshotIteration method, of class AvlTree.
+     */
+    @Test
+    public void testSnapshotIteration()
+    {
+        AvlTree<Integer> list = new AvlTree<>();
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            list.add(i);
+        }
+
+        Iterator<Integer> failFast = list.iterator();
+        list.add(1_000);
+        assertThrows(ConcurrentModificationException.class, failFast::next);
+
+        list.setSnapshotIteration(true);
+        assertTrue(list.isSnapshotIteration());
+        Iterator<Integer> it = list.iterator();
+        Iterator<Integer> desc = list.descendingSet().headSet(500, true).iterator();
+        Spliterator<Integer> split = list.spliterator();
+        int expected = 0;
+
+        while (it.hasNext())
+        {
+            int next = it.next();
+            assertEquals(expected++, next);
+
+            // Writers carry on while the scan is in progress.
+            list.add(2_000 + next);
+
+            if (next % 2 == 0)
+            {
+                it.remove();
+            }
+        }
+
+        assertEquals(1_001, expected);
+        assertEquals(1_001 + 1_001 - 501, list.size());
+        assertFalse(list.contains(0));
+        assertTrue(list.contains(2_000));
+        assertEquals(1_000, desc.next());
+        list.clear();
+        assertEquals(999, desc.next());
+        assertEquals(1_001, split.estimateSize());
+        assertEquals(1_001, StreamSupport.stream(split, false).count());
+        assertTrue(list.isEmpty());
+
+        ConcurrentAvlTree<Integer> concurrent = new ConcurrentAvlTree<>();
+        concurrent.setSnapshotIteration(false);
+        assertTrue(concurrent.isSnapshotIteration());
+    }
+
+    /**
+     * Test of enableLookupCache method, of class AvlTree.
+     */
+    @Test
+    public void testLookupCache()
+    {
+        AvlTree<Integer> list = new AvlTree<>();
+        AvlTreeStats stats = list.enableStatistics();
+        list.enableLookupCache(1_000);
+        assertThrows(IllegalArgumentException.class, () -> list.enableLookupCache(0));
+
+        for (int i = 0; i < 10_000; i++)
+        {
+            list.add(i);
+        }
+
+        for (int round = 0; round < 10; round++)
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                assertTrue(list.contains(i));
+            }
+        }
+
+        assertEquals(100, stats.getCacheMisses());
+        assertEquals(900, stats.getCacheHits());
+        assertEquals(0.9, stats.getCacheHitRate(), 1e-9);
+        assertTrue(stats.getAverageComparisons() < list.getHeight());
+
+        // Any change invalidates the cache, and a removed element is never found.
+        assertTrue(list.remove(50));
+        assertFalse(list.contains(50));
+        assertTrue(list.contains(51));
+        AvlTree<Integer> snapshot = list.snapshot();
+        assertTrue(list.add(50));
+        assertFalse(snapshot.contains(50));
+        assertTrue(list.contains(50));
+        assertFalse(snapshot.contains(50));
+
+        // Keys that share a slot are told apart by their comparison.
+        AvlMap<String, String> map = new AvlMap<>();
+        map.enableLookupCache(1);
+        map.put("alice", "1");
+        map.put("bob", "2");
+        assertEquals("1", map.get("alice"));
+        assertEquals("2", map.get("bob"));
+        assertNull(map.get("carol"));
+
+        // Replacing a value, which does not change the version, still invalidates it.
+        map.put("bob", "3");
+        assertEquals("3", map.get("bob"));
+        assertEquals("3", map.get("bob"));
+
+        // A snapshot shares the cache, but only hits on the entries it made itself.
+        AvlTree<Integer> copy = list.snapshot();
+        stats.reset();
+        assertTrue(copy.contains(7));
+        assertTrue(copy.contains(7));
+        assertTrue(list.contains(7));
+        assertEquals(1, stats.getCacheHits());
+        assertEquals(2, stats.getCacheMisses());
+
+        // Deleting an element empties its slot, so the cache does not keep it alive.
+        AvlMap<String, Object> users = new AvlMap<>();
+        users.enableLookupCache(1);
+        Object hash = new Object();
+        WeakReference<Object> deleted = new WeakReference<>(hash);
+        users.put("dave", hash);
+        assertSame(hash, users.get("dave"));
+        assertSame(hash, users.remove("dave"));
+        hash = null;
+
+        for (int i = 0; i < 10 && deleted.get() != null; i++)
+        {
+            System.gc();
+        }
+
+        assertNull(deleted.get());
+
+        stats.reset();
+        assertEquals(0, stats.getCacheHitRate());
+    }
+
+    /**
+     * Test of the statistics, of class AvlTree.
+     */
+    @Test
+    public void testStatistics()
+    {
+        AvlTree<Integer> list = new AvlTree<>();
+        list.add(0);
+        AvlTreeStats stats = list.enableStatistics();
+        assertSame(stats, list.enableStatistics());
+
+        for (int i = 1; i < 1_000; i++)
+        {
+            list.add(i);
+        }
+
+        // Ascending adds only ever rotate to the left.
+        assertTrue(stats.getRightRightRotations() > 0);
+        assertEquals(0, stats.getLeftLeftRotations());
+        assertEquals("AVL", stats.getBalancePolicy());
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            assertTrue(list.contains(i));
+        }
+
+        assertEquals(1_000, stats.getLookups());
+        assertTrue(stats.getAverageComparisons() <= list.getHeight());
+        assertEquals(list.getHeight(), stats.getHeight());
+
+        long[] histogram = stats.getDepthHistogram();
+        assertEquals(list.getHeight(), histogram.length);
+        assertEquals(1, histogram[0]);
+        assertEquals(1_000, Arrays.stream(histogram).sum());
+
+        list.addAll(Arrays.asList(2_000, 2_001, 2_002, 2_003, 2_004, 2_005, 2_006, 2_007));
+        list.snapshot().contains(5);
+        assertEquals(1_001, stats.getLookups());
+
+        stats.reset();
+        assertEquals(0, stats.getLookups());
+        assertEquals(0, stats.getAverageComparisons());
+        assertEquals(1_008, stats.getSize());
+    }
+
+    /**
+     * Test of write and read methods, of class AvlTree.
+     */
+    @Test
+    public void testWriteRead() throws Exception
+    {
+        AvlTree<String> list = new AvlTree<>();
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            list.add("user" + i);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        list.write(new DataOutputStream(bytes), ElementCodec.UTF);
+
+        AvlTree<String> copy = new AvlTree<>();
+        copy.add("replaced");
+        copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), ElementCodec.UTF);
+        assertArrayEquals(list.toArray(), copy.toArray());
+        assertTrue(copy.getRoot().Height <= 11);
+
+        // Corrupt the last element.
+        byte[] data = bytes.toByteArray();
+        data[data.length - 5]++;
+        assertThrows(IOException.class, () -> copy.read(
+                new DataInputStream(new ByteArrayInputStream(data)), ElementCodec.UTF));
+        assertEquals(1_000, copy.size());
+
+        // Through Externalizable.
+        bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(list);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            assertArrayEquals(list.toArray(), ((AvlTree<?>) in.readObject()).toArray());
+        }
+    }
+
+    /**
+     * Test of write and read methods, of class AvlTree, with elements whose
+     * hashCode() differs between the tree written and the one read.
+     *
+     * @throws Exception if any
+     */
+    @Test
+    public void testWriteRead_UnstableHashCode() throws Exception
+    {
+        // Enums hash by identity, so their hashCode() changes between JVMs.
+        AvlTree<Thread.State> states = new AvlTree<>();
+        states.addAll(EnumSet.allOf(Thread.State.class));
+        ElementCodec<Thread.State> codec = new ElementCodec<>()
+        {
+            @Override
+            public Thread.State read(DataInput in) throws IOException
+            {
+                return Thread.State.valueOf(in.readUTF());
+            }
+
+            @Override
+            public void write(DataOutput out, Thread.State element) throws IOException
+            {
+                out.writeUTF(element.name());
+            }
+        };
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        states.write(new DataOutputStream(bytes), codec);
+        AvlTree<Thread.State> stateCopy = new AvlTree<>();
+        stateCopy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), codec);
+        assertArrayEquals(states.toArray(), stateCopy.toArray());
+
+        // Each Version read is a new object, with a new identity hashCode().
+        ConcurrentAvlTree<Version> versions = new ConcurrentAvlTree<>();
+
+        for (int i = 0; i < 100; i++)
+        {
+            versions.add(new Version(i / 10, i % 10));
+        }
+
+        bytes = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(states);
+            out.writeObject(versions);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            assertArrayEquals(states.toArray(), ((AvlTree<?>) in.readObject()).toArray());
+
+            @SuppressWarnings("unchecked")
+            ConcurrentAvlTree<Version> copy = (ConcurrentAvlTree<Version>) in.readObject();
+            assertEquals(100, copy.size());
+            assertEquals(0, copy.first().compareTo(new Version(0, 0)));
+            assertEquals(0, copy.last().compareTo(new Version(9, 9)));
+        }
+    }
+
     /**
      * Test of size method, of class AvlTree.
      */
@@ -436,4 +1366,30 @@ public class AvlTreeTest
 
         assertEquals(SORTED_STRING, sb.toString());
     }
+
+    /**
+     * A Comparable element that does not override hashCode().
+     */
+    private static final class Version implements Comparable<Version>, Serializable
+    {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int major;
+
+        private final int minor;
+
+        public Version(int major, int minor)
+        {
+            this.major = major;
+            this.minor = minor;
+        }
+
+        @Override
+        public int compareTo(Version other)
+        {
+            int rtn = Integer.compare(major, other.major);
+            return rtn != 0 ? rtn : Integer.compare(minor, other.minor);
+        }
+    }
 }
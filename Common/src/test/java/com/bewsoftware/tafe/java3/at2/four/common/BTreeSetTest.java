@@ -0,0 +1,172 @@
+/*
+ *  File Name:    BTreeSetTest.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ */
+public class BTreeSetTest
+{
+
+    public BTreeSetTest()
+    {
+    }
+
+    /**
+     * Test of get and indexOf methods, and the height, of class BTreeSet.
+     */
+    @Test
+    public void testGetIndexOf()
+    {
+        BTreeSet<Integer> tree = new BTreeSet<>();
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            assertTrue(tree.add(i));
+        }
+
+        assertFalse(tree.add(500));
+        assertEquals(100_000, tree.size());
+        assertTrue(tree.getHeight() <= 4);
+
+        for (int i = 0; i < 100_000; i += 37)
+        {
+            assertEquals(i, tree.get(i));
+            assertEquals(i, tree.indexOf(i));
+        }
+
+        assertEquals(-1, tree.indexOf(100_000));
+        assertThrows(IndexOutOfBoundsException.class, () -> tree.get(100_000));
+
+        for (int i = 0; i < 100_000; i += 2)
+        {
+            assertTrue(tree.delete(i));
+        }
+
+        assertFalse(tree.delete(0));
+        assertFalse(tree.delete(null));
+        assertEquals(50_000, tree.size());
+        assertEquals(1, tree.get(0));
+        assertEquals(99_999, tree.get(49_999));
+        assertEquals(25_000, tree.indexOf(50_001));
+    }
+
+    /**
+     * Test of the iterators, including remove, of class BTreeSet.
+     */
+    @Test
+    public void testIterators()
+    {
+        BTreeSet<Integer> tree = new BTreeSet<>();
+
+        for (int i = 0; i < 1_000; i++)
+        {
+            tree.add(i);
+        }
+
+        for (Iterator<Integer> it = tree.iterator(); it.hasNext();)
+        {
+            if (it.next() % 3 != 0)
+            {
+                it.remove();
+            }
+        }
+
+        assertEquals(334, tree.size());
+        int expected = 999;
+
+        for (Iterator<Integer> it = tree.descendingIterator(); it.hasNext(); expected -= 3)
+        {
+            assertEquals(expected, it.next());
+
+            if (expected % 2 == 0)
+            {
+                it.remove();
+            }
+        }
+
+        assertEquals(167, tree.size());
+        assertEquals(3, tree.first());
+        assertEquals(999, tree.last());
+
+        Iterator<Integer> it = tree.iterator();
+        tree.add(1_000);
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    /**
+     * Test of random adds and removes, navigation and views, of class BTreeSet.
+     */
+    @Test
+    public void testRandomised()
+    {
+        Random random = new Random(13579);
+        BTreeSet<Integer> tree = new BTreeSet<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            Integer next = random.nextInt(10_000);
+
+            if (random.nextBoolean())
+            {
+                assertEquals(expected.add(next), tree.add(next));
+            } else
+            {
+                assertEquals(expected.remove(next), tree.remove(next));
+            }
+        }
+
+        assertEquals(expected.size(), tree.size());
+        assertArrayEquals(expected.toArray(), tree.toArray());
+
+        for (int i = -1; i < 10_001; i += 13)
+        {
+            assertEquals(expected.ceiling(i), tree.ceiling(i));
+            assertEquals(expected.floor(i), tree.floor(i));
+            assertEquals(expected.higher(i), tree.higher(i));
+            assertEquals(expected.lower(i), tree.lower(i));
+        }
+
+        NavigableSet<Integer> view = tree.subSet(2_000, true, 3_000, false);
+        NavigableSet<Integer> expectedView = expected.subSet(2_000, true, 3_000, false);
+        assertEquals(expectedView.size(), view.size());
+        assertArrayEquals(expectedView.toArray(), view.toArray());
+        assertArrayEquals(expectedView.descendingSet().toArray(), view.descendingSet().toArray());
+        assertArrayEquals(expected.headSet(500, true).toArray(), tree.headSet(500, true).toArray());
+        assertArrayEquals(expected.tailSet(9_500, false).toArray(), tree.tailSet(9_500, false).toArray());
+        assertEquals(expectedView.pollFirst(), view.pollFirst());
+        assertEquals(expectedView.pollLast(), view.pollLast());
+        assertThrows(IllegalArgumentException.class, () -> view.add(3_000));
+        assertArrayEquals(expected.toArray(), tree.toArray());
+
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertNull(tree.pollFirst());
+        assertThrows(NoSuchElementException.class, tree::last);
+        assertFalse(tree.descendingIterator().hasNext());
+    }
+}
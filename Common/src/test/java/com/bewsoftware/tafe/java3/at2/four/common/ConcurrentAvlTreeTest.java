@@ -0,0 +1,131 @@
+/*
+ *  File Name:    ConcurrentAvlTreeTest.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ */
+public class ConcurrentAvlTreeTest
+{
+
+    private static final int THREADS = 4;
+
+    private static final int PER_THREAD = 5_000;
+
+    public ConcurrentAvlTreeTest()
+    {
+    }
+
+    /**
+     * Test of concurrent add, remove and contains, of class ConcurrentAvlTree.
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        ConcurrentAvlTree<Integer> tree = new ConcurrentAvlTree<>();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS * 2);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++)
+        {
+            final int base = t * PER_THREAD;
+
+            // Writer: adds its own range, then removes the odd numbers from it.
+            futures.add(executor.submit(() ->
+            {
+                for (int i = 0; i < PER_THREAD; i++)
+                {
+                    assertTrue(tree.add(base + i));
+                }
+
+                for (int i = 1; i < PER_THREAD; i += 2)
+                {
+                    assertTrue(tree.remove(base + i));
+                }
+            }));
+
+            // Reader: once an even number is seen, it must stay there.
+            futures.add(executor.submit(() ->
+            {
+                int seen = 0;
+
+                while (seen < PER_THREAD)
+                {
+                    if (tree.contains(base + seen))
+                    {
+                        seen += 2;
+                    } else
+                    {
+                        assertTrue(seen == 0 || tree.contains(base + seen - 2));
+                    }
+                }
+            }));
+        }
+
+        for (Future<?> future : futures)
+        {
+            future.get(60, TimeUnit.SECONDS);
+        }
+
+        executor.shutdown();
+
+        assertEquals(THREADS * PER_THREAD / 2, tree.size());
+
+        int expected = 0;
+
+        for (Integer item : tree)
+        {
+            assertEquals(expected, item);
+            expected += 2;
+        }
+    }
+
+    /**
+     * Test of iterator method, of class ConcurrentAvlTree.
+     */
+    @Test
+    public void testIterator()
+    {
+        ConcurrentAvlTree<Integer> tree = new ConcurrentAvlTree<>(Arrays.asList(1, 2, 3, 4, 5));
+        Iterator<Integer> it = tree.iterator();
+
+        // Writes do not disturb an iteration already under way.
+        tree.add(6);
+        assertEquals(1, it.next());
+        it.remove();
+        assertEquals(2, it.next());
+        assertFalse(tree.contains(1));
+        assertEquals(5, tree.size());
+
+        NavigableSet<Integer> view = tree.headSet(4, false);
+        assertArrayEquals(new Integer[]
+        {
+            2, 3
+        }, view.toArray(new Integer[0]));
+        assertThrows(UnsupportedOperationException.class, () -> view.add(0));
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  File Name:    IntAvlTreeTest.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ */
+public class IntAvlTreeTest
+{
+
+    public IntAvlTreeTest()
+    {
+    }
+
+    /**
+     * Test of add, contains and remove methods, of class IntAvlTree.
+     */
+    @Test
+    public void testRandomised()
+    {
+        Random random = new Random(13579);
+        IntAvlTree tree = new IntAvlTree();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 50_000; i++)
+        {
+            int next = random.nextInt(2_000) - 1_000;
+
+            switch (random.nextInt(3))
+            {
+                case 0:
+                    assertEquals(expected.add(next), tree.add(next));
+                    break;
+
+                case 1:
+                    assertEquals(expected.remove(next), tree.remove(next));
+                    break;
+
+                default:
+                    assertEquals(expected.contains(next), tree.contains(next));
+            }
+        }
+
+        assertEquals(expected.size(), tree.size());
+        assertArrayEquals(expected.stream().mapToInt(i -> i).toArray(), tree.toArray());
+        assertEquals(expected.first(), tree.first());
+        assertEquals(expected.last(), tree.last());
+        assertTrue(tree.getHeight() <= 16);
+    }
+
+    /**
+     * Test of range iterator method, of class IntAvlTree.
+     */
+    @Test
+    public void testIterator_range()
+    {
+        IntAvlTree tree = new IntAvlTree(0);
+
+        for (int i = 0; i < 100; i += 2)
+        {
+            tree.add(i);
+        }
+
+        PrimitiveIterator.OfInt it = tree.iterator(11, 20);
+        assertEquals(12, it.nextInt());
+        assertEquals(14, it.nextInt());
+        it.remove();
+        assertEquals(16, it.nextInt());
+        assertEquals(18, it.nextInt());
+        assertFalse(it.hasNext());
+        assertThrows(NoSuchElementException.class, it::nextInt);
+        assertFalse(tree.contains(14));
+        assertEquals(49, tree.size());
+
+        LongAvlTree sessions = new LongAvlTree();
+        sessions.add(Long.MAX_VALUE);
+        sessions.add(Long.MIN_VALUE);
+        sessions.add(0L);
+        assertArrayEquals(new long[]
+        {
+            Long.MIN_VALUE, 0L, Long.MAX_VALUE
+        }, sessions.toArray());
+        assertFalse(sessions.iterator(1L, Long.MAX_VALUE).hasNext());
+    }
+}
@@ -0,0 +1,472 @@
+/*
+ *  File Name:    LinkedListTest.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ */
+public class LinkedListTest
+{
+
+    public LinkedListTest()
+    {
+    }
+
+    /**
+     * Test of concurrent reads, of class LinkedList.
+     *
+     * @throws Exception if any
+     */
+    @Test
+    public void testConcurrentReads() throws Exception
+    {
+        LinkedList<Integer> list = new LinkedList<>();
+
+        for (int i = 0; i < 2_000; i++)
+        {
+            list.add(i);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<Boolean>> results = new ArrayList<>();
+
+        try
+        {
+            for (int t = 0; t < 4; t++)
+            {
+                final int offset = t;
+
+                results.add(executor.submit(() ->
+                {
+                    boolean rtn = true;
+                    LinkedList<Integer>.Cursor cursor = list.cursor();
+
+                    for (int i = offset; i < 2_000; i += 4)
+                    {
+                        rtn &= list.contains(i) && list.get(i) == i;
+                        rtn &= cursor.find(i) && Objects.equals(cursor.next(), i < 1_999 ? i + 1 : null);
+                    }
+
+                    int expected = 0;
+
+                    for (Integer item : list)
+                    {
+                        rtn &= item == expected++;
+                    }
+
+                    return rtn && expected == 2_000;
+                }));
+            }
+
+            for (Future<Boolean> result : results)
+            {
+                assertTrue(result.get());
+            }
+        } finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test of the Cursor class, of class LinkedList.
+     */
+    @Test
+    public void testCursor()
+    {
+        LinkedList<String> list = new LinkedList<>(false);
+        list.add("b");
+        list.add("d");
+        list.push("a");
+
+        LinkedList<String>.Cursor cursor = list.cursor();
+        LinkedList<String>.Cursor other = list.cursor();
+        assertNull(cursor.get());
+        assertEquals("a", cursor.first());
+        assertEquals("d", other.last());
+        assertEquals("b", cursor.next());
+        assertEquals("b", other.prev());
+        assertTrue(cursor.insertAfter("c"));
+        assertFalse(cursor.insertAfter("a"));
+        assertEquals("c", cursor.get());
+        assertEquals("b", other.get());
+        assertTrue(cursor.hasNext());
+        assertTrue(other.hasPrevious());
+
+        assertTrue(cursor.find("b"));
+        assertFalse(cursor.find("z"));
+        assertEquals("b", cursor.remove());
+        assertEquals("c", cursor.get());
+
+        // The other Cursor can still move off the removed item.
+        assertEquals("c", other.next());
+        assertArrayEquals(new Object[]
+        {
+            "a", "c", "d"
+        }, toArray(list));
+        assertEquals(3, list.size());
+
+        // The read-only methods do not move the list's own Cursor.
+        assertEquals("a", list.first());
+        assertTrue(list.contains("d"));
+        assertEquals("d", list.get("d"));
+        list.toString();
+        assertEquals("c", list.next());
+    }
+
+    /**
+     * Test of the Cursor class, of class LinkedList, with a Cursor left on an
+     * item removed by another.
+     */
+    @Test
+    public void testCursor_Stale()
+    {
+        // Two Cursors remove the same item.
+        LinkedList<String> list = new LinkedList<>(false);
+        list.add("a");
+        list.add("b");
+        list.add("c");
+
+        LinkedList<String>.Cursor cursor = list.cursor();
+        LinkedList<String>.Cursor other = list.cursor();
+        assertTrue(cursor.find("b"));
+        assertTrue(other.find("b"));
+        assertEquals("b", cursor.remove());
+        assertNull(other.get());
+        assertNull(other.remove());
+        assertChain(list, "a", "c");
+
+        // A stale insert goes next to the nearest items still in the list.
+        assertTrue(other.insertAfter("x"));
+        assertChain(list, "a", "x", "c");
+        assertTrue(cursor.find("x"));
+        assertEquals("x", cursor.remove());
+        assertTrue(other.find("c"));
+        assertEquals("c", list.pull());
+        assertTrue(other.insert("y"));
+        assertChain(list, "a", "y");
+
+        // A Cursor left stale by pop().
+        list = new LinkedList<>(false);
+        list.enableIndex();
+        list.add("a");
+        list.add("b");
+        list.add("c");
+        cursor = list.cursor();
+        cursor.first();
+        assertEquals("a", list.pop());
+        assertTrue(list.push("z"));
+        assertTrue(list.push("a"));
+        assertNull(cursor.remove());
+        assertChain(list, "a", "z", "b", "c");
+        assertTrue(list.contains("a"));
+        assertEquals("b", cursor.next());
+
+        // A Cursor left stale by pull(), and then by clear().
+        cursor.last();
+        assertEquals("c", list.pull());
+        assertNull(cursor.remove());
+        assertFalse(cursor.hasNext());
+        assertEquals("b", cursor.prev());
+        list.clear();
+        assertNull(cursor.remove());
+        assertTrue(list.add("d"));
+        assertChain(list, "d");
+    }
+
+    /**
+     * Test of enableIndex method, of class LinkedList.
+     *
+     * @throws IOException            if any
+     * @throws ClassNotFoundException if any
+     */
+    @Test
+    public void testIndex() throws IOException, ClassNotFoundException
+    {
+        assertThrows(IllegalStateException.class, () -> new LinkedList<String>().enableIndex());
+
+        LinkedList<String> list = new LinkedList<>(false);
+        list.add("first");
+        list.enableIndex();
+        assertTrue(list.isIndexed());
+
+        // Without the index, this would take about 5 billion comparisons.
+        for (int i = 0; i < 100_000; i++)
+        {
+            assertTrue(list.add("user" + i));
+        }
+
+        assertFalse(list.add("user500"));
+        assertFalse(list.push("first"));
+        assertTrue(list.contains("user99999"));
+        assertEquals("user42", list.get("user42"));
+        assertNull(list.get("nobody"));
+
+        LinkedList<String>.Cursor cursor = list.cursor();
+        assertTrue(cursor.find("user500"));
+        assertEquals("user501", cursor.next());
+        assertEquals("user501", cursor.remove());
+        assertFalse(list.contains("user501"));
+        assertTrue(cursor.insert("user501"));
+        assertEquals("user502", cursor.next());
+        assertEquals("first", list.pop());
+        assertEquals("user99999", list.pull());
+        assertFalse(list.contains("first"));
+        assertFalse(list.contains("user99999"));
+        assertEquals(99_999, list.size());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(list);
+        }
+
+        // Reading checks for duplicates with a hash set, so it is O(n) even unindexed.
+        try ( ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            @SuppressWarnings("unchecked")
+            LinkedList<String> copy = (LinkedList<String>) in.readObject();
+            assertFalse(copy.isIndexed());
+            assertArrayEquals(toArray(list), toArray(copy));
+            copy.enableIndex();
+            assertTrue(copy.contains("user0"));
+            assertFalse(copy.add("user0"));
+        }
+
+        list.clear();
+        assertFalse(list.contains("user0"));
+        assertTrue(list.add("user0"));
+    }
+
+    /**
+     * Test of next(E) method, of class LinkedList.
+     */
+    @Test
+    public void testNext_GenericType()
+    {
+        LinkedList<String> list = new LinkedList<>();
+        list.add("x");
+        list.add("y");
+        list.add("x");
+        list.add("x");
+
+        LinkedList<String>.Cursor cursor = list.cursor();
+        int found = 0;
+
+        if (cursor.find("x"))
+        {
+            do
+            {
+                found++;
+            } while (cursor.next("x"));
+        }
+
+        assertEquals(3, found);
+        assertNull(cursor.get());
+    }
+
+    /**
+     * Test of pop and pull methods, of class LinkedList.
+     */
+    @Test
+    public void testPopPull()
+    {
+        LinkedList<Integer> list = new LinkedList<>();
+
+        for (int i = 0; i < 5; i++)
+        {
+            list.add(i);
+        }
+
+        assertEquals(4, list.pull());
+        assertEquals(3, list.pull());
+        assertEquals(2, list.last());
+        assertEquals(1, list.prev());
+        assertEquals(0, list.pop());
+        assertEquals(1, list.first());
+        assertEquals(2, list.size());
+        assertEquals(2, list.pull());
+        assertEquals(1, list.pull());
+        assertNull(list.pull());
+        assertNull(list.pop());
+        assertEquals(0, list.size());
+        assertFalse(list.iterator().hasNext());
+        assertTrue(list.add(9));
+        assertEquals(9, list.first());
+        assertEquals(9, list.last());
+    }
+
+    /**
+     * Test of writeExternal and readExternal methods, of class LinkedList.
+     *
+     * @throws IOException            if any
+     * @throws ClassNotFoundException if any
+     */
+    @Test
+    public void testWriteReadExternal() throws IOException, ClassNotFoundException
+    {
+        LinkedList<String> list = new LinkedList<>(false);
+
+        for (int i = 0; i < 100; i++)
+        {
+            list.add("item" + i);
+        }
+
+        list.first();
+        list.next();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(list);
+        }
+
+        // Writing does not move the list's own Cursor.
+        assertEquals("item2", list.next());
+
+        try ( ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            @SuppressWarnings("unchecked")
+            LinkedList<String> copy = (LinkedList<String>) in.readObject();
+            assertFalse(copy.isAllowDuplicates());
+            assertArrayEquals(toArray(list), toArray(copy));
+            assertFalse(copy.add("item5"));
+        }
+    }
+
+    /**
+     * Test of readExternal method, of class LinkedList, with a duplicate, or a
+     * {@code null}, in the stream.
+     *
+     * @throws IOException            if any
+     * @throws ClassNotFoundException if any
+     */
+    @Test
+    public void testReadExternal_Duplicate() throws IOException, ClassNotFoundException
+    {
+        String[] items =
+        {
+            "a", "b", "a"
+        };
+
+        try ( ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(writeExternal(false, items))))
+        {
+            assertThrows(IOException.class, () -> new LinkedList<String>().readExternal(in));
+        }
+
+        try ( ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(writeExternal(true, items))))
+        {
+            LinkedList<String> list = new LinkedList<>(false);
+            list.readExternal(in);
+            assertTrue(list.isAllowDuplicates());
+            assertArrayEquals(items, toArray(list));
+        }
+
+        try ( ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(writeExternal(true, "a", null))))
+        {
+            assertThrows(IOException.class, () -> new LinkedList<String>().readExternal(in));
+        }
+    }
+
+    /**
+     * Check that the {@code list} holds the {@code expected} items, walking it
+     * both forwards and backwards.
+     *
+     * @param list     the list
+     * @param expected the items, in order
+     */
+    private static void assertChain(LinkedList<String> list, String... expected)
+    {
+        assertArrayEquals(expected, toArray(list));
+        assertEquals(expected.length, list.size());
+
+        List<String> backwards = new ArrayList<>();
+        LinkedList<String>.Cursor cursor = list.cursor();
+
+        for (String item = cursor.last(); item != null; item = cursor.prev())
+        {
+            backwards.add(0, item);
+        }
+
+        assertArrayEquals(expected, backwards.toArray());
+    }
+
+    /**
+     * Get the items in the {@code list}, in order.
+     *
+     * @param list the list
+     *
+     * @return the items
+     */
+    private static Object[] toArray(LinkedList<?> list)
+    {
+        List<Object> rtn = new ArrayList<>();
+        list.forEach(rtn::add);
+        return rtn.toArray();
+    }
+
+    /**
+     * Write the {@code items} in the layout of {@link LinkedList#writeExternal(ObjectOutput)},
+     * without any of the checks of a list.
+     *
+     * @param allowDuplicates the rule on duplicates to write
+     * @param items           the items
+     *
+     * @return the bytes written
+     *
+     * @throws IOException if any
+     */
+    private static byte[] writeExternal(boolean allowDuplicates, String... items) throws IOException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try ( ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            int totalHashCode = Objects.hashCode(allowDuplicates) + Objects.hashCode(items.length);
+            out.writeBoolean(allowDuplicates);
+            out.writeInt(Objects.hashCode(allowDuplicates));
+            out.writeInt(items.length);
+            out.writeInt(Objects.hashCode(items.length));
+
+            for (String item : items)
+            {
+                out.writeObject(item);
+                out.writeInt(Objects.hashCode(item));
+                totalHashCode += Objects.hashCode(item);
+            }
+
+            out.writeInt(totalHashCode);
+        }
+
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ *  File Name:    MappedBPlusTreeTest.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ */
+public class MappedBPlusTreeTest
+{
+
+    private Path file;
+
+    public MappedBPlusTreeTest()
+    {
+    }
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("bptree", ".dat");
+        Files.delete(file);
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Test of the navigation methods, of class MappedBPlusTree.
+     *
+     * @throws IOException if any
+     */
+    @Test
+    public void testNavigation() throws IOException
+    {
+        try ( MappedBPlusTree<String> tree = new MappedBPlusTree<>(file, ElementCodec.UTF, 4))
+        {
+            assertThrows(NoSuchElementException.class, tree::first);
+            assertNull(tree.floor("a"));
+            TreeSet<String> expected = new TreeSet<>();
+
+            for (int i = 0; i < 5_000; i += 2)
+            {
+                String key = String.format("user%05d", i);
+                expected.add(key);
+                tree.add(key);
+            }
+
+            // Empty a run of leaves, which are left in place.
+            for (int i = 1_000; i < 3_000; i += 2)
+            {
+                String key = String.format("user%05d", i);
+                expected.remove(key);
+                assertTrue(tree.remove(key));
+            }
+
+            assertEquals(expected.first(), tree.first());
+            assertEquals(expected.last(), tree.last());
+
+            for (int i = -1; i < 5_002; i += 7)
+            {
+                String key = String.format("user%05d", i);
+                assertEquals(expected.ceiling(key), tree.ceiling(key));
+                assertEquals(expected.floor(key), tree.floor(key));
+                assertEquals(expected.higher(key), tree.higher(key));
+                assertEquals(expected.lower(key), tree.lower(key));
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> tree.add("x".repeat(MappedBPlusTree.MAX_ELEMENT_BYTES)));
+        }
+    }
+
+    /**
+     * Test of the descending iterator, and the sub-set views, of class MappedBPlusTree.
+     *
+     * @throws IOException if any
+     */
+    @Test
+    public void testNavigableSet() throws IOException
+    {
+        try ( MappedBPlusTree<String> tree = new MappedBPlusTree<>(file, ElementCodec.UTF, 16))
+        {
+            TreeSet<String> expected = new TreeSet<>();
+
+            for (int i = 0; i < 5_000; i += 2)
+            {
+                String key = String.format("user%05d", i);
+                expected.add(key);
+                tree.add(key);
+            }
+
+            // Empty a run of leaves, which the views must step over.
+            for (int i = 1_000; i < 3_000; i += 2)
+            {
+                String key = String.format("user%05d", i);
+                expected.remove(key);
+                tree.remove(key);
+            }
+
+            assertNull(tree.comparator());
+            assertArrayEquals(expected.descendingSet().toArray(), tree.descendingSet().toArray());
+
+            List<String> actual = new ArrayList<>();
+            tree.descendingIterator().forEachRemaining(actual::add);
+            assertEquals(new ArrayList<>(expected.descendingSet()), actual);
+
+            for (int i = -1; i < 5_002; i += 499)
+            {
+                String from = String.format("user%05d", i);
+                String to = String.format("user%05d", i + 1_500);
+
+                assertEquals(expected.headSet(from, true).size(), tree.headSet(from, true).size());
+                assertArrayEquals(expected.headSet(from).toArray(), tree.headSet(from).toArray());
+                assertArrayEquals(expected.tailSet(from, false).toArray(), tree.tailSet(from, false).toArray());
+                assertArrayEquals(expected.subSet(from, to).toArray(), tree.subSet(from, to).toArray());
+                assertArrayEquals(expected.subSet(from, false, to, true).descendingSet().toArray(),
+                                  tree.subSet(from, false, to, true).descendingSet().toArray());
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> tree.headSet("user01000").add("user02000"));
+            assertThrows(IllegalArgumentException.class, () -> tree.subSet("user2", "user1"));
+
+            assertEquals(expected.pollFirst(), tree.pollFirst());
+            assertEquals(expected.pollLast(), tree.pollLast());
+            assertEquals(expected.subSet("user03000", true, "user04000", false).pollFirst(), tree.subSet("user03000", true, "user04000", false).pollFirst());
+            assertTrue(tree.delete("user04000"));
+            assertFalse(tree.delete(null));
+            expected.remove("user04000");
+
+            for (Iterator<String> it = tree.descendingIterator(); it.hasNext();)
+            {
+                if (it.next().hashCode() % 3 == 0)
+                {
+                    it.remove();
+                }
+            }
+
+            expected.removeIf(s -> s.hashCode() % 3 == 0);
+            assertArrayEquals(expected.toArray(), tree.toArray());
+            assertEquals(expected.size(), tree.size());
+
+            tree.tailSet("user00500").clear();
+            expected.tailSet("user00500").clear();
+            assertArrayEquals(expected.toArray(), tree.toArray());
+            assertEquals(expected.last(), tree.last());
+        }
+    }
+
+    /**
+     * Test of random adds and removes, closing and reopening the file, of class MappedBPlusTree.
+     *
+     * @throws IOException if any
+     */
+    @Test
+    public void testReopen() throws IOException
+    {
+        Random random = new Random(24680);
+        TreeSet<String> expected = new TreeSet<>();
+
+        try ( MappedBPlusTree<String> tree = new MappedBPlusTree<>(file, ElementCodec.UTF, 16))
+        {
+            for (int i = 0; i < 40_000; i++)
+            {
+                String next = "user" + random.nextInt(20_000);
+
+                if (random.nextInt(3) > 0)
+                {
+                    assertEquals(expected.add(next), tree.add(next));
+                } else
+                {
+                    assertEquals(expected.remove(next), tree.remove(next));
+                }
+            }
+
+            assertEquals(expected.size(), tree.size());
+            assertArrayEquals(expected.toArray(), tree.toArray());
+        }
+
+        try ( MappedBPlusTree<String> tree = new MappedBPlusTree<>(file, ElementCodec.UTF))
+        {
+            assertEquals(expected.size(), tree.size());
+            assertArrayEquals(expected.toArray(), tree.toArray());
+            assertTrue(tree.contains(expected.first()));
+            assertFalse(tree.contains("nobody"));
+
+            for (Iterator<String> it = tree.iterator(); it.hasNext();)
+            {
+                if (it.next().hashCode() % 2 == 0)
+                {
+                    it.remove();
+                }
+            }
+
+            expected.removeIf(s -> s.hashCode() % 2 == 0);
+            assertArrayEquals(expected.toArray(), tree.toArray());
+
+            Iterator<String> it = tree.iterator();
+            tree.add("zzz");
+            assertThrows(ConcurrentModificationException.class, it::next);
+
+            tree.clear();
+            assertTrue(tree.isEmpty());
+            assertFalse(tree.iterator().hasNext());
+        }
+    }
+}
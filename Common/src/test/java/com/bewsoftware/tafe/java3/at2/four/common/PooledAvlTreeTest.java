@@ -0,0 +1,127 @@
+/*
+ *  File Name:    PooledAvlTreeTest.java
+ *  Project Name: Common
+ *
+ *  Copyright (c) 2021 Bradley Willcott
+ *
+ *  This program is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  This program is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.bewsoftware.tafe.java3.at2.four.common;
+
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ *
+ * @author <a href="mailto:bw.opensource@yahoo.com">Bradley Willcott</a>
+ */
+public class PooledAvlTreeTest
+{
+
+    public PooledAvlTreeTest()
+    {
+    }
+
+    /**
+     * Test of the height of a tree built from sorted input, of class PooledAvlTree.
+     */
+    @Test
+    public void testHeight()
+    {
+        PooledAvlTree<Integer> tree = new PooledAvlTree<>();
+
+        for (int i = 0; i < 100_000; i++)
+        {
+            assertTrue(tree.add(i));
+        }
+
+        assertEquals(100_000, tree.size());
+        assertTrue(tree.getHeight() <= 24);
+        assertTrue(tree.contains(99_999));
+        assertFalse(tree.contains(100_000));
+    }
+
+    /**
+     * Test of iterator remove method, of class PooledAvlTree.
+     */
+    @Test
+    public void testIterator_remove()
+    {
+        PooledAvlTree<Integer> tree = new PooledAvlTree<>(4);
+
+        for (int i = 0; i < 100; i++)
+        {
+            tree.add(i);
+        }
+
+        for (Iterator<Integer> it = tree.iterator(); it.hasNext();)
+        {
+            if (it.next() % 3 != 0)
+            {
+                it.remove();
+            }
+        }
+
+        assertEquals(34, tree.size());
+        int expected = 0;
+
+        for (Integer i : tree)
+        {
+            assertEquals(expected, i);
+            expected += 3;
+        }
+
+        Iterator<Integer> it = tree.iterator();
+        tree.add(1_000);
+        assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    /**
+     * Test of random adds and removes, reusing freed Nodes, of class PooledAvlTree.
+     */
+    @Test
+    public void testRandomised()
+    {
+        Random random = new Random(54321);
+        PooledAvlTree<Integer> tree = new PooledAvlTree<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 50_000; i++)
+        {
+            Integer next = random.nextInt(2_000);
+
+            if (random.nextBoolean())
+            {
+                assertEquals(expected.add(next), tree.add(next));
+            } else
+            {
+                assertEquals(expected.remove(next), tree.remove(next));
+            }
+        }
+
+        assertEquals(expected.size(), tree.size());
+        assertArrayEquals(expected.toArray(), tree.toArray());
+
+        tree.trimToSize();
+        assertArrayEquals(expected.toArray(), tree.toArray());
+        tree.addAll(Arrays.asList(5_000, 5_001));
+        assertTrue(tree.contains(5_001));
+
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.iterator().hasNext());
+    }
+}
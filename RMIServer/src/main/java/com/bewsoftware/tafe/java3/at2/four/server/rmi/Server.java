@@ -26,22 +26,38 @@
 
 package com.bewsoftware.tafe.java3.at2.four.server.rmi;
 
-import com.bewsoftware.tafe.java3.at2.four.common.AvlTree;
+import com.bewsoftware.tafe.java3.at2.four.common.AvlMap;
 import com.bewsoftware.tafe.java3.at2.four.common.CSVFile;
 import com.bewsoftware.tafe.java3.at2.four.common.CSVRow;
+import com.bewsoftware.tafe.java3.at2.four.common.ElementCodec;
 import com.bewsoftware.tafe.java3.at2.four.common.PBKDF2;
 import com.bewsoftware.tafe.java3.at2.four.common.PBKDF2.CannotPerformOperationException;
 import com.bewsoftware.tafe.java3.at2.four.common.PBKDF2.InvalidHashException;
 import common.UserAccount;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.rmi.AlreadyBoundException;
 import java.rmi.RemoteException;
 import java.rmi.registry.LocateRegistry;
 import java.rmi.registry.Registry;
 import java.rmi.server.UnicastRemoteObject;
-import java.util.Objects;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 
 import static com.bewsoftware.tafe.java3.at2.four.common.Constants.*;
 
@@ -69,6 +85,31 @@ public class Server implements UserAccount
      */
     static final String DATASTORE = "user_accounts.csv";
 
+    /**
+     * Binary snapshot of the user account details, for a fast restart.
+     * <p>
+     * It starts with the length of the {@link #DATASTORE} it matches, and is only
+     * used if nothing has been appended to that file since.
+     */
+    static final String SNAPSHOT = "user_accounts.dat";
+
+    /**
+     * The number of seconds between checks for a new {@link #SNAPSHOT} to write.
+     */
+    static final int SNAPSHOT_PERIOD = 60;
+
+    /**
+     * The number of slots in the lookup cache of the user account tree.
+     * <p>
+     * The same users log in again and again, so their Nodes are cached.
+     */
+    static final int LOOKUP_CACHE_SIZE = 4096;
+
+    /**
+     * JMX name of the statistics of the user account tree.
+     */
+    static final String STATISTICS = "com.bewsoftware.tafe.java3.at2.four.server.rmi:type=AvlTree,name=users";
+
     static Registry registry;
 
     /**
@@ -82,11 +123,21 @@ public class Server implements UserAccount
 
         try
         {
-            UserAccount engine = new Server();
+            Server engine = new Server();
             UserAccount stub = (UserAccount) UnicastRemoteObject.exportObject(engine, 0);
 
             registry = LocateRegistry.createRegistry(1099);
             registry.bind(RMI_NAME, stub);
+
+            // The snapshot is written in the background, and once more on the way out.
+            ScheduledExecutorService snapshots = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshots.scheduleWithFixedDelay(engine::writeSnapshot, SNAPSHOT_PERIOD, SNAPSHOT_PERIOD, TimeUnit.SECONDS);
+            Runtime.getRuntime().addShutdownHook(new Thread(engine::writeSnapshot));
             log("Server bound\n%1$s\n", LINE);
         } catch (IOException | AlreadyBoundException ex)
         {
@@ -95,14 +146,27 @@ public class Server implements UserAccount
     }
 
     /**
-     * The data from/for the CSV file.
+     * The password hashes of the registered users, by username.
+     * <p>
+     * RMI calls arrive on multiple threads, so this has to be thread-safe.
+     * Rows are appended to the {@link #DATASTORE}, and snapshots are taken,
+     * while synchronized on it.
+     */
+    private final AvlMap<String, String> users;
+
+    /**
+     * The number of changes made since this server started.
+     * <p>
+     * Guarded by {@link #users}.
      */
-    private final CSVFile userCSVFile;
+    private int changes;
 
     /**
-     * The sorted list of registered users.
+     * The number of {@link #changes} in the last {@link #SNAPSHOT} written.
+     * <p>
+     * Guarded by {@code this}.
      */
-    private final AvlTree<User> users;
+    private int snapshotChanges;
 
     /**
      * Instantiate a new copy of the Server class.
@@ -111,40 +175,50 @@ public class Server implements UserAccount
      */
     public Server() throws IOException
     {
-        users = new AvlTree<>();
-        userCSVFile = new CSVFile(DATASTORE);
+        users = new AvlMap<>(true);
 
-        if (userCSVFile.readData(true))
+        if (!readSnapshot())
         {
-            for (CSVRow row : userCSVFile)
+            CSVFile userCSVFile = new CSVFile(DATASTORE);
+
+            if (userCSVFile.readData(true))
             {
-                users.add(new User(row.get(0), row.get(1)));
+                Map<String, String> map = new LinkedHashMap<>();
+
+                for (CSVRow row : userCSVFile)
+                {
+                    map.put(row.get(0), row.get(1));
+                }
+
+                // Builds the tree in one pass, if the file is in username order.
+                users.putAll(map);
+
+                // So that the next snapshot is written.
+                changes++;
             }
-        } else
-        {
-            userCSVFile.setHeader(HEADER);
         }
+
+        users.enableLookupCache(LOOKUP_CACHE_SIZE);
+        registerStatistics();
     }
 
     @Override
     public boolean create(String username, String password) throws RemoteException
     {
         boolean rtn = false;
-        User user = new User(username, null);
 
-        if (!users.contains(user))
+        if (!users.containsKey(username))
         {
             try
             {
-                user.passwordHash = PBKDF2.createHash(password);
-                users.add(user);
+                String passwordHash = PBKDF2.createHash(password);
 
-                if (userCSVFile.add(CSVRow.parse(user.username, user.passwordHash)))
+                // Another thread may have created the same account in the meantime.
+                if (users.putIfAbsent(username, passwordHash) == null)
                 {
-                    userCSVFile.writeData();
+                    appendData(username, passwordHash);
+                    rtn = true;
                 }
-
-                rtn = true;
             } catch (CannotPerformOperationException | IOException ex)
             {
                 Logger.getLogger(Server.class.getName()).log(Level.SEVERE, null, ex);
@@ -167,12 +241,10 @@ public class Server implements UserAccount
     public boolean login(String username, String password) throws RemoteException
     {
         boolean rtn = false;
-        User user = new User(username, null);
+        String pwd = users.get(username);
 
-        if (users.contains(user))
+        if (pwd != null)
         {
-            String pwd = users.get(users.indexOf(user)).passwordHash;
-
             try
             {
                 rtn = PBKDF2.verifyPassword(password, pwd);
@@ -194,66 +266,117 @@ public class Server implements UserAccount
     }
 
     /**
-     * Holds user account details.
+     * Append a new user to the {@link #DATASTORE}.
+     * <p>
+     * Only the one row is written, so creating an account takes the same time
+     * however many there are. The {@link #SNAPSHOT} is written separately, by
+     * {@link #writeSnapshot()}.
+     *
+     * @param username     the username
+     * @param passwordHash the hash of the password
+     *
+     * @throws IOException if any
      */
-    private static class User implements Comparable<User>
+    private void appendData(String username, String passwordHash) throws IOException
     {
-        /**
-         * The hashed password.
-         */
-        public String passwordHash;
-
-        /**
-         * The username - key.
-         */
-        public final String username;
-
-        /**
-         * Instantiates a new copy of the User class.
-         *
-         * @param username     to store
-         * @param passwordHash to store
-         */
-        public User(String username, String passwordHash)
+        synchronized (users)
         {
-            this.username = username;
-            this.passwordHash = passwordHash;
+            CSVFile userCSVFile = new CSVFile(DATASTORE);
+            userCSVFile.setHeader(HEADER);
+            userCSVFile.add(CSVRow.parse(username, passwordHash));
+            userCSVFile.appendData();
+            changes++;
         }
+    }
 
-        @Override
-        public int compareTo(User o)
-        {
-            return this.equals(o) ? 0 : this.username.compareTo(o.username);
-        }
+    /**
+     * Read the users from the {@link #SNAPSHOT}, if it is up to date.
+     *
+     * @return {@code true} if successful
+     */
+    private boolean readSnapshot()
+    {
+        boolean rtn = false;
+        File snapshot = new File(SNAPSHOT);
 
-        @Override
-        public boolean equals(Object obj)
+        if (snapshot.exists())
         {
-            if (this == obj)
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(snapshot))))
             {
-                return true;
+                // A missing DATASTORE has a length() of 0.
+                if (in.readLong() == new File(DATASTORE).length())
+                {
+                    users.read(in, ElementCodec.UTF, ElementCodec.UTF);
+                    rtn = true;
+                }
+            } catch (IOException ex)
+            {
+                Logger.getLogger(Server.class.getName()).log(Level.WARNING, "Snapshot unusable, reading: " + DATASTORE, ex);
             }
+        }
+
+        return rtn;
+    }
 
-            if (obj == null)
+    /**
+     * Register the statistics of the user account tree with the platform MBean server,
+     * replacing those of any earlier instance.
+     */
+    private void registerStatistics()
+    {
+        try
+        {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(STATISTICS);
+
+            if (server.isRegistered(name))
             {
-                return false;
+                server.unregisterMBean(name);
             }
 
-            if (getClass() != obj.getClass())
+            server.registerMBean(users.enableStatistics(), name);
+        } catch (JMException ex)
+        {
+            Logger.getLogger(Server.class.getName()).log(Level.WARNING, "Statistics not registered", ex);
+        }
+    }
+
+    /**
+     * Write a snapshot of the users to the {@link #SNAPSHOT}, if there have been
+     * any changes since the last one.
+     * <p>
+     * The snapshot of the users is taken in O(1), along with the length of the
+     * {@link #DATASTORE} it matches, while synchronized on the {@link #users}. It
+     * is then written without holding that lock, so creating accounts is not held
+     * up by it.
+     */
+    synchronized void writeSnapshot()
+    {
+        AvlMap<String, String> snapshot = null;
+        long length = 0;
+        int taken = 0;
+
+        synchronized (users)
+        {
+            if (changes != snapshotChanges)
             {
-                return false;
+                snapshot = users.snapshot();
+                length = new File(DATASTORE).length();
+                taken = changes;
             }
-
-            final User other = (User) obj;
-            return Objects.equals(this.username, other.username);
         }
 
-        @Override
-        public int hashCode()
+        if (snapshot != null)
         {
-            int hash = 7;
-            hash = 61 * hash + Objects.hashCode(this.username);
-            return hash;
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(SNAPSHOT))))
+            {
+                out.writeLong(length);
+                snapshot.write(out, ElementCodec.UTF, ElementCodec.UTF);
+                snapshotChanges = taken;
+            } catch (IOException ex)
+            {
+                Logger.getLogger(Server.class.getName()).log(Level.WARNING, "Snapshot not written", ex);
+            }
         }
     }
 }
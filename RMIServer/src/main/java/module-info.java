@@ -15,4 +15,5 @@
 module RMIServer {
     requires CommonLibrary;
     requires java.logging;
+    requires java.management;
 }
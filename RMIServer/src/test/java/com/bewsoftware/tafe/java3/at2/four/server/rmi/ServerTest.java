@@ -28,6 +28,8 @@ package com.bewsoftware.tafe.java3.at2.four.server.rmi;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import javax.management.ObjectName;
 import org.junit.jupiter.api.*;
 
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -59,11 +61,17 @@ public class ServerTest
     {
         Server.main(null);
 
-        File file = new File(Server.DATASTORE);
-
-        if (file.exists())
+        for (String fileName : new String[]
+        {
+            Server.DATASTORE, Server.SNAPSHOT
+        })
         {
-            file.delete();
+            File file = new File(fileName);
+
+            if (file.exists())
+            {
+                file.delete();
+            }
         }
     }
 
@@ -120,6 +128,33 @@ public class ServerTest
             assertFalse(result);
         }
 
+        System.out.println("restart - login succeed");
+        Server restarted = new Server();
+
+        for (String[] userAccount : USER_ACCOUNTS)
+        {
+            String username = userAccount[0];
+            String password = userAccount[1];
+            boolean result = restarted.login(username, password);
+            assertTrue(result);
+        }
+
+        System.out.println("statistics - lookups counted");
+        long lookups = (Long) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(Server.STATISTICS), "Lookups");
+        assertTrue(lookups >= USER_ACCOUNTS.length);
+
+        System.out.println("statistics - repeat logins found in the lookup cache");
+
+        for (String[] userAccount : USER_ACCOUNTS)
+        {
+            assertTrue(restarted.login(userAccount[0], userAccount[1]));
+        }
+
+        long hits = (Long) ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName(Server.STATISTICS), "CacheHits");
+        assertTrue(hits >= USER_ACCOUNTS.length);
+
         System.out.println("login - fail");
 
         for (String[] userAccount : USER_ACCOUNTS)
@@ -129,5 +164,25 @@ public class ServerTest
             boolean result = instance.login(username, password);
             assertFalse(result);
         }
+
+        System.out.println("snapshot - restart from snapshot");
+        restarted.writeSnapshot();
+        assertTrue(new File(Server.SNAPSHOT).exists());
+        Server fromSnapshot = new Server();
+
+        for (String[] userAccount : USER_ACCOUNTS)
+        {
+            assertTrue(fromSnapshot.login(userAccount[0], userAccount[1]));
+        }
+
+        System.out.println("snapshot - out of date after create");
+        assertTrue(fromSnapshot.create("june5678", "June5678"));
+        Server fromDatastore = new Server();
+        assertTrue(fromDatastore.login("june5678", "June5678"));
+
+        for (String[] userAccount : USER_ACCOUNTS)
+        {
+            assertTrue(fromDatastore.login(userAccount[0], userAccount[1]));
+        }
     }
 }